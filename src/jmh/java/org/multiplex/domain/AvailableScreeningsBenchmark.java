@@ -0,0 +1,68 @@
+package org.multiplex.domain;
+
+import org.multiplex.domain.dto.AvailableScreeningDto;
+import org.multiplex.domain.dto.TimeRangeDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AvailableScreeningsBenchmark {
+
+    private static final String[] TITLES = {"Titanic", "Gladiator", "Forrest Gump", "Matrix", "Alien", "Amadeus", "Casablanca"};
+
+    @Param({"100", "1000", "10000"})
+    public int screeningsPerWeek;
+
+    private InMemoryScreeningRepository screeningRepository;
+    private CinemaService cinemaService;
+    private TimeRangeDto oneDay;
+
+    @Setup
+    public void setUp() {
+        screeningRepository = new InMemoryScreeningRepository();
+        cinemaService = BookingFixture.cinemaService(screeningRepository, new InMemoryReservationRepository());
+
+        OffsetDateTime weekStart = OffsetDateTime.now(BookingFixture.CLOCK).plusDays(1);
+        long minutesBetweenScreenings = Duration.ofDays(7).toMinutes() / screeningsPerWeek;
+
+        for (int i = 0; i < screeningsPerWeek; i++) {
+            Movie movie = new Movie(i % TITLES.length, TITLES[i % TITLES.length], Duration.ofMinutes(120));
+            Room room = new Room(i % 20, "Sala " + i % 20, 20, 20);
+            screeningRepository.add(new Screening(i + 1, movie, room, weekStart.plusMinutes(i * minutesBetweenScreenings)));
+        }
+
+        oneDay = TimeRangeDto.builder()
+                .from(weekStart.plusDays(2))
+                .to(weekStart.plusDays(3))
+                .build();
+    }
+
+    @Benchmark
+    public List<AvailableScreeningDto> getAvailableScreenings() {
+        return cinemaService.getAvailableScreenings(oneDay);
+    }
+
+    @Benchmark
+    public List<AvailableScreeningDto> findAvailableScreeningsWithoutCache() {
+        return screeningRepository.findAvailableScreenings(oneDay.getFrom(), oneDay.getTo());
+    }
+}
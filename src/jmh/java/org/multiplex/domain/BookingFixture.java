@@ -0,0 +1,117 @@
+package org.multiplex.domain;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.multiplex.domain.dto.ReservationDto;
+import org.multiplex.domain.dto.ReservationDto.SeatToReserveDto;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Screening in a room of given size backed by the in-memory repositories, filled with reservations
+ * of {@code groupSize} neighbouring seats placed row by row.
+ */
+class BookingFixture {
+
+    static final Clock CLOCK = Clock.fixed(Instant.parse("2019-12-09T10:00:00Z"), ZoneOffset.UTC);
+    static final Movie MOVIE = new Movie(1, "Gladiator", Duration.ofMinutes(171));
+
+    final InMemoryScreeningRepository screeningRepository = new InMemoryScreeningRepository();
+    final InMemoryReservationRepository reservationRepository = new InMemoryReservationRepository();
+    final CinemaService cinemaService;
+    final Screening screening;
+
+    private final Room room;
+    private final int groupSize;
+    private int nextRow = 1;
+    private int nextColumn = 1;
+
+    BookingFixture(String roomSize, int reservations, int groupSize) {
+        this.room = room(roomSize);
+        this.groupSize = groupSize;
+        this.cinemaService = cinemaService(screeningRepository, reservationRepository);
+        this.screening = new Screening(1, MOVIE, room, OffsetDateTime.now(CLOCK).plusDays(2));
+        screeningRepository.add(screening);
+
+        for (int i = 0; i < reservations; i++) {
+            ReservationDto reservation = nextReservation();
+            if (reservation == null) {
+                break;
+            }
+            cinemaService.reserveSeats(reservation);
+        }
+    }
+
+    static CinemaService cinemaService(ScreeningRepository screeningRepository, ReservationRepository reservationRepository) {
+        SeatOccupancyIndex seatOccupancyIndex = new SeatOccupancyIndex(reservationRepository, CLOCK);
+        ScreeningLocks screeningLocks = new ScreeningLocks(64);
+        ScreeningAvailability screeningAvailability = new ScreeningAvailability(screeningRepository, reservationRepository, screeningLocks, CLOCK);
+        return new CinemaService(
+                screeningRepository,
+                new ScreeningListingCache(screeningRepository, 31),
+                reservationRepository,
+                new ReservationPricingPolicy(),
+                new UserValidator(),
+                new BitmaskSeatsValidator(),
+                new BestSeatFinder(),
+                seatOccupancyIndex,
+                screeningAvailability,
+                screeningLocks,
+                new ReservationExpirySweeper(reservationRepository, seatOccupancyIndex, screeningAvailability, screeningLocks, CLOCK, 100),
+                new SeatHolds(seatOccupancyIndex, screeningLocks, CLOCK, 300_000, 1_000),
+                new BookingMetrics(new SimpleMeterRegistry(), seatOccupancyIndex),
+                CLOCK);
+    }
+
+    static Room room(String roomSize) {
+        String[] rowsAndColumns = roomSize.split("x");
+        return new Room(1, "Sala " + roomSize, Integer.parseInt(rowsAndColumns[0]), Integer.parseInt(rowsAndColumns[1]));
+    }
+
+    /**
+     * Returns how many reservations of {@code groupSize} neighbouring seats fit into the first {@code rows} rows of the room.
+     */
+    static int reservationsFitting(Room room, int rows, int groupSize) {
+        return rows * (room.getColumnCount() / groupSize);
+    }
+
+    /**
+     * Returns the next group of seats following the previous one or {@code null} if the room is full.
+     */
+    ReservationDto nextReservation() {
+        if (nextColumn + groupSize - 1 > room.getColumnCount()) {
+            nextRow++;
+            nextColumn = 1;
+        }
+        if (nextRow > room.getRowCount() || groupSize > room.getColumnCount()) {
+            return null;
+        }
+
+        List<SeatToReserveDto> seats = new ArrayList<>(groupSize);
+        for (int i = 0; i < groupSize; i++) {
+            seats.add(seat(nextRow, nextColumn++, ReservationDto.ReservationType.values()[i % 3]));
+        }
+
+        return ReservationDto.builder()
+                .screeningId(screening.getId())
+                .seatsToReserve(seats)
+                .bookingUser(ReservationDto.BookingUserDto.builder()
+                        .name("Jan")
+                        .surname("Kowalski")
+                        .build())
+                .build();
+    }
+
+    static SeatToReserveDto seat(int row, int column, ReservationDto.ReservationType type) {
+        return SeatToReserveDto.builder()
+                .row(row)
+                .column(column)
+                .reservationType(type)
+                .build();
+    }
+}
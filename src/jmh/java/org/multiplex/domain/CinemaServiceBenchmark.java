@@ -0,0 +1,100 @@
+package org.multiplex.domain;
+
+import org.multiplex.domain.dto.CompactScreeningSeatsInfoDto;
+import org.multiplex.domain.dto.ReservationDto;
+import org.multiplex.domain.dto.ReservationSummaryDto;
+import org.multiplex.domain.dto.ScreeningIdDto;
+import org.multiplex.domain.dto.ScreeningSeatsInfoDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CinemaServiceBenchmark {
+
+    @Param({"5x10", "20x20", "25x25", "50x100"})
+    public String roomSize;
+
+    @Param({"0", "50", "200"})
+    public int reservations;
+
+    @Param({"1", "4", "10"})
+    public int groupSize;
+
+    private final BestSeatFinder bestSeatFinder = new BestSeatFinder();
+
+    private BookingFixture fixture;
+    private ScreeningIdDto screeningId;
+    private SeatOccupancy occupancy;
+
+    @Setup
+    public void setUp() {
+        fixture = new BookingFixture(roomSize, reservations, groupSize);
+        screeningId = ScreeningIdDto.fromInt(fixture.screening.getId());
+        occupancy = new SeatOccupancyIndex(fixture.reservationRepository, BookingFixture.CLOCK).get(fixture.screening);
+    }
+
+    @Benchmark
+    public ScreeningSeatsInfoDto getScreeningSeatsInfo() {
+        return fixture.cinemaService.getScreeningSeatsInfo(screeningId);
+    }
+
+    @Benchmark
+    public CompactScreeningSeatsInfoDto getCompactScreeningSeatsInfo() {
+        return fixture.cinemaService.getCompactScreeningSeatsInfo(screeningId);
+    }
+
+    @Benchmark
+    public BestSeatFinder.SeatBlock findBestSeats() {
+        return bestSeatFinder.find(occupancy, groupSize);
+    }
+
+    @Benchmark
+    public ReservationSummaryDto reserveSeats(ReservationState state) {
+        return state.fixture.cinemaService.reserveSeats(state.nextReservation);
+    }
+
+    @State(Scope.Thread)
+    public static class ReservationState {
+
+        private BookingFixture fixture;
+        private ReservationDto nextReservation;
+
+        @Setup(Level.Trial)
+        public void checkGroupFits(CinemaServiceBenchmark benchmark) {
+            if (BookingFixture.reservationsFitting(BookingFixture.room(benchmark.roomSize), 1, benchmark.groupSize) == 0) {
+                throw new IllegalArgumentException("Group of " + benchmark.groupSize + " seats does not fit into a row of room " + benchmark.roomSize);
+            }
+        }
+
+        // every reservation takes the next free group of seats; when the room is full, it is emptied,
+        // as the pre-reservations alone may fill it
+        @Setup(Level.Invocation)
+        public void prepareReservation(CinemaServiceBenchmark benchmark) {
+            if (fixture == null) {
+                fixture = new BookingFixture(benchmark.roomSize, benchmark.reservations, benchmark.groupSize);
+            }
+            nextReservation = fixture.nextReservation();
+            if (nextReservation == null) {
+                fixture = new BookingFixture(benchmark.roomSize, 0, benchmark.groupSize);
+                nextReservation = fixture.nextReservation();
+            }
+        }
+    }
+}
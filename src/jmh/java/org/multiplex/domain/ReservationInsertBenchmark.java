@@ -0,0 +1,78 @@
+package org.multiplex.domain;
+
+import org.multiplex.App;
+import org.multiplex.domain.dto.AvailableScreeningDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reservations inserted per second into the embedded database by concurrent bookings,
+ * each in its own transaction or saved together by {@link GroupCommitReservationRepository}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class ReservationInsertBenchmark {
+
+    @Param({"false", "true"})
+    public boolean groupCommit;
+
+    private ConfigurableApplicationContext context;
+    private ReservationRepository reservationRepository;
+    private Screening screening;
+
+    @Setup
+    public void setUp() throws InterruptedException {
+        context = new SpringApplicationBuilder(App.class)
+                .web(WebApplicationType.NONE)
+                .run("--cinema.reservations.group-commit.enabled=" + groupCommit);
+        context.getBean(ScheduleImporter.class).awaitCompletion(1, TimeUnit.MINUTES);
+        reservationRepository = context.getBean(ReservationRepository.class);
+        ScreeningRepository screeningRepository = context.getBean(ScreeningRepository.class);
+        AvailableScreeningDto anyScreening = screeningRepository.findAvailableScreenings(
+                OffsetDateTime.parse("2000-01-01T00:00:00Z"), OffsetDateTime.parse("2100-01-01T00:00:00Z")).get(0);
+        screening = screeningRepository.findById(anyScreening.getScreeningId());
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Reservation save() {
+        return reservationRepository.save(Reservation.builder()
+                .screening(screening)
+                .bookingUserName("John")
+                .bookingUserSurname("Smith")
+                .expirationTime(screening.getStartScreeningTime())
+                .reservedSeats(Set.of(
+                        ReservedSeat.builder().row(1).column(1).type(ReservationType.ADULT).build(),
+                        ReservedSeat.builder().row(1).column(2).type(ReservationType.CHILD).build()))
+                .totalCost(new BigDecimal("37.50"))
+                .build());
+    }
+}
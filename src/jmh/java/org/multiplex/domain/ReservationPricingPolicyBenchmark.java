@@ -0,0 +1,91 @@
+package org.multiplex.domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Total price of a reservation summed from a compiled price table compared with the previous
+ * fold over a {@link BigDecimal} price per seat.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ReservationPricingPolicyBenchmark {
+
+    private static final Screening SCREENING = new Screening(1, new Movie(1, "Titanic", Duration.ofMinutes(194)),
+            new Room(1, "Sala czerwona", 20, 20), OffsetDateTime.parse("2019-12-14T19:00:00Z"));
+
+    @Param({"1", "4", "10"})
+    public int groupSize;
+
+    @Param({"false", "true"})
+    public boolean withRules;
+
+    private ReservationPricingPolicy reservationPricingPolicy;
+    private int[] rows;
+    private ReservationType[] types;
+
+    @Setup
+    public void setUp() {
+        reservationPricingPolicy = new ReservationPricingPolicy(withRules
+                ? PricingRule.parseAll("day=SATURDAY|SUNDAY -> +3.00; time=18:00-23:00 -> +2.00; rows=1-3 -> -4.00; type=CHILD -> =10.00")
+                : List.of(), 10_000);
+
+        rows = new int[groupSize];
+        types = new ReservationType[groupSize];
+        for (int i = 0; i < groupSize; i++) {
+            rows[i] = 1 + i % 20;
+            types[i] = ReservationType.values()[i % ReservationType.values().length];
+        }
+    }
+
+    @Benchmark
+    public BigDecimal priceTable() {
+        ReservationPricingPolicy.PriceTable priceTable = reservationPricingPolicy.getPriceTable(SCREENING);
+
+        long total = 0;
+        int scale = 0;
+        for (int i = 0; i < groupSize; i++) {
+            total += priceTable.getPrice(rows[i], types[i]);
+            scale = Math.max(scale, priceTable.getScale(rows[i], types[i]));
+        }
+        return BigDecimal.valueOf(total, 2).setScale(scale, RoundingMode.UNNECESSARY);
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalFold() {
+        return io.vavr.collection.List.of(types)
+                .map(ReservationPricingPolicyBenchmark::bigDecimalPrice)
+                .reduce(BigDecimal::add);
+    }
+
+    private static BigDecimal bigDecimalPrice(ReservationType type) {
+        switch (type) {
+            case ADULT:
+                return BigDecimal.valueOf(25);
+            case STUDENT:
+                return BigDecimal.valueOf(18);
+            default:
+                return BigDecimal.valueOf(12.50);
+        }
+    }
+}
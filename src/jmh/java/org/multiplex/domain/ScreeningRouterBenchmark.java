@@ -0,0 +1,105 @@
+package org.multiplex.domain;
+
+import org.multiplex.domain.dto.ReservationDto;
+import org.multiplex.domain.dto.ReservationSummaryDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Reservations per second made through {@link ScreeningRouter} by concurrent clients with screenings spread over
+ * {@code nodes} in-process nodes. Each node's store commits one reservation at a time taking {@code commitMicros},
+ * like a single database would, so the throughput is bound by the number of nodes rather than by the CPU.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class ScreeningRouterBenchmark {
+
+    private static final int SCREENINGS = 256;
+    // every third seat of a row, so no single seat gaps are left whatever the order of reservations
+    private static final int SEATS_PER_ROW = 34;
+    private static final Room ROOM = BookingFixture.room("100x100");
+
+    @Param({"1", "2", "4"})
+    public int nodes;
+
+    @Param({"200"})
+    public int commitMicros;
+
+    private final AtomicInteger nextReservation = new AtomicInteger();
+    private ScreeningRouter router;
+
+    @Setup
+    public void setUp() {
+        InMemoryScreeningRepository screeningRepository = new InMemoryScreeningRepository();
+        List<Integer> screeningIds = new ArrayList<>();
+        for (int id = 1; id <= SCREENINGS; id++) {
+            screeningRepository.add(new Screening(id, BookingFixture.MOVIE, ROOM, OffsetDateTime.now(BookingFixture.CLOCK).plusDays(2)));
+            screeningIds.add(id);
+        }
+
+        LocalBookingTransport transport = new LocalBookingTransport();
+        List<String> nodeIds = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            String nodeId = "node-" + i;
+            transport.register(nodeId, node(screeningRepository, new SingleWriterReservationRepository(commitMicros)));
+            nodeIds.add(nodeId);
+        }
+        router = new ScreeningRouter(new ConsistentHashRing(nodeIds, 128), transport, () -> screeningIds);
+    }
+
+    @Benchmark
+    public ReservationSummaryDto reserveSeats() {
+        int reservation = nextReservation.getAndIncrement();
+        int seat = reservation / SCREENINGS;
+        return router.reserveSeats(ReservationDto.builder()
+                .screeningId(1 + reservation % SCREENINGS)
+                .seatsToReserve(List.of(BookingFixture.seat(1 + seat / SEATS_PER_ROW % ROOM.getRowCount(),
+                        1 + 3 * (seat % SEATS_PER_ROW), ReservationDto.ReservationType.ADULT)))
+                .bookingUser(ReservationDto.BookingUserDto.builder()
+                        .name("Jan")
+                        .surname("Kowalski")
+                        .build())
+                .build());
+    }
+
+    private static CinemaService node(ScreeningRepository screeningRepository, ReservationRepository reservationRepository) {
+        return BookingFixture.cinemaService(screeningRepository, reservationRepository);
+    }
+
+    private static class SingleWriterReservationRepository extends InMemoryReservationRepository {
+
+        private final long commitNanos;
+
+        SingleWriterReservationRepository(int commitMicros) {
+            this.commitNanos = TimeUnit.MICROSECONDS.toNanos(commitMicros);
+        }
+
+        @Override
+        public synchronized Reservation save(Reservation reservation) {
+            LockSupport.parkNanos(commitNanos);
+            return super.save(reservation);
+        }
+    }
+}
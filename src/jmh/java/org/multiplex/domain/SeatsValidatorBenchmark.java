@@ -0,0 +1,77 @@
+package org.multiplex.domain;
+
+import org.multiplex.domain.dto.ReservationDto;
+import org.multiplex.domain.dto.ReservationDto.SeatToReserveDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SeatsValidatorBenchmark {
+
+    @Param({"5x10", "20x20", "25x25", "50x100"})
+    public String roomSize;
+
+    @Param({"0", "50", "200"})
+    public int reservations;
+
+    @Param({"1", "4", "10"})
+    public int groupSize;
+
+    private final SeatsValidator seatsValidator = new SeatsValidator();
+    private final BitmaskSeatsValidator bitmaskSeatsValidator = new BitmaskSeatsValidator();
+
+    private Room room;
+    private SeatOccupancy occupancy;
+    private io.vavr.collection.List<Seat> reservedSeats;
+    private List<SeatToReserveDto> seatsToReserve;
+
+    @Setup
+    public void setUp() {
+        // the last row is left free for the validated group
+        Room fixtureRoom = BookingFixture.room(roomSize);
+        int preReservations = Math.min(reservations, BookingFixture.reservationsFitting(fixtureRoom, fixtureRoom.getRowCount() - 1, groupSize));
+        BookingFixture fixture = new BookingFixture(roomSize, preReservations, groupSize);
+        room = fixture.screening.getRoom();
+        occupancy = new SeatOccupancy(room.getRowCount(), room.getColumnCount());
+        fixture.reservationRepository.findByScreeningId(fixture.screening.getId())
+                .forEach(reservation -> reservation.getReservedSeats()
+                        .forEach(seat -> occupancy.reserve(seat.getRow(), seat.getColumn())));
+        reservedSeats = occupancy.getReservedSeats();
+
+        seatsToReserve = new ArrayList<>(groupSize);
+        for (int column = 1; column <= Math.min(groupSize, room.getColumnCount()); column++) {
+            seatsToReserve.add(BookingFixture.seat(room.getRowCount(), column, ReservationDto.ReservationType.ADULT));
+        }
+    }
+
+    @Benchmark
+    public void seatsValidator(Blackhole blackhole) {
+        seatsValidator.validate(seatsToReserve, reservedSeats, room);
+        blackhole.consume(seatsToReserve);
+    }
+
+    @Benchmark
+    public void bitmaskSeatsValidator(Blackhole blackhole) {
+        bitmaskSeatsValidator.validate(seatsToReserve, occupancy, room);
+        blackhole.consume(seatsToReserve);
+    }
+}
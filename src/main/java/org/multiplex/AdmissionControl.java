@@ -0,0 +1,182 @@
+package org.multiplex;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admits requests to {@link CinemaController} before they reach it: each client address and all clients together
+ * have a {@link TokenBucket}, and reservations and reads have separate {@link ConcurrencyLimit}s, the one of reservations
+ * adapting to their latency. Rejected requests get 429 with {@code Retry-After}. Seat map event streams stay open
+ * for long, so they are only rate limited. Nothing on the way locks.
+ */
+@Component
+class AdmissionControl implements AsyncHandlerInterceptor {
+
+    enum Rejection {
+        CLIENT_RATE("client-rate"),
+        GLOBAL_RATE("global-rate"),
+        RESERVATION_CONCURRENCY("reservation-concurrency"),
+        READ_CONCURRENCY("read-concurrency");
+
+        private final String tag;
+
+        Rejection(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private static final String PERMIT = AdmissionControl.class.getName() + ".permit";
+    private static final long CLEANUP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long CONCURRENCY_RETRY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final boolean enabled;
+    private final double clientRate;
+    private final int clientBurst;
+    private final int maxClients;
+    private final Map<String, TokenBucket> clientBuckets = new ConcurrentHashMap<>();
+    private final AtomicLong lastCleanupNanos = new AtomicLong(System.nanoTime());
+    private final TokenBucket globalBucket;
+    private final ConcurrencyLimit reservations;
+    private final ConcurrencyLimit reads;
+    private final Map<Rejection, Counter> rejections = new EnumMap<>(Rejection.class);
+
+    AdmissionControl(MeterRegistry registry,
+                     @Value("${cinema.admission.enabled:true}") boolean enabled,
+                     @Value("${cinema.admission.client.rate:20}") double clientRate,
+                     @Value("${cinema.admission.client.burst:40}") int clientBurst,
+                     @Value("${cinema.admission.client.max-clients:100000}") int maxClients,
+                     @Value("${cinema.admission.global.rate:2000}") double globalRate,
+                     @Value("${cinema.admission.global.burst:4000}") int globalBurst,
+                     @Value("${cinema.admission.reservations.initial-limit:16}") int initialReservationLimit,
+                     @Value("${cinema.admission.reservations.min-limit:2}") int minReservationLimit,
+                     @Value("${cinema.admission.reservations.max-limit:64}") int maxReservationLimit,
+                     @Value("${cinema.admission.reservations.target-latency-millis:250}") long targetLatencyMillis,
+                     @Value("${cinema.admission.reads.limit:128}") int readLimit) {
+        long now = System.nanoTime();
+        this.enabled = enabled;
+        this.clientRate = clientRate;
+        this.clientBurst = clientBurst;
+        this.maxClients = maxClients;
+        this.globalBucket = new TokenBucket(globalRate, globalBurst, now);
+        this.reservations = new ConcurrencyLimit(initialReservationLimit, minReservationLimit, maxReservationLimit,
+                TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis), now);
+        this.reads = ConcurrencyLimit.fixed(readLimit);
+
+        for (Rejection rejection : Rejection.values()) {
+            rejections.put(rejection, Counter.builder("cinema.admission.rejections")
+                    .description("Requests rejected by admission control")
+                    .tag("reason", rejection.tag)
+                    .register(registry));
+        }
+        Gauge.builder("cinema.admission.limit", reservations, ConcurrencyLimit::getLimit)
+                .description("Requests allowed in flight")
+                .tag("kind", "reservations")
+                .register(registry);
+        Gauge.builder("cinema.admission.limit", reads, ConcurrencyLimit::getLimit)
+                .description("Requests allowed in flight")
+                .tag("kind", "reads")
+                .register(registry);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        // a request finished asynchronously comes back once more, it was admitted the first time
+        if (!enabled || request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+
+        long now = System.nanoTime();
+        long waitNanos = clientBucket(request.getRemoteAddr(), now).tryTake(now);
+        if (waitNanos > 0) {
+            return reject(response, Rejection.CLIENT_RATE, waitNanos);
+        }
+        waitNanos = globalBucket.tryTake(now);
+        if (waitNanos > 0) {
+            return reject(response, Rejection.GLOBAL_RATE, waitNanos);
+        }
+
+        if (isEventStream(handler)) {
+            return true;
+        }
+        boolean reservation = !HttpMethod.GET.matches(request.getMethod());
+        ConcurrencyLimit limit = reservation ? reservations : reads;
+        if (!limit.tryAcquire()) {
+            return reject(response, reservation ? Rejection.RESERVATION_CONCURRENCY : Rejection.READ_CONCURRENCY, CONCURRENCY_RETRY_NANOS);
+        }
+        request.setAttribute(PERMIT, new Permit(limit, now));
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Permit permit = (Permit) request.getAttribute(PERMIT);
+        if (permit != null) {
+            request.removeAttribute(PERMIT);
+            long now = System.nanoTime();
+            permit.limit.release(now - permit.startNanos, now);
+        }
+    }
+
+    private TokenBucket clientBucket(String client, long now) {
+        TokenBucket bucket = clientBuckets.get(client);
+        if (bucket != null) {
+            return bucket;
+        }
+
+        if (clientBuckets.size() >= maxClients) {
+            removeFullBuckets(now);
+        }
+        return clientBuckets.computeIfAbsent(client, key -> new TokenBucket(clientRate, clientBurst, now));
+    }
+
+    private void removeFullBuckets(long now) {
+        // a full bucket is no different from a new one; many clients may be over the limit at once, so only one cleans up per interval
+        long lastCleanup = lastCleanupNanos.get();
+        if (now - lastCleanup >= CLEANUP_INTERVAL_NANOS && lastCleanupNanos.compareAndSet(lastCleanup, now)) {
+            clientBuckets.values().removeIf(bucket -> bucket.isFull(now));
+        }
+    }
+
+    private boolean reject(HttpServletResponse response, Rejection rejection, long waitNanos) throws IOException {
+        rejections.get(rejection).increment();
+        long retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Too many requests, try again in " + retryAfterSeconds + " s");
+        return false;
+    }
+
+    private static boolean isEventStream(Object handler) {
+        return handler instanceof HandlerMethod
+                && SseEmitter.class.isAssignableFrom(((HandlerMethod) handler).getReturnType().getParameterType());
+    }
+
+    private static class Permit {
+
+        private final ConcurrencyLimit limit;
+        private final long startNanos;
+
+        Permit(ConcurrencyLimit limit, long startNanos) {
+            this.limit = limit;
+            this.startNanos = startNanos;
+        }
+    }
+}
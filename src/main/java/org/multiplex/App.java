@@ -1,5 +1,6 @@
 package org.multiplex;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
@@ -12,6 +13,7 @@ import org.springframework.transaction.PlatformTransactionManager;
 
 import javax.persistence.EntityManagerFactory;
 import javax.sql.DataSource;
+import java.util.Properties;
 
 @SpringBootApplication
 public class App {
@@ -28,7 +30,7 @@ public class App {
     }
 
     @Bean
-    public LocalContainerEntityManagerFactoryBean entityManagerFactory() {
+    public LocalContainerEntityManagerFactoryBean entityManagerFactory(@Value("${cinema.jdbc.batch-size:50}") int batchSize) {
 
         HibernateJpaVendorAdapter vendorAdapter = new HibernateJpaVendorAdapter();
         vendorAdapter.setGenerateDdl(true);
@@ -37,6 +39,13 @@ public class App {
         factory.setJpaVendorAdapter(vendorAdapter);
         factory.setPackagesToScan("org.multiplex.domain");
         factory.setDataSource(dataSource());
+
+        // inserts of reservations saved in one transaction are sent together
+        Properties jpaProperties = new Properties();
+        jpaProperties.setProperty("hibernate.jdbc.batch_size", String.valueOf(batchSize));
+        jpaProperties.setProperty("hibernate.order_inserts", "true");
+        jpaProperties.setProperty("hibernate.order_updates", "true");
+        factory.setJpaProperties(jpaProperties);
         return factory;
     }
 
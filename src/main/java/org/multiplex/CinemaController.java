@@ -1,42 +1,135 @@
 package org.multiplex;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.multiplex.domain.CinemaService;
+import org.multiplex.domain.ScheduleImporter;
+import org.multiplex.domain.SeatMapBroadcaster;
+import org.multiplex.domain.SeatMapSubscriber;
 import org.multiplex.domain.dto.AvailableScreeningDto;
+import org.multiplex.domain.dto.BestSeatsReservationDto;
+import org.multiplex.domain.dto.CompactScreeningSeatsInfoDto;
+import org.multiplex.domain.dto.LockStripeStatsDto;
 import org.multiplex.domain.dto.ReservationDto;
+import org.multiplex.domain.dto.ReservationDto.BookingUserDto;
 import org.multiplex.domain.dto.ReservationSummaryDto;
+import org.multiplex.domain.dto.ScheduleImportDto;
+import org.multiplex.domain.dto.ScreeningCacheStatsDto;
 import org.multiplex.domain.dto.ScreeningIdDto;
+import org.multiplex.domain.dto.ScreeningPageDto;
+import org.multiplex.domain.dto.ScreeningSeatsChangesDto;
 import org.multiplex.domain.dto.ScreeningSeatsInfoDto;
+import org.multiplex.domain.dto.SeatHoldDto;
+import org.multiplex.domain.dto.SeatHoldSummaryDto;
 import org.multiplex.domain.dto.TimeRangeDto;
+import org.multiplex.domain.exception.InvalidCursorException;
 import org.multiplex.domain.exception.InvalidUserNameOrSurnameException;
+import org.multiplex.domain.exception.NoAvailableSeatsException;
 import org.multiplex.domain.exception.NoSeatToReserveException;
 import org.multiplex.domain.exception.ReservationTimeException;
 import org.multiplex.domain.exception.ScreeningNotFoundException;
 import org.multiplex.domain.exception.SeatGapException;
+import org.multiplex.domain.exception.SeatHoldNotFoundException;
 import org.multiplex.domain.exception.SeatNotFoundException;
 import org.multiplex.domain.exception.SeatReservedException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 class CinemaController {
+
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     private final CinemaService cinemaService;
+    private final SeatMapBroadcaster seatMapBroadcaster;
+    private final ScheduleImporter scheduleImporter;
+    private final RequestExecutors requestExecutors;
+    private final IdempotentRequests idempotentRequests;
+    private final ObjectMapper objectMapper;
+    private final long seatEventsTimeoutMillis;
 
-    CinemaController(CinemaService cinemaService) {
+    CinemaController(CinemaService cinemaService,
+                     SeatMapBroadcaster seatMapBroadcaster,
+                     ScheduleImporter scheduleImporter,
+                     RequestExecutors requestExecutors,
+                     IdempotentRequests idempotentRequests,
+                     ObjectMapper objectMapper,
+                     @Value("${cinema.seat-events.timeout-millis:1800000}") long seatEventsTimeoutMillis) {
         this.cinemaService = cinemaService;
+        this.seatMapBroadcaster = seatMapBroadcaster;
+        this.scheduleImporter = scheduleImporter;
+        this.requestExecutors = requestExecutors;
+        this.idempotentRequests = idempotentRequests;
+        this.objectMapper = objectMapper;
+        this.seatEventsTimeoutMillis = seatEventsTimeoutMillis;
     }
 
     @GetMapping("screenings")
-    public List<AvailableScreeningDto> getAvailableScreenings(
+    public CompletableFuture<List<AvailableScreeningDto>> getAvailableScreenings(
+            @RequestParam(value = "from")
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                    OffsetDateTime from,
+            @RequestParam(value = "to")
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                    OffsetDateTime to) {
+
+        TimeRangeDto range = TimeRangeDto.builder()
+                .from(from)
+                .to(to)
+                .build();
+        return requestExecutors.read(() -> cinemaService.getAvailableScreenings(range));
+    }
+
+    @GetMapping("screenings/page")
+    public CompletableFuture<ScreeningPageDto> getAvailableScreeningsPage(
+            @RequestParam(value = "from")
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                    OffsetDateTime from,
+            @RequestParam(value = "to")
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                    OffsetDateTime to,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "50") int limit) {
+
+        TimeRangeDto range = TimeRangeDto.builder()
+                .from(from)
+                .to(to)
+                .build();
+        return requestExecutors.read(() -> {
+            try {
+
+                return cinemaService.getAvailableScreeningsPage(range, cursor, limit);
+
+            } catch (InvalidCursorException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+            }
+        });
+    }
+
+    @GetMapping(value = "screenings/stream", produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAvailableScreenings(
             @RequestParam(value = "from")
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
                     OffsetDateTime from,
@@ -48,32 +141,231 @@ class CinemaController {
                 .from(from)
                 .to(to)
                 .build();
-        return cinemaService.getAvailableScreenings(range);
+        StreamingResponseBody body = out -> {
+            try {
+                cinemaService.forEachAvailableScreening(range, screening -> writeLine(out, screening));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE))
+                .body(body);
     }
 
     @GetMapping("screening/{id}")
-    public ScreeningSeatsInfoDto getScreeningSeatsInfo(@PathVariable("id") int id) {
+    public CompletableFuture<ResponseEntity<ScreeningSeatsInfoDto>> getScreeningSeatsInfo(
+            @PathVariable("id") int id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        return requestExecutors.read(() -> {
+            try {
+
+                ScreeningIdDto screeningId = ScreeningIdDto.fromInt(id);
+                String eTag = seatMapETag(screeningId, "full");
+                if (isNotModified(ifNoneMatch, eTag)) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+                }
+                return ResponseEntity.ok().eTag(eTag).body(cinemaService.getScreeningSeatsInfo(screeningId));
+
+            } catch (ScreeningNotFoundException e) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage(), e);
+            }
+        });
+    }
+
+    @GetMapping(value = "screening/{id}", params = "format=compact")
+    public CompletableFuture<ResponseEntity<CompactScreeningSeatsInfoDto>> getCompactScreeningSeatsInfo(
+            @PathVariable("id") int id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        return requestExecutors.read(() -> {
+            try {
+
+                ScreeningIdDto screeningId = ScreeningIdDto.fromInt(id);
+                String eTag = seatMapETag(screeningId, "compact");
+                if (isNotModified(ifNoneMatch, eTag)) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+                }
+                return ResponseEntity.ok().eTag(eTag).body(cinemaService.getCompactScreeningSeatsInfo(screeningId));
+
+            } catch (ScreeningNotFoundException e) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage(), e);
+            }
+        });
+    }
+
+    @GetMapping(value = "screening/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getScreeningSeatsEvents(@PathVariable("id") int id) {
+
+        ScreeningIdDto screeningId = ScreeningIdDto.fromInt(id);
+        SseEmitter emitter = new SseEmitter(seatEventsTimeoutMillis);
+        SseSeatMapSubscriber subscriber = new SseSeatMapSubscriber(emitter);
+        emitter.onCompletion(() -> seatMapBroadcaster.unsubscribe(screeningId, subscriber));
+        emitter.onTimeout(() -> seatMapBroadcaster.unsubscribe(screeningId, subscriber));
 
         try {
 
-            return cinemaService.getScreeningSeatsInfo(ScreeningIdDto.fromInt(id));
+            seatMapBroadcaster.subscribe(screeningId, subscriber);
+            return emitter;
 
         } catch (ScreeningNotFoundException e) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage(), e);
         }
     }
 
+    @GetMapping("screening/{id}/changes")
+    public CompletableFuture<ScreeningSeatsChangesDto> getScreeningSeatsChanges(@PathVariable("id") int id,
+                                                                                @RequestParam("since") long sinceVersion) {
+
+        return requestExecutors.read(() -> {
+            try {
+
+                return cinemaService.getScreeningSeatsChanges(ScreeningIdDto.fromInt(id), sinceVersion);
+
+            } catch (ScreeningNotFoundException e) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage(), e);
+            }
+        });
+    }
+
     @PostMapping("reserve")
-    public ReservationSummaryDto reserveSeats(@RequestBody ReservationDto reservationDto) {
-        try {
+    public CompletableFuture<ReservationSummaryDto> reserveSeats(@RequestBody ReservationDto reservationDto,
+                                                                 @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return idempotentRequests.execute(idempotencyKey, reservationDto, () -> requestExecutors.write(() -> {
+            try {
 
-            return cinemaService.reserveSeats(reservationDto);
+                return cinemaService.reserveSeats(reservationDto);
 
-        } catch (ScreeningNotFoundException | SeatNotFoundException e) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage(), e);
-        } catch (InvalidUserNameOrSurnameException | NoSeatToReserveException | ReservationTimeException | SeatGapException | SeatReservedException e) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+            } catch (ScreeningNotFoundException | SeatNotFoundException e) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage(), e);
+            } catch (InvalidUserNameOrSurnameException | NoSeatToReserveException | ReservationTimeException | SeatGapException | SeatReservedException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+            }
+        }));
+    }
+
+    @PostMapping("reserve/best")
+    public CompletableFuture<ReservationSummaryDto> reserveBestSeats(@RequestBody BestSeatsReservationDto reservationDto,
+                                                                     @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return idempotentRequests.execute(idempotencyKey, reservationDto, () -> requestExecutors.write(() -> {
+            try {
+
+                return cinemaService.reserveBestSeats(reservationDto);
+
+            } catch (ScreeningNotFoundException e) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage(), e);
+            } catch (InvalidUserNameOrSurnameException | NoSeatToReserveException | NoAvailableSeatsException | ReservationTimeException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+            }
+        }));
+    }
+
+    @PostMapping("hold")
+    public CompletableFuture<SeatHoldSummaryDto> holdSeats(@RequestBody SeatHoldDto seatHoldDto) {
+        return requestExecutors.write(() -> {
+            try {
+
+                return cinemaService.holdSeats(seatHoldDto);
+
+            } catch (ScreeningNotFoundException | SeatNotFoundException e) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage(), e);
+            } catch (NoSeatToReserveException | ReservationTimeException | SeatGapException | SeatReservedException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+            }
+        });
+    }
+
+    @PostMapping("hold/{id}/confirm")
+    public CompletableFuture<ReservationSummaryDto> confirmSeatHold(@PathVariable("id") String id, @RequestBody BookingUserDto bookingUser) {
+        return requestExecutors.write(() -> {
+            try {
+
+                return cinemaService.confirmSeatHold(id, bookingUser);
+
+            } catch (SeatHoldNotFoundException | ScreeningNotFoundException | SeatNotFoundException e) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage(), e);
+            } catch (InvalidUserNameOrSurnameException | NoSeatToReserveException | ReservationTimeException | SeatGapException | SeatReservedException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+            }
+        });
+    }
+
+    @DeleteMapping("hold/{id}")
+    public CompletableFuture<Void> releaseSeatHold(@PathVariable("id") String id) {
+        return requestExecutors.write(() -> {
+            try {
+
+                cinemaService.releaseSeatHold(id);
+                return null;
+
+            } catch (SeatHoldNotFoundException e) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage(), e);
+            }
+        });
+    }
+
+    @GetMapping("stats/reservation-locks")
+    public List<LockStripeStatsDto> getReservationLockStats() {
+        return cinemaService.getReservationLockStats();
+    }
+
+    @GetMapping("stats/screening-cache")
+    public ScreeningCacheStatsDto getScreeningCacheStats() {
+        return cinemaService.getScreeningCacheStats();
+    }
+
+    @GetMapping("stats/schedule-import")
+    public ScheduleImportDto getScheduleImportProgress() {
+        return scheduleImporter.getProgress();
+    }
+
+    private static class SseSeatMapSubscriber implements SeatMapSubscriber {
+
+        private final SseEmitter emitter;
+
+        SseSeatMapSubscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void send(String eventName, long version, Object data) throws IOException {
+            emitter.send(SseEmitter.event()
+                    .name(eventName)
+                    .id(String.valueOf(version))
+                    .data(data, MediaType.APPLICATION_JSON));
+        }
+
+        @Override
+        public void close() {
+            emitter.complete();
         }
     }
 
+    private String seatMapETag(ScreeningIdDto screeningId, String format) {
+        return "\"" + cinemaService.getSeatMapVersion(screeningId) + "-" + format + "\"";
+    }
+
+    private static boolean isNotModified(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*") || tag.equals(eTag) || tag.equals("W/" + eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeLine(OutputStream out, Object value) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(value));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
@@ -0,0 +1,83 @@
+package org.multiplex;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Limits requests in flight. An adaptive limit follows AIMD: every request finished within the target latency
+ * while the limit is in use adds {@code 1 / limit}, so about one per round of requests, and a slower one cuts the limit
+ * by {@link #BACKOFF}, at most once per target latency so requests slowed down by the same overload cut it only once.
+ * Acquiring and releasing are compare-and-set loops without a lock.
+ */
+class ConcurrencyLimit {
+
+    static final double BACKOFF = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong limitBits;
+    private final AtomicLong lastDecreaseNanos;
+
+    ConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, long targetLatencyNanos, long nowNanos) {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Concurrency limit needs 1 <= min <= initial <= max");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = targetLatencyNanos;
+        this.limitBits = new AtomicLong(Double.doubleToLongBits(initialLimit));
+        this.lastDecreaseNanos = new AtomicLong(nowNanos - targetLatencyNanos);
+    }
+
+    static ConcurrencyLimit fixed(int limit) {
+        return new ConcurrencyLimit(limit, limit, limit, 0, 0);
+    }
+
+    boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= getLimit()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release(long latencyNanos, long nowNanos) {
+        int used = inFlight.getAndDecrement();
+        if (targetLatencyNanos <= 0) {
+            return;
+        }
+
+        if (latencyNanos > targetLatencyNanos) {
+            long lastDecrease = lastDecreaseNanos.get();
+            if (nowNanos - lastDecrease >= targetLatencyNanos && lastDecreaseNanos.compareAndSet(lastDecrease, nowNanos)) {
+                update(limit -> Math.max(minLimit, limit * BACKOFF));
+            }
+        } else if (2 * used >= getLimit()) {
+            // an idle limit is not proven to be too low
+            update(limit -> Math.min(maxLimit, limit + 1 / limit));
+        }
+    }
+
+    int getLimit() {
+        return (int) limit();
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    private double limit() {
+        return Double.longBitsToDouble(limitBits.get());
+    }
+
+    private void update(DoubleUnaryOperator change) {
+        limitBits.updateAndGet(bits -> Double.doubleToLongBits(change.applyAsDouble(Double.longBitsToDouble(bits))));
+    }
+}
@@ -0,0 +1,131 @@
+package org.multiplex;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Clock;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Remembers results of requests sent with an {@code Idempotency-Key} header, so a client retrying a request gets
+ * the original result instead of running it again. A retry arriving while the first request is still running gets
+ * a future of its result, so no thread waits for it. Failed requests are not remembered and can be retried with
+ * the same key.
+ * At most {@code maxKeys} results are kept, each for {@code ttlMillis}; the oldest ones are forgotten first.
+ */
+@Component
+class IdempotentRequests {
+
+    private final Clock clock;
+    private final long ttlMillis;
+    private final int maxKeys;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+    IdempotentRequests(Clock clock,
+                       @Value("${cinema.web.idempotency.ttl-millis:86400000}") long ttlMillis,
+                       @Value("${cinema.web.idempotency.max-keys:100000}") int maxKeys) {
+        this.clock = clock;
+        this.ttlMillis = ttlMillis;
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Starts the work once per key. Repeats with the same key and an equal request get the first result,
+     * a different request sent with the same key is rejected with 422.
+     */
+    @SuppressWarnings("unchecked")
+    <T> CompletableFuture<T> execute(String key, Object request, Supplier<CompletableFuture<T>> work) {
+        if (key == null) {
+            return work.get();
+        }
+
+        Entry entry;
+        boolean first;
+        synchronized (entries) {
+            long now = clock.millis();
+            removeExpired(now);
+
+            entry = entries.get(key);
+            first = entry == null;
+            if (first) {
+                entry = new Entry(request, now + ttlMillis);
+                entries.put(key, entry);
+                if (entries.size() > maxKeys) {
+                    Iterator<Entry> eldest = entries.values().iterator();
+                    eldest.next();
+                    eldest.remove();
+                }
+            }
+        }
+
+        if (!entry.request.equals(request)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, "Idempotency key " + key + " was used for another request");
+        }
+
+        if (first) {
+            return run(key, entry, work);
+        }
+        // a copy, so a repeat which is cancelled does not cancel the result of the others
+        return (CompletableFuture<T>) entry.result.copy();
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private <T> CompletableFuture<T> run(String key, Entry entry, Supplier<CompletableFuture<T>> work) {
+        CompletableFuture<T> result;
+        try {
+            result = work.get();
+        } catch (RuntimeException e) {
+            forget(key, entry, e);
+            throw e;
+        }
+
+        result.whenComplete((value, e) -> {
+            if (e != null) {
+                forget(key, entry, e);
+            } else {
+                entry.result.complete(value);
+            }
+        });
+        return result;
+    }
+
+    private void forget(String key, Entry entry, Throwable failure) {
+        synchronized (entries) {
+            entries.remove(key, entry);
+        }
+        entry.result.completeExceptionally(failure);
+    }
+
+    private void removeExpired(long now) {
+        // all entries live equally long, so the oldest ones expire first
+        Iterator<Entry> oldest = entries.values().iterator();
+        while (oldest.hasNext()) {
+            if (oldest.next().expiresAtMillis > now) {
+                return;
+            }
+            oldest.remove();
+        }
+    }
+
+    private static class Entry {
+
+        private final Object request;
+        private final long expiresAtMillis;
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        Entry(Object request, long expiresAtMillis) {
+            this.request = request;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.multiplex;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs controller work on the Tomcat worker which received the request or, in async mode, on separate bounded pools
+ * for reads and writes, so slow writes do not hold workers and reads do not queue behind them.
+ * Work which does not fit into a full pool's queue is rejected at once with 503.
+ */
+@Component
+class RequestExecutors {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestExecutors.class);
+
+    private final boolean async;
+    private final ThreadPoolExecutor reads;
+    private final ThreadPoolExecutor writes;
+
+    RequestExecutors(@Value("${cinema.web.async.enabled:false}") boolean async,
+                     @Value("${cinema.web.async.read-threads:16}") int readThreads,
+                     @Value("${cinema.web.async.read-queue:256}") int readQueue,
+                     @Value("${cinema.web.async.write-threads:4}") int writeThreads,
+                     @Value("${cinema.web.async.write-queue:64}") int writeQueue) {
+        this.async = async;
+        this.reads = async ? pool("cinema-read-", readThreads, readQueue) : null;
+        this.writes = async ? pool("cinema-write-", writeThreads, writeQueue) : null;
+        LOGGER.info("Requests are handled {}", async ? "asynchronously" : "on Tomcat workers");
+    }
+
+    <T> CompletableFuture<T> read(Supplier<T> work) {
+        return execute(reads, work);
+    }
+
+    <T> CompletableFuture<T> write(Supplier<T> work) {
+        return execute(writes, work);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (async) {
+            reads.shutdown();
+            writes.shutdown();
+        }
+    }
+
+    private <T> CompletableFuture<T> execute(ThreadPoolExecutor pool, Supplier<T> work) {
+        if (!async) {
+            return CompletableFuture.completedFuture(work.get());
+        }
+
+        try {
+            return CompletableFuture.supplyAsync(work, pool);
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("Rejecting request, {} requests are waiting", pool.getQueue().size());
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many requests are waiting, try again later", e);
+        }
+    }
+
+    private static ThreadPoolExecutor pool(String namePrefix, int threads, int queueCapacity) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -0,0 +1,49 @@
+package org.multiplex;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket refilled with {@code ratePerSecond} tokens up to {@code burst}, kept as the generic cell rate algorithm:
+ * a single theoretical arrival time which every taken token moves one emission interval forward.
+ * Taking a token is a compare-and-set of that time, so the bucket has no lock.
+ */
+class TokenBucket {
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong theoreticalArrivalNanos;
+
+    TokenBucket(double ratePerSecond, int burst, long nowNanos) {
+        if (ratePerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Token bucket needs a positive rate and burst");
+        }
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000 / ratePerSecond));
+        this.toleranceNanos = (burst - 1) * intervalNanos;
+        this.theoreticalArrivalNanos = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Takes a token and returns 0 or, if the bucket is empty, takes nothing and returns nanoseconds until a token is added.
+     */
+    long tryTake(long nowNanos) {
+        while (true) {
+            long theoreticalArrival = theoreticalArrivalNanos.get();
+            // compared by difference, as nano times may overflow
+            long start = theoreticalArrival - nowNanos > 0 ? theoreticalArrival : nowNanos;
+            long waitNanos = start - nowNanos - toleranceNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (theoreticalArrivalNanos.compareAndSet(theoreticalArrival, start + intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Tells if the bucket holds all {@code burst} tokens, i.e. it is no different from a new one.
+     */
+    boolean isFull(long nowNanos) {
+        return theoreticalArrivalNanos.get() - nowNanos <= 0;
+    }
+}
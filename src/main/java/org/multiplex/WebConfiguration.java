@@ -0,0 +1,23 @@
+package org.multiplex;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+class WebConfiguration implements WebMvcConfigurer {
+
+    private final AdmissionControl admissionControl;
+
+    WebConfiguration(AdmissionControl admissionControl) {
+        this.admissionControl = admissionControl;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // stats stay reachable while the booking endpoints are overloaded
+        registry.addInterceptor(admissionControl)
+                .addPathPatterns("/**")
+                .excludePathPatterns("/stats/**", "/error");
+    }
+}
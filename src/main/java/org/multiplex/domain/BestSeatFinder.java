@@ -0,0 +1,107 @@
+package org.multiplex.domain;
+
+import lombok.Value;
+
+/**
+ * Finds the best block of adjacent free seats in one row: the one whose middle is closest to the middle of the room,
+ * counting rows and columns alike, and on a tie the one in the row closer to the middle row.
+ * Blocks which would leave a single free seat next to a reserved one are skipped, like {@link SeatsValidator} does.
+ * Rows are visited from the middle outwards as runs of free seats, so the search stops as soon as
+ * no further row can hold a better block.
+ */
+class BestSeatFinder {
+
+    /**
+     * Returns the best block of {@code seatCount} seats or {@code null} if there is none.
+     */
+    SeatBlock find(SeatOccupancy occupancy, int seatCount) {
+
+        int rowCount = occupancy.getRowCount();
+        int columnCount = occupancy.getColumnCount();
+        if (seatCount < 1 || seatCount > columnCount) {
+            return null;
+        }
+
+        // distances are doubled, so middles between two seats stay integers
+        int middleRow = rowCount + 1;
+        int middleColumn = columnCount + 1;
+
+        SeatBlock best = null;
+        int bestDistance = Integer.MAX_VALUE;
+
+        for (int i = 0; i < rowCount; i++) {
+            // rows ordered by their distance from the middle: c, c + 1, c - 1, c + 2, c - 2, ...
+            int row = (rowCount + 1) / 2 + (i % 2 == 0 ? -i / 2 : (i + 1) / 2);
+
+            int rowDistance = Math.abs(2 * row - middleRow);
+            if (rowDistance >= bestDistance) {
+                break;
+            }
+
+            int firstFree = occupancy.nextColumn(row, 1, false);
+            while (firstFree <= columnCount) {
+                int nextReserved = occupancy.nextColumn(row, firstFree, true);
+                int lastFree = nextReserved - 1;
+
+                int firstColumn = bestStart(firstFree, lastFree, seatCount, columnCount);
+                if (firstColumn > 0) {
+                    int distance = rowDistance + Math.abs(2 * firstColumn + seatCount - 1 - middleColumn);
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        best = new SeatBlock(row, firstColumn, seatCount);
+                    }
+                }
+
+                firstFree = occupancy.nextColumn(row, nextReserved, false);
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Returns the first column of the most central block which fits into free seats from {@code firstFree}
+     * to {@code lastFree} without leaving a single free seat next to a reserved one, or 0 if there is no such block.
+     */
+    private static int bestStart(int firstFree, int lastFree, int seatCount, int columnCount) {
+
+        int lowest = firstFree;
+        int highest = lastFree - seatCount + 1;
+        if (highest < lowest) {
+            return 0;
+        }
+
+        // the block is as central as possible when it starts here
+        int target = Math.max(lowest, Math.min(highest, (columnCount + 2 - seatCount) / 2));
+
+        // at most two starts are forbidden, so one of the five closest starts is allowed if any is
+        int best = 0;
+        for (int offset = 0; offset <= 2; offset++) {
+            for (int start : new int[]{target - offset, target + offset}) {
+                if (start < lowest || start > highest || !leavesNoGap(start, firstFree, lastFree, seatCount, columnCount)) {
+                    continue;
+                }
+                if (best == 0 || Math.abs(2 * start + seatCount - 2 - columnCount) < Math.abs(2 * best + seatCount - 2 - columnCount)) {
+                    best = start;
+                }
+            }
+            if (best != 0) {
+                return best;
+            }
+        }
+        return 0;
+    }
+
+    private static boolean leavesNoGap(int start, int firstFree, int lastFree, int seatCount, int columnCount) {
+        boolean gapOnTheLeft = firstFree > 1 && start == firstFree + 1;
+        boolean gapOnTheRight = lastFree < columnCount && start + seatCount - 1 == lastFree - 1;
+        return !gapOnTheLeft && !gapOnTheRight;
+    }
+
+    @Value
+    static class SeatBlock {
+        private int row;
+        private int firstColumn;
+        private int seatCount;
+    }
+}
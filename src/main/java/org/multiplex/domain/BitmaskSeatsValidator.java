@@ -0,0 +1,119 @@
+package org.multiplex.domain;
+
+import org.multiplex.domain.dto.ReservationDto.SeatToReserveDto;
+import org.multiplex.domain.exception.NoSeatToReserveException;
+import org.multiplex.domain.exception.SeatGapException;
+import org.multiplex.domain.exception.SeatNotFoundException;
+import org.multiplex.domain.exception.SeatReservedException;
+
+import java.util.List;
+
+/**
+ * Same rules as {@link SeatsValidator}, checked with 64-seat row masks taken straight from the {@link SeatOccupancy}.
+ * Seats are checked row by row and column by column, so the first broken rule in that order is reported.
+ * Nothing is allocated unless the reservation is rejected.
+ */
+class BitmaskSeatsValidator {
+
+    private static final int WORD_BITS = Long.SIZE;
+
+    public void validate(List<SeatToReserveDto> seatsToReserve, SeatOccupancy occupancy, Room room) {
+
+        if (seatsToReserve.isEmpty()) {
+            throw new NoSeatToReserveException();
+        }
+
+        int rowCount = room.getRowCount();
+        int columnCount = room.getColumnCount();
+
+        int missingRow = Integer.MAX_VALUE;
+        int missingColumn = Integer.MAX_VALUE;
+        int firstRow = Integer.MAX_VALUE;
+        int lastRow = Integer.MIN_VALUE;
+
+        for (int i = 0; i < seatsToReserve.size(); i++) {
+            SeatToReserveDto seat = seatsToReserve.get(i);
+            int row = seat.getRow();
+            int column = seat.getColumn();
+
+            if (row < 1 || row > rowCount || column < 1 || column > columnCount) {
+                if (row < missingRow || (row == missingRow && column < missingColumn)) {
+                    missingRow = row;
+                    missingColumn = column;
+                }
+            } else {
+                firstRow = Math.min(firstRow, row);
+                lastRow = Math.max(lastRow, row);
+            }
+        }
+
+        int wordsInRow = (columnCount + WORD_BITS - 1) / WORD_BITS;
+
+        for (int row = firstRow; row <= lastRow && row <= missingRow; row++) {
+            for (int word = 0; word < wordsInRow; word++) {
+
+                long requested = requestedWord(seatsToReserve, row, word, columnCount);
+                if (requested == 0) {
+                    continue;
+                }
+
+                long reserved = occupancy.rowWord(row, word);
+                long reservedNext = occupancy.rowWord(row, word + 1);
+                long occupied = reserved | requested;
+                long occupiedPrevious = occupancy.rowWord(row, word - 1) | requestedWord(seatsToReserve, row, word - 1, columnCount);
+                long occupiedNext = reservedNext | requestedWord(seatsToReserve, row, word + 1, columnCount);
+
+                long conflicts = requested & reserved;
+
+                // seat two places on the left is taken while the one in between stays free
+                long leftGaps = requested
+                        & (occupied << 2 | occupiedPrevious >>> 62)
+                        & ~(occupied << 1 | occupiedPrevious >>> 63);
+
+                // seat two places on the right is already reserved while the one in between stays free
+                long rightGaps = requested
+                        & (reserved >>> 2 | reservedNext << 62)
+                        & ~(occupied >>> 1 | occupiedNext << 63);
+
+                long violations = conflicts | leftGaps | rightGaps;
+                if (violations == 0) {
+                    continue;
+                }
+
+                long firstViolation = Long.lowestOneBit(violations);
+                int column = word * WORD_BITS + Long.numberOfTrailingZeros(firstViolation) + 1;
+
+                if (row == missingRow && missingColumn < column) {
+                    throw new SeatNotFoundException(missingRow, missingColumn, room.getName());
+                }
+                if ((conflicts & firstViolation) != 0) {
+                    throw new SeatReservedException(row, column);
+                }
+                throw new SeatGapException(row, column);
+            }
+        }
+
+        if (missingRow != Integer.MAX_VALUE) {
+            throw new SeatNotFoundException(missingRow, missingColumn, room.getName());
+        }
+    }
+
+    private static long requestedWord(List<SeatToReserveDto> seatsToReserve, int row, int word, int columnCount) {
+        if (word < 0) {
+            return 0L;
+        }
+
+        int firstColumn = word * WORD_BITS + 1;
+        int lastColumn = Math.min(firstColumn + WORD_BITS - 1, columnCount);
+
+        long mask = 0L;
+        for (int i = 0; i < seatsToReserve.size(); i++) {
+            SeatToReserveDto seat = seatsToReserve.get(i);
+            int column = seat.getColumn();
+            if (seat.getRow() == row && column >= firstColumn && column <= lastColumn) {
+                mask |= 1L << (column - firstColumn);
+            }
+        }
+        return mask;
+    }
+}
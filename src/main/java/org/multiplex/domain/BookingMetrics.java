@@ -0,0 +1,115 @@
+package org.multiplex.domain;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Times the phases of seat bookings and counts bookings rejected in them by exception type.
+ * Seats reserved on every screening booked since the start are exposed as gauges, seats only held are not counted.
+ */
+class BookingMetrics {
+
+    enum Phase {
+        SCREENING_LOOKUP("screening-lookup"),
+        USER_VALIDATION("user-validation"),
+        LOCK("lock"),
+        HOLD_LOOKUP("hold-lookup"),
+        SEAT_LOAD("seat-load"),
+        SEAT_SEARCH("seat-search"),
+        SEAT_VALIDATION("seat-validation"),
+        PRICING("pricing"),
+        SAVE("save");
+
+        private final String tag;
+
+        Phase(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final MeterRegistry registry;
+    private final SeatOccupancyIndex seatOccupancyIndex;
+    private final Map<Phase, Timer> phaseTimers = new EnumMap<>(Phase.class);
+    private final Counter reservations;
+    private final Counter reservedSeats;
+    private final Set<Integer> watchedScreenings = ConcurrentHashMap.newKeySet();
+
+    BookingMetrics(MeterRegistry registry, SeatOccupancyIndex seatOccupancyIndex) {
+        this.registry = registry;
+        this.seatOccupancyIndex = seatOccupancyIndex;
+
+        for (Phase phase : Phase.values()) {
+            phaseTimers.put(phase, Timer.builder("cinema.booking.phase")
+                    .description("Time spent in a phase of seat booking")
+                    .tag("phase", phase.tag)
+                    .register(registry));
+        }
+        this.reservations = Counter.builder("cinema.reservations")
+                .description("Reservations made")
+                .register(registry);
+        this.reservedSeats = Counter.builder("cinema.reservations.seats")
+                .description("Seats reserved")
+                .register(registry);
+    }
+
+    <T> T time(Phase phase, Supplier<T> work) {
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } catch (RuntimeException e) {
+            rejected(phase, e);
+            throw e;
+        } finally {
+            phaseTimers.get(phase).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    void time(Phase phase, Runnable work) {
+        time(phase, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Counts a reservation once it is committed.
+     */
+    void reserved(Reservation reservation) {
+        reservations.increment();
+        reservedSeats.increment(reservation.getReservedSeats().size());
+        watch(reservation.getScreening().getId());
+    }
+
+    private void rejected(Phase phase, RuntimeException e) {
+        registry.counter("cinema.booking.rejections",
+                "phase", phase.tag,
+                "exception", e.getClass().getSimpleName())
+                .increment();
+    }
+
+    private void watch(int screeningId) {
+        if (!watchedScreenings.add(screeningId)) {
+            return;
+        }
+
+        Gauge.builder("cinema.screening.seats.taken", seatOccupancyIndex, index -> {
+            SeatOccupancy occupancy = index.getIfLoaded(screeningId);
+            return occupancy == null
+                    ? Double.NaN
+                    : occupancy.getRowCount() * occupancy.getColumnCount() - occupancy.getFreeCount()
+                    - index.getHeldCount(screeningId);
+        })
+                .description("Seats reserved on the screening, without held ones")
+                .tag("screening", String.valueOf(screeningId))
+                .register(registry);
+    }
+}
@@ -0,0 +1,32 @@
+package org.multiplex.domain;
+
+import org.multiplex.domain.dto.CompactScreeningSeatsInfoDto;
+import org.multiplex.domain.dto.ReservationDto;
+import org.multiplex.domain.dto.ReservationSummaryDto;
+import org.multiplex.domain.dto.ScreeningIdDto;
+import org.multiplex.domain.dto.ScreeningReservationsDto;
+import org.multiplex.domain.dto.ScreeningSeatsInfoDto;
+
+/**
+ * Booking operations of a single node which owns reservations of a part of the screenings.
+ */
+interface BookingNode {
+
+    ReservationSummaryDto reserveSeats(ReservationDto reservationDto);
+
+    ScreeningSeatsInfoDto getScreeningSeatsInfo(ScreeningIdDto screeningId);
+
+    CompactScreeningSeatsInfoDto getCompactScreeningSeatsInfo(ScreeningIdDto screeningId);
+
+    /**
+     * Returns the screening's active reservations, paid ones included, and expires them on this node,
+     * which stops owning the screening.
+     */
+    ScreeningReservationsDto handOffScreening(ScreeningIdDto screeningId);
+
+    /**
+     * Saves reservations handed off by the screening's previous owner. They get new ids on this node,
+     * as ids of the previous owner may already be taken here.
+     */
+    void takeOverScreening(ScreeningReservationsDto screeningReservations);
+}
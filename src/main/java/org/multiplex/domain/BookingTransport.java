@@ -0,0 +1,9 @@
+package org.multiplex.domain;
+
+/**
+ * Sends booking requests to other nodes.
+ */
+interface BookingTransport {
+
+    BookingNode connect(String nodeId);
+}
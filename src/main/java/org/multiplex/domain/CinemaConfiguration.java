@@ -1,14 +1,21 @@
 package org.multiplex.domain;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.file.Paths;
 import java.time.Clock;
-import java.time.Duration;
-import java.time.LocalDate;
-import java.time.LocalTime;
-import java.time.OffsetDateTime;
-import java.time.ZoneOffset;
 
 @Configuration
 class CinemaConfiguration {
@@ -17,45 +24,133 @@ class CinemaConfiguration {
     CinemaService cinemaService(
             ScreeningRepository screeningRepository,
             ReservationRepository reservationRepository,
-            RoomRepository roomRepository,
-            MovieRepository movieRepository) {
+            ScreeningListingCache screeningListingCache,
+            SeatOccupancyIndex seatOccupancyIndex,
+            ScreeningAvailability screeningAvailability,
+            ScreeningLocks screeningLocks,
+            ReservationExpirySweeper reservationExpirySweeper,
+            SeatHolds seatHolds,
+            BookingMetrics bookingMetrics,
+            Clock clock,
+            @Value("${cinema.pricing.rules:}") String pricingRules,
+            @Value("${cinema.pricing.cached-screenings:10000}") int maxCachedPriceTables) {
 
-        addTestData(screeningRepository, roomRepository, movieRepository);
-
-        ReservationPricingPolicy reservationPricingPolicy = new ReservationPricingPolicy();
+        ReservationPricingPolicy reservationPricingPolicy = new ReservationPricingPolicy(PricingRule.parseAll(pricingRules), maxCachedPriceTables);
         UserValidator userValidator = new UserValidator();
-        SeatsValidator seatsValidator = new SeatsValidator();
-        Clock clock = Clock.systemDefaultZone();
+        BitmaskSeatsValidator seatsValidator = new BitmaskSeatsValidator();
+        BestSeatFinder bestSeatFinder = new BestSeatFinder();
+
+        return new CinemaService(screeningRepository, screeningListingCache, reservationRepository, reservationPricingPolicy, userValidator, seatsValidator, bestSeatFinder,
+                seatOccupancyIndex, screeningAvailability, screeningLocks, reservationExpirySweeper, seatHolds, bookingMetrics, clock);
+    }
+
+    @Bean
+    Clock clock() {
+        return Clock.systemDefaultZone();
+    }
+
+    @Bean
+    ScreeningListingCache screeningListingCache(
+            ScreeningRepository screeningRepository,
+            @Value("${cinema.screenings.cache-days:62}") int maxCachedDays) {
+        return new ScreeningListingCache(screeningRepository, maxCachedDays);
+    }
+
+    @Bean
+    SeatOccupancyIndex seatOccupancyIndex(ReservationRepository reservationRepository, Clock clock) {
+        return new SeatOccupancyIndex(reservationRepository, clock);
+    }
 
-        return new CinemaService(screeningRepository, reservationRepository, reservationPricingPolicy, userValidator, seatsValidator, clock);
+    @Bean
+    ScreeningAvailability screeningAvailability(ScreeningRepository screeningRepository, ReservationRepository reservationRepository,
+                                                ScreeningLocks screeningLocks, Clock clock) {
+        return new ScreeningAvailability(screeningRepository, reservationRepository, screeningLocks, clock);
     }
 
-    private void addTestData(ScreeningRepository screeningRepository, RoomRepository roomRepository, MovieRepository movieRepository) {
+    @Bean
+    BookingMetrics bookingMetrics(MeterRegistry meterRegistry, SeatOccupancyIndex seatOccupancyIndex) {
+        return new BookingMetrics(meterRegistry, seatOccupancyIndex);
+    }
 
-        Movie titanic = movieRepository.save(new Movie(0,"Titanic", Duration.ofMinutes(194)));
-        Movie gladiator = movieRepository.save(new Movie(0, "Gladiator", Duration.ofMinutes(171)));
-        Movie forrestGump = movieRepository.save(new Movie(0, "Forrest Gump", Duration.ofMinutes(141)));
+    /**
+     * Replaces the JPA reservation repository with {@link JournalReservationRepository} when {@code cinema.reservations.store=journal}.
+     */
+    @Bean(initMethod = "open", destroyMethod = "close")
+    @Primary
+    @ConditionalOnProperty(name = "cinema.reservations.store", havingValue = "journal")
+    JournalReservationRepository journalReservationRepository(
+            ScreeningRepository screeningRepository,
+            @Value("${cinema.reservations.journal.directory:journal}") String directory,
+            @Value("${cinema.reservations.journal.segment-bytes:16777216}") int segmentBytes,
+            @Value("${cinema.reservations.journal.sync:false}") boolean sync) {
+        return new JournalReservationRepository(screeningRepository, Paths.get(directory), segmentBytes, sync);
+    }
 
-        Room redRoom = roomRepository.save(new Room(0, "Sala czerwona", 20, 20));
-        Room blueRoom = roomRepository.save(new Room(0, "Sala niebieska", 5, 10));
-        Room yellowRoom = roomRepository.save(new Room(0, "Sala żółta", 25, 25));
+    /**
+     * Saves reservations of concurrent bookings in shared transactions when {@code cinema.reservations.group-commit.enabled=true}.
+     */
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    @Primary
+    @ConditionalOnExpression("${cinema.reservations.group-commit.enabled:false} and '${cinema.reservations.store:jpa}' == 'jpa'")
+    GroupCommitReservationRepository groupCommitReservationRepository(
+            @Qualifier("reservationRepository") ReservationRepository reservationRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${cinema.reservations.group-commit.max-wait-millis:2}") long maxWaitMillis,
+            @Value("${cinema.reservations.group-commit.max-batch-size:50}") int maxBatchSize) {
+        return new GroupCommitReservationRepository(reservationRepository, new TransactionTemplate(transactionManager), maxWaitMillis, maxBatchSize);
+    }
 
-        screeningRepository.save(new Screening(0, titanic, redRoom, date("2019-12-15", "09:00")));
-        screeningRepository.save(new Screening(0, gladiator, redRoom, date("2019-12-15", "12:30")));
-        screeningRepository.save(new Screening(0, forrestGump, redRoom, date("2019-12-15", "15:30")));
-        screeningRepository.save(new Screening(0, titanic, redRoom, date("2019-12-15", "18:30")));
-        screeningRepository.save(new Screening(0, gladiator, blueRoom, date("2019-12-15", "09:00")));
-        screeningRepository.save(new Screening(0, forrestGump, blueRoom, date("2019-12-15", "12:00")));
+    /**
+     * Imports the schedule from {@code cinema.schedule.file} once the app is ready, nothing if it is empty,
+     * and then loads seats left of all screenings.
+     */
+    @Bean(destroyMethod = "stop")
+    ScheduleImporter scheduleImporter(
+            ResourceLoader resourceLoader,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ScreeningListingCache screeningListingCache,
+            ScreeningAvailability screeningAvailability,
+            @Value("${cinema.schedule.file:classpath:schedule.csv}") String scheduleFile,
+            @Value("${cinema.schedule.batch-size:1000}") int batchSize) {
+        Resource schedule = scheduleFile.isBlank() ? null : resourceLoader.getResource(scheduleFile);
+        return new ScheduleImporter(schedule, jdbcTemplate, new TransactionTemplate(transactionManager), screeningListingCache,
+                screeningAvailability, batchSize);
+    }
+
+    @Bean
+    ScreeningLocks screeningLocks(@Value("${cinema.reservation.lock-stripes:64}") int lockStripes) {
+        return new ScreeningLocks(lockStripes);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    ReservationExpirySweeper reservationExpirySweeper(
+            ReservationRepository reservationRepository,
+            SeatOccupancyIndex seatOccupancyIndex,
+            ScreeningAvailability screeningAvailability,
+            ScreeningLocks screeningLocks,
+            Clock clock,
+            @Value("${cinema.reservation.expiry-tick-millis:100}") long tickMillis) {
+        return new ReservationExpirySweeper(reservationRepository, seatOccupancyIndex, screeningAvailability, screeningLocks, clock, tickMillis);
+    }
 
-        screeningRepository.save(new Screening(0, titanic, blueRoom, date("2019-12-16", "14:30")));
-        screeningRepository.save(new Screening(0, gladiator, blueRoom, date("2019-12-16", "18:00")));
-        screeningRepository.save(new Screening(0, forrestGump, yellowRoom, date("2019-12-16", "09:30")));
-        screeningRepository.save(new Screening(0, titanic, yellowRoom, date("2019-12-16", "12:00")));
-        screeningRepository.save(new Screening(0, gladiator, yellowRoom, date("2019-12-16", "16:00")));
-        screeningRepository.save(new Screening(0, forrestGump, yellowRoom, date("2019-12-16", "19:00")));
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    SeatHolds seatHolds(
+            SeatOccupancyIndex seatOccupancyIndex,
+            ScreeningLocks screeningLocks,
+            Clock clock,
+            @Value("${cinema.seat-holds.ttl-millis:300000}") long ttlMillis,
+            @Value("${cinema.seat-holds.tick-millis:1000}") long tickMillis) {
+        return new SeatHolds(seatOccupancyIndex, screeningLocks, clock, ttlMillis, tickMillis);
     }
 
-    private OffsetDateTime date(String date, String time) {
-        return OffsetDateTime.of(LocalDate.parse(date), LocalTime.parse(time), ZoneOffset.UTC);
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    SeatMapBroadcaster seatMapBroadcaster(
+            CinemaService cinemaService,
+            SeatOccupancyIndex seatOccupancyIndex,
+            @Value("${cinema.seat-events.dispatch-millis:250}") long dispatchMillis,
+            @Value("${cinema.seat-events.sender-threads:4}") int senderThreads,
+            @Value("${cinema.seat-events.queue-capacity:32}") int queueCapacity) {
+        return new SeatMapBroadcaster(cinemaService, seatOccupancyIndex, dispatchMillis, senderThreads, queueCapacity);
     }
 }
@@ -1,128 +1,397 @@
 package org.multiplex.domain;
 
+import org.multiplex.domain.BookingMetrics.Phase;
 import org.multiplex.domain.dto.AvailableScreeningDto;
+import org.multiplex.domain.dto.BestSeatsReservationDto;
+import org.multiplex.domain.dto.CompactScreeningSeatsInfoDto;
+import org.multiplex.domain.dto.LockStripeStatsDto;
 import org.multiplex.domain.dto.ReservationDto;
 import org.multiplex.domain.dto.ReservationDto.BookingUserDto;
 import org.multiplex.domain.dto.ReservationDto.SeatToReserveDto;
 import org.multiplex.domain.dto.ReservationSummaryDto;
+import org.multiplex.domain.dto.ScreeningCacheStatsDto;
 import org.multiplex.domain.dto.ScreeningIdDto;
+import org.multiplex.domain.dto.ScreeningPageDto;
+import org.multiplex.domain.dto.ScreeningReservationsDto;
+import org.multiplex.domain.dto.ScreeningReservationsDto.HandedOffReservationDto;
+import org.multiplex.domain.dto.ScreeningSeatsChangesDto;
 import org.multiplex.domain.dto.ScreeningSeatsInfoDto;
 import org.multiplex.domain.dto.ScreeningSeatsInfoDto.AvailableSeatDto;
+import org.multiplex.domain.dto.SeatHoldDto;
+import org.multiplex.domain.dto.SeatHoldSummaryDto;
 import org.multiplex.domain.dto.TimeRangeDto;
+import org.multiplex.domain.exception.NoAvailableSeatsException;
+import org.multiplex.domain.exception.NoSeatToReserveException;
 import org.multiplex.domain.exception.ReservationTimeException;
 import org.multiplex.domain.exception.ScreeningNotFoundException;
+import org.multiplex.domain.exception.SeatHoldNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.Clock;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static io.vavr.collection.List.ofAll;
-import static io.vavr.collection.List.rangeClosed;
-import static java.util.Comparator.comparing;
 
-public class CinemaService {
+public class CinemaService implements BookingNode {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CinemaService.class);
+    private static final int MAX_PAGE_SIZE = 500;
 
     private final ScreeningRepository screeningRepository;
+    private final ScreeningListingCache screeningListingCache;
     private final ReservationRepository reservationRepository;
     private final ReservationPricingPolicy reservationPricingPolicy;
     private final UserValidator userValidator;
-    private final SeatsValidator seatsValidator;
+    private final BitmaskSeatsValidator seatsValidator;
+    private final BestSeatFinder bestSeatFinder;
+    private final SeatOccupancyIndex seatOccupancyIndex;
+    private final ScreeningAvailability screeningAvailability;
+    private final ScreeningLocks screeningLocks;
+    private final ReservationExpirySweeper reservationExpirySweeper;
+    private final SeatHolds seatHolds;
+    private final BookingMetrics bookingMetrics;
     private final Clock clock;
 
     CinemaService(ScreeningRepository screeningRepository,
+                  ScreeningListingCache screeningListingCache,
                   ReservationRepository reservationRepository,
                   ReservationPricingPolicy reservationPricingPolicy,
                   UserValidator userValidator,
-                  SeatsValidator seatsValidator, Clock clock) {
+                  BitmaskSeatsValidator seatsValidator,
+                  BestSeatFinder bestSeatFinder,
+                  SeatOccupancyIndex seatOccupancyIndex,
+                  ScreeningAvailability screeningAvailability,
+                  ScreeningLocks screeningLocks,
+                  ReservationExpirySweeper reservationExpirySweeper,
+                  SeatHolds seatHolds,
+                  BookingMetrics bookingMetrics,
+                  Clock clock) {
         this.screeningRepository = screeningRepository;
+        this.screeningListingCache = screeningListingCache;
         this.reservationRepository = reservationRepository;
         this.reservationPricingPolicy = reservationPricingPolicy;
         this.userValidator = userValidator;
         this.seatsValidator = seatsValidator;
+        this.bestSeatFinder = bestSeatFinder;
+        this.seatOccupancyIndex = seatOccupancyIndex;
+        this.screeningAvailability = screeningAvailability;
+        this.screeningLocks = screeningLocks;
+        this.reservationExpirySweeper = reservationExpirySweeper;
+        this.seatHolds = seatHolds;
+        this.bookingMetrics = bookingMetrics;
         this.clock = clock;
     }
 
     public List<AvailableScreeningDto> getAvailableScreenings(TimeRangeDto timeRangeDto) {
 
-        return ofAll(screeningRepository.findByStartScreeningTimeBetween(timeRangeDto.getFrom(), timeRangeDto.getTo()))
-                .map(screening -> AvailableScreeningDto.builder()
-                        .screeningId(screening.getId())
-                        .movieTitle(screening.getMovie().getTitle())
-                        .startScreeningTime(screening.getStartScreeningTime())
-                        .build()
-                )
-                .sorted(comparing(AvailableScreeningDto::getMovieTitle)
-                        .thenComparing(AvailableScreeningDto::getStartScreeningTime))
-                .asJava();
+        return screeningAvailability.withAvailability(
+                screeningListingCache.getAvailableScreenings(timeRangeDto.getFrom(), timeRangeDto.getTo()));
     }
 
+    public ScreeningPageDto getAvailableScreeningsPage(TimeRangeDto timeRangeDto, String cursor, int pageSize) {
+
+        int limit = Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+        // one row more than requested tells whether there is a next page
+        Pageable rows = PageRequest.of(0, limit + 1);
+
+        List<AvailableScreeningDto> screenings;
+        if (cursor == null) {
+            screenings = screeningRepository.findAvailableScreenings(timeRangeDto.getFrom(), timeRangeDto.getTo(), rows);
+        } else {
+            ScreeningCursor after = ScreeningCursor.decode(cursor);
+            screenings = screeningRepository.findAvailableScreeningsAfter(timeRangeDto.getFrom(), timeRangeDto.getTo(),
+                    after.getMovieTitle(), after.getStartScreeningTime(), after.getScreeningId(), rows);
+        }
+
+        if (screenings.size() <= limit) {
+            return ScreeningPageDto.builder()
+                    .screenings(screeningAvailability.withAvailability(screenings))
+                    .build();
+        }
+
+        List<AvailableScreeningDto> page = screeningAvailability.withAvailability(screenings.subList(0, limit));
+        return ScreeningPageDto.builder()
+                .screenings(page)
+                .nextCursor(ScreeningCursor.after(page.get(limit - 1)).encode())
+                .build();
+    }
+
+    /**
+     * Passes screenings to the consumer one by one as they are read from the database cursor.
+     */
+    @Transactional(readOnly = true)
+    public void forEachAvailableScreening(TimeRangeDto timeRangeDto, Consumer<AvailableScreeningDto> consumer) {
+
+        try (Stream<AvailableScreeningDto> screenings = screeningRepository.streamAvailableScreenings(timeRangeDto.getFrom(), timeRangeDto.getTo())) {
+            screenings.forEach(screening -> consumer.accept(screeningAvailability.withAvailability(screening)));
+        }
+    }
+
+    @Override
     public ScreeningSeatsInfoDto getScreeningSeatsInfo(ScreeningIdDto screeningId) {
 
-        Screening screening = screeningRepository.findById(screeningId.getValue());
-        if (screening == null) {
-            LOGGER.error("There is no screening with id {}", screeningId);
-            throw new ScreeningNotFoundException(screeningId.getValue());
+        Screening screening = findScreening(screeningId);
+        return seatMap(screening);
+    }
+
+    public long getSeatMapVersion(ScreeningIdDto screeningId) {
+
+        return seatOccupancyIndex.getVersion(findScreening(screeningId));
+    }
+
+    public ScreeningSeatsChangesDto getScreeningSeatsChanges(ScreeningIdDto screeningId, long sinceVersion) {
+
+        Screening screening = findScreening(screeningId);
+        long version = seatOccupancyIndex.getVersion(screening);
+        List<SeatChangeLog.SeatChange> changes = seatOccupancyIndex.getChangesSince(screening, sinceVersion);
+
+        if (changes == null) {
+            LOGGER.info("Changes of screening {} since version {} are not known, sending whole seat map", screeningId, sinceVersion);
+            return ScreeningSeatsChangesDto.builder()
+                    .screeningId(screening.getId())
+                    .sinceVersion(sinceVersion)
+                    .version(version)
+                    .takenSeats(List.of())
+                    .freedSeats(List.of())
+                    .seatMap(seatMap(screening))
+                    .build();
+        }
+
+        // only the last change of a seat matters
+        Map<Seat, Boolean> lastChanges = new LinkedHashMap<>();
+        for (SeatChangeLog.SeatChange change : changes) {
+            change.getSeats().forEach(seat -> lastChanges.put(seat, change.isReserved()));
+            version = Math.max(version, change.getVersion());
         }
 
-        var reservedSeatsInRoom = getReservedSeats(screeningId.getValue());
+        List<ScreeningSeatsChangesDto.SeatDto> takenSeats = new ArrayList<>();
+        List<ScreeningSeatsChangesDto.SeatDto> freedSeats = new ArrayList<>();
+        lastChanges.forEach((seat, reserved) -> (reserved ? takenSeats : freedSeats).add(ScreeningSeatsChangesDto.SeatDto.builder()
+                .row(seat.getRow())
+                .column(seat.getColumn())
+                .build()));
+
+        return ScreeningSeatsChangesDto.builder()
+                .screeningId(screening.getId())
+                .sinceVersion(sinceVersion)
+                .version(version)
+                .takenSeats(takenSeats)
+                .freedSeats(freedSeats)
+                .build();
+    }
 
-        var allSeatsInRoom = rangeClosed(1, screening.getRoom().getRowCount())
-                .crossProduct(rangeClosed(1, screening.getRoom().getColumnCount()))
-                .map(rowColumn -> new Seat(rowColumn._1, rowColumn._2))
-                .toList();
+    private ScreeningSeatsInfoDto seatMap(Screening screening) {
 
-        var availableSeats = allSeatsInRoom.removeAll(reservedSeatsInRoom)
-                .map(seat -> AvailableSeatDto.builder()
-                        .row(seat.getRow())
-                        .column(seat.getColumn())
-                        .build())
-                .asJava();
+        // read before the seats, so the seat map is never older than its version
+        long version = seatOccupancyIndex.getVersion(screening);
+        SeatOccupancy occupancy = seatOccupancyIndex.get(screening);
+
+        List<AvailableSeatDto> availableSeats = new ArrayList<>(occupancy.getFreeCount());
+        occupancy.forEachAvailable((row, column) -> availableSeats.add(AvailableSeatDto.builder()
+                .row(row)
+                .column(column)
+                .build()));
 
         return ScreeningSeatsInfoDto.builder()
-                .screeningId(screeningId.getValue())
+                .screeningId(screening.getId())
                 .roomName(screening.getRoom().getName())
+                .version(version)
                 .availableSeats(availableSeats)
                 .build();
     }
 
+    @Override
+    public CompactScreeningSeatsInfoDto getCompactScreeningSeatsInfo(ScreeningIdDto screeningId) {
+
+        Screening screening = findScreening(screeningId);
+        long version = seatOccupancyIndex.getVersion(screening);
+        SeatOccupancy occupancy = seatOccupancyIndex.get(screening);
+
+        List<String> rows = new ArrayList<>(occupancy.getRowCount());
+        StringBuilder runs = new StringBuilder();
+        for (int row = 1; row <= occupancy.getRowCount(); row++) {
+            runs.setLength(0);
+            boolean reserved = false;
+            int column = 1;
+            while (column <= occupancy.getColumnCount()) {
+                int runEnd = occupancy.nextColumn(row, column, !reserved);
+                if (runEnd > column) {
+                    runs.append(reserved ? 'R' : 'A').append(runEnd - column);
+                }
+                column = runEnd;
+                reserved = !reserved;
+            }
+            rows.add(runs.toString());
+        }
+
+        return CompactScreeningSeatsInfoDto.builder()
+                .screeningId(screeningId.getValue())
+                .roomName(screening.getRoom().getName())
+                .version(version)
+                .rowCount(occupancy.getRowCount())
+                .columnCount(occupancy.getColumnCount())
+                .availableSeatCount(occupancy.getFreeCount())
+                .rows(rows)
+                .build();
+    }
+
+    @Override
     @Transactional
     public ReservationSummaryDto reserveSeats(ReservationDto reservationDto) {
 
         LOGGER.info("Start making reservation of screening with id: {}", reservationDto.getScreeningId());
 
         int screeningId = reservationDto.getScreeningId();
-        Screening screening = screeningRepository.findById(screeningId);
+        Screening screening = bookingMetrics.time(Phase.SCREENING_LOOKUP, () -> findScreeningToBook(screeningId));
 
-        if (screening == null) {
-            LOGGER.error("There is no screening with id {}", screeningId);
-            throw new ScreeningNotFoundException(screeningId);
-        }
+        BookingUserDto bookingUser = reservationDto.getBookingUser();
+        bookingMetrics.time(Phase.USER_VALIDATION, () -> userValidator.validate(bookingUser));
 
-        if (isReservationTimeInvalid(screening.getStartScreeningTime())) {
-            LOGGER.info("Too late for making reservations on screening {}", screeningId);
-            throw new ReservationTimeException();
+        ScreeningLocks.Stripe stripe = bookingMetrics.time(Phase.LOCK, () -> screeningLocks.lock(screeningId));
+        try {
+
+            return reserve(screening, reservationDto.getSeatsToReserve(), bookingUser);
+
+        } finally {
+            unlockAfterCompletion(stripe);
         }
+    }
+
+    /**
+     * Reserves the best block of seats next to each other which are free at the moment.
+     */
+    @Transactional
+    public ReservationSummaryDto reserveBestSeats(BestSeatsReservationDto reservationDto) {
+
+        LOGGER.info("Start making reservation of best seats of screening with id: {}", reservationDto.getScreeningId());
+
+        int screeningId = reservationDto.getScreeningId();
+        Screening screening = bookingMetrics.time(Phase.SCREENING_LOOKUP, () -> findScreeningToBook(screeningId));
 
         BookingUserDto bookingUser = reservationDto.getBookingUser();
-        userValidator.validate(bookingUser);
+        bookingMetrics.time(Phase.USER_VALIDATION, () -> userValidator.validate(bookingUser));
+
+        List<ReservationDto.ReservationType> reservationTypes = reservationDto.getReservationTypes();
+
+        ScreeningLocks.Stripe stripe = bookingMetrics.time(Phase.LOCK, () -> screeningLocks.lock(screeningId));
+        try {
+
+            SeatOccupancy occupancy = bookingMetrics.time(Phase.SEAT_LOAD, () -> seatOccupancyIndex.get(screening));
+            BestSeatFinder.SeatBlock block = bookingMetrics.time(Phase.SEAT_SEARCH, () -> findBestSeats(occupancy, reservationTypes.size(), screeningId));
+
+            List<SeatToReserveDto> seatsToReserve = new ArrayList<>(reservationTypes.size());
+            for (int i = 0; i < reservationTypes.size(); i++) {
+                seatsToReserve.add(SeatToReserveDto.builder()
+                        .row(block.getRow())
+                        .column(block.getFirstColumn() + i)
+                        .reservationType(reservationTypes.get(i))
+                        .build());
+            }
+
+            return reserve(screening, seatsToReserve, bookingUser);
+
+        } finally {
+            unlockAfterCompletion(stripe);
+        }
+    }
+
+    public SeatHoldSummaryDto holdSeats(SeatHoldDto seatHoldDto) {
+
+        int screeningId = seatHoldDto.getScreeningId();
+        Screening screening = bookingMetrics.time(Phase.SCREENING_LOOKUP, () -> findScreeningToBook(screeningId));
+
+        ScreeningLocks.Stripe stripe = bookingMetrics.time(Phase.LOCK, () -> screeningLocks.lock(screeningId));
+        try {
+
+            SeatOccupancy occupancy = bookingMetrics.time(Phase.SEAT_LOAD, () -> seatOccupancyIndex.get(screening));
+            bookingMetrics.time(Phase.SEAT_VALIDATION, () -> seatsValidator.validate(seatHoldDto.getSeatsToHold(), occupancy, screening.getRoom()));
+
+            SeatHold hold = seatHolds.add(screening, seatHoldDto.getSeatsToHold());
+
+            return SeatHoldSummaryDto.builder()
+                    .holdId(hold.getId())
+                    .expirationTime(hold.getExpirationTime())
+                    .build();
+
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Turns the hold into a reservation of the same seats.
+     */
+    @Transactional
+    public ReservationSummaryDto confirmSeatHold(String holdId, BookingUserDto bookingUser) {
+
+        LOGGER.info("Start confirming seat hold {}", holdId);
+
+        SeatHold hold = bookingMetrics.time(Phase.HOLD_LOOKUP, () -> findSeatHold(holdId));
+        bookingMetrics.time(Phase.USER_VALIDATION, () -> userValidator.validate(bookingUser));
+
+        Screening screening = bookingMetrics.time(Phase.SCREENING_LOOKUP, () -> findScreeningToBook(hold.getScreeningId()));
+
+        ScreeningLocks.Stripe stripe = bookingMetrics.time(Phase.LOCK, () -> screeningLocks.lock(hold.getScreeningId()));
+        try {
+
+            // the hold could have run out or been confirmed while waiting for the lock
+            bookingMetrics.time(Phase.HOLD_LOOKUP, () -> {
+                if (seatHolds.get(holdId) != hold) {
+                    throw new SeatHoldNotFoundException(holdId);
+                }
+            });
+
+            // held seats were validated when they were held and nobody else can take them, so they stay held
+            // until the reservation commits and a failed confirmation leaves the hold as it was
+            ReservationSummaryDto reservationSummary = save(screening, hold.getSeats(), bookingUser);
+            afterCommit(() -> seatHolds.confirm(hold));
+            return reservationSummary;
+
+        } finally {
+            unlockAfterCompletion(stripe);
+        }
+    }
+
+    public void releaseSeatHold(String holdId) {
+
+        SeatHold hold = findSeatHold(holdId);
+
+        ScreeningLocks.Stripe stripe = screeningLocks.lock(hold.getScreeningId());
+        try {
+            seatHolds.release(hold);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    private ReservationSummaryDto reserve(Screening screening, List<SeatToReserveDto> seatsToReserve, BookingUserDto bookingUser) {
 
-        List<SeatToReserveDto> seatsToReserve = reservationDto.getSeatsToReserve();
+        SeatOccupancy occupancy = bookingMetrics.time(Phase.SEAT_LOAD, () -> seatOccupancyIndex.get(screening));
+        bookingMetrics.time(Phase.SEAT_VALIDATION, () -> seatsValidator.validate(seatsToReserve, occupancy, screening.getRoom()));
 
-        seatsValidator.validate(seatsToReserve, getReservedSeats(screeningId), screening.getRoom());
+        return save(screening, seatsToReserve, bookingUser);
+    }
+
+    private ReservationSummaryDto save(Screening screening, List<SeatToReserveDto> seatsToReserve, BookingUserDto bookingUser) {
 
         OffsetDateTime expirationTime = calculateExpirationTime(screening);
 
-        ReservationPricingPolicy.Price totalPrice = ofAll(seatsToReserve)
-                .map(SeatToReserveDto::getReservationType)
-                .map(this::typeFromDto)
-                .map(reservationPricingPolicy::getPrice)
-                .reduce(ReservationPricingPolicy.Price::add);
+        BigDecimal totalCost = bookingMetrics.time(Phase.PRICING, () -> totalCost(screening, seatsToReserve));
 
         Set<ReservedSeat> reservedSeats = ofAll(seatsToReserve)
                 .map(seat ->
@@ -140,20 +409,189 @@ public class CinemaService {
                 .expirationTime(expirationTime)
                 .reservedSeats(reservedSeats)
                 .paid(false)
-                .totalCost(totalPrice.getValue())
+                .totalCost(totalCost)
                 .build();
 
-        reservation = reservationRepository.save(reservation);
+        Reservation saved = bookingMetrics.time(Phase.SAVE, () -> reservationRepository.save(reservation));
+        seatOccupancyIndex.reserve(screening, saved);
+        invalidateOccupancyOnRollback(screening.getId());
+        afterCommit(() -> screeningAvailability.reserved(screening.getId(), reservedSeats.size()));
+        reservationExpirySweeper.schedule(saved);
+        afterCommit(() -> bookingMetrics.reserved(saved));
+
+        List<ReservationSummaryDto.ReservedSeatDto> reservedSeatDtos = new ArrayList<>(seatsToReserve.size());
+        seatsToReserve.forEach(seat -> reservedSeatDtos.add(ReservationSummaryDto.ReservedSeatDto.builder()
+                .row(seat.getRow())
+                .column(seat.getColumn())
+                .reservationType(seat.getReservationType())
+                .build()));
 
         return ReservationSummaryDto.builder()
-                .reservationId(reservation.getId())
+                .reservationId(saved.getId())
                 .expirationTime(expirationTime)
-                .totalCost(totalPrice.getValue())
+                .totalCost(totalCost)
+                .reservedSeats(reservedSeatDtos)
+                .build();
+    }
+
+    private BigDecimal totalCost(Screening screening, List<SeatToReserveDto> seatsToReserve) {
+        ReservationPricingPolicy.PriceTable priceTable = reservationPricingPolicy.getPriceTable(screening);
+
+        long totalMinorUnits = 0;
+        int scale = 0;
+        for (SeatToReserveDto seat : seatsToReserve) {
+            ReservationType type = typeFromDto(seat.getReservationType());
+            totalMinorUnits += priceTable.getPrice(seat.getRow(), type);
+            scale = Math.max(scale, priceTable.getScale(seat.getRow(), type));
+        }
+        // the same value and scale as adding up the seat prices as BigDecimals
+        return BigDecimal.valueOf(totalMinorUnits, 2).setScale(scale, RoundingMode.UNNECESSARY);
+    }
+
+    @Override
+    @Transactional
+    public ScreeningReservationsDto handOffScreening(ScreeningIdDto screeningId) {
+
+        Screening screening = findScreening(screeningId);
+
+        ScreeningLocks.Stripe stripe = screeningLocks.lock(screening.getId());
+        try {
+
+            List<HandedOffReservationDto> reservations = new ArrayList<>();
+            int seatCount = 0;
+            for (Reservation reservation : reservationRepository.findByScreeningId(screening.getId())) {
+                // paid reservations move too, the new owner would sell their seats again otherwise
+                if (!reservation.isExpired() && reservationRepository.markHandedOff(reservation.getId()) > 0) {
+                    reservations.add(handedOff(reservation));
+                    seatCount += reservation.getReservedSeats().size();
+                }
+            }
+            invalidateOccupancyAfterCompletion(screening.getId());
+            int handedOff = seatCount;
+            afterCommit(() -> screeningAvailability.released(screening.getId(), handedOff));
+
+            LOGGER.info("Handed off {} reservations of screening with id: {}", reservations.size(), screening.getId());
+            return ScreeningReservationsDto.builder()
+                    .screeningId(screening.getId())
+                    .reservations(reservations)
+                    .build();
+
+        } finally {
+            unlockAfterCompletion(stripe);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void takeOverScreening(ScreeningReservationsDto screeningReservations) {
+
+        Screening screening = findScreening(ScreeningIdDto.fromInt(screeningReservations.getScreeningId()));
+
+        ScreeningLocks.Stripe stripe = screeningLocks.lock(screening.getId());
+        try {
+
+            int seatCount = 0;
+            for (HandedOffReservationDto reservation : screeningReservations.getReservations()) {
+                // saved under a new id, the one given by the previous owner may be taken on this node
+                Reservation saved = reservationRepository.save(Reservation.builder()
+                        .screening(screening)
+                        .bookingUserName(reservation.getBookingUser().getName())
+                        .bookingUserSurname(reservation.getBookingUser().getSurname())
+                        .expirationTime(reservation.getExpirationTime())
+                        .reservedSeats(ofAll(reservation.getReservedSeats())
+                                .map(seat -> ReservedSeat.builder()
+                                        .row(seat.getRow())
+                                        .column(seat.getColumn())
+                                        .type(typeFromDto(seat.getReservationType()))
+                                        .build())
+                                .toJavaSet())
+                        .paid(reservation.isPaid())
+                        .totalCost(reservation.getTotalCost())
+                        .build());
+                reservationExpirySweeper.schedule(saved);
+                seatCount += saved.getReservedSeats().size();
+            }
+            invalidateOccupancyAfterCompletion(screening.getId());
+            int takenOver = seatCount;
+            afterCommit(() -> screeningAvailability.reserved(screening.getId(), takenOver));
+
+            LOGGER.info("Took over {} reservations of screening with id: {}", screeningReservations.getReservations().size(), screening.getId());
+
+        } finally {
+            unlockAfterCompletion(stripe);
+        }
+    }
+
+    private HandedOffReservationDto handedOff(Reservation reservation) {
+        return HandedOffReservationDto.builder()
+                .bookingUser(BookingUserDto.builder()
+                        .name(reservation.getBookingUserName())
+                        .surname(reservation.getBookingUserSurname())
+                        .build())
+                .expirationTime(reservation.getExpirationTime())
+                .totalCost(reservation.getTotalCost())
+                .paid(reservation.isPaid())
+                .reservedSeats(ofAll(reservation.getReservedSeats())
+                        .map(seat -> ReservationSummaryDto.ReservedSeatDto.builder()
+                                .row(seat.getRow())
+                                .column(seat.getColumn())
+                                .reservationType(typeToDto(seat.getType()))
+                                .build())
+                        .toJavaList())
                 .build();
     }
 
-    private boolean isReservationActive(Reservation reservation) {
-        return reservation.isPaid() || reservation.getExpirationTime().isAfter(OffsetDateTime.now(clock));
+    public List<LockStripeStatsDto> getReservationLockStats() {
+        return screeningLocks.getStats();
+    }
+
+    public ScreeningCacheStatsDto getScreeningCacheStats() {
+        return screeningListingCache.getStats();
+    }
+
+    private Screening findScreeningToBook(int screeningId) {
+        Screening screening = screeningRepository.findById(screeningId);
+        if (screening == null) {
+            LOGGER.error("There is no screening with id {}", screeningId);
+            throw new ScreeningNotFoundException(screeningId);
+        }
+
+        if (isReservationTimeInvalid(screening.getStartScreeningTime())) {
+            LOGGER.info("Too late for booking seats on screening {}", screeningId);
+            throw new ReservationTimeException();
+        }
+        return screening;
+    }
+
+    private BestSeatFinder.SeatBlock findBestSeats(SeatOccupancy occupancy, int seatCount, int screeningId) {
+        if (seatCount == 0) {
+            throw new NoSeatToReserveException();
+        }
+
+        BestSeatFinder.SeatBlock block = bestSeatFinder.find(occupancy, seatCount);
+        if (block == null) {
+            LOGGER.info("There are no {} seats next to each other on screening {}", seatCount, screeningId);
+            throw new NoAvailableSeatsException(seatCount);
+        }
+        return block;
+    }
+
+    private SeatHold findSeatHold(String holdId) {
+        SeatHold hold = seatHolds.get(holdId);
+        if (hold == null) {
+            LOGGER.info("There is no seat hold with id {}", holdId);
+            throw new SeatHoldNotFoundException(holdId);
+        }
+        return hold;
+    }
+
+    private Screening findScreening(ScreeningIdDto screeningId) {
+        Screening screening = screeningRepository.findById(screeningId.getValue());
+        if (screening == null) {
+            LOGGER.error("There is no screening with id {}", screeningId);
+            throw new ScreeningNotFoundException(screeningId.getValue());
+        }
+        return screening;
     }
 
     private boolean isReservationTimeInvalid(OffsetDateTime startScreeningTime) {
@@ -170,12 +608,63 @@ public class CinemaService {
         }
     }
 
-    private io.vavr.collection.List<Seat> getReservedSeats(int screeningId) {
+    private void unlockAfterCompletion(ScreeningLocks.Stripe stripe) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            stripe.unlock();
+            return;
+        }
+
+        // keeps other reservations of the screening waiting until this one is committed or rolled back
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                stripe.unlock();
+            }
+        });
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private void invalidateOccupancyAfterCompletion(int screeningId) {
+        seatOccupancyIndex.invalidate(screeningId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+
+        // seat maps read before the commit must not be kept
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                seatOccupancyIndex.invalidate(screeningId);
+            }
+        });
+    }
+
+    private void invalidateOccupancyOnRollback(int screeningId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
 
-        return ofAll(reservationRepository.findByScreeningId(screeningId))
-                .filter(this::isReservationActive)
-                .flatMap(Reservation::getReservedSeats)
-                .map(reservedSeat -> new Seat(reservedSeat.getRow(), reservedSeat.getColumn()));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    seatOccupancyIndex.invalidate(screeningId);
+                }
+            }
+        });
     }
 
     private ReservationType typeFromDto(ReservationDto.ReservationType reservationType) {
@@ -191,4 +680,18 @@ public class CinemaService {
         LOGGER.error("Unknown reservation type: {}", reservationType);
         throw new IllegalArgumentException("Unknown reservation type: " + reservationType);
     }
+
+    private ReservationDto.ReservationType typeToDto(ReservationType reservationType) {
+        switch (reservationType) {
+            case ADULT:
+                return ReservationDto.ReservationType.ADULT;
+            case STUDENT:
+                return ReservationDto.ReservationType.STUDENT;
+            case CHILD:
+                return ReservationDto.ReservationType.CHILD;
+        }
+
+        LOGGER.error("Unknown reservation type: {}", reservationType);
+        throw new IllegalArgumentException("Unknown reservation type: " + reservationType);
+    }
 }
@@ -0,0 +1,75 @@
+package org.multiplex.domain;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Assigns screenings to nodes by consistent hashing. Every node is placed on the ring {@code virtualNodes} times,
+ * so screenings spread evenly and only about {@code 1/n} of them move to another node when a node joins or leaves.
+ * Rings are immutable, a changed membership gives a new ring.
+ */
+class ConsistentHashRing {
+
+    private final int virtualNodes;
+    private final Set<String> nodes;
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+
+    ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+        this.virtualNodes = virtualNodes;
+        this.nodes = new TreeSet<>(nodes);
+        for (String node : this.nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(node + "#" + i), node);
+            }
+        }
+    }
+
+    ConsistentHashRing withNode(String node) {
+        Set<String> changed = new TreeSet<>(nodes);
+        changed.add(node);
+        return new ConsistentHashRing(changed, virtualNodes);
+    }
+
+    ConsistentHashRing withoutNode(String node) {
+        Set<String> changed = new TreeSet<>(nodes);
+        changed.remove(node);
+        return new ConsistentHashRing(changed, virtualNodes);
+    }
+
+    String ownerOf(int screeningId) {
+        if (ring.isEmpty()) {
+            throw new IllegalStateException("There are no nodes to own screening with id " + screeningId);
+        }
+
+        Map.Entry<Long, String> owner = ring.ceilingEntry(mix(screeningId));
+        return owner != null ? owner.getValue() : ring.firstEntry().getValue();
+    }
+
+    Set<String> getNodes() {
+        return nodes;
+    }
+
+    private static long hash(String value) {
+        // FNV-1a spread by the murmur finalizer
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,220 @@
+package org.multiplex.domain;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves reservations of concurrent callers together: the first save waits up to {@code maxWaitMillis} for others
+ * and all of them are inserted in one transaction, which lets Hibernate send them as JDBC batches.
+ * Every caller still waits for its own reservation to be committed. If the batch fails, its reservations are saved
+ * one by one, so only the caller whose reservation cannot be saved gets the error.
+ * <p>
+ * The batch is committed by the writer thread apart from the caller's transaction. If the caller's transaction rolls
+ * back afterwards, the reservation is expired again in a new transaction, so its seats are taken only in between.
+ * Callers booking the same screening are serialized by its lock, so a batch combines bookings of different screenings.
+ */
+class GroupCommitReservationRepository implements ReservationRepository {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GroupCommitReservationRepository.class);
+
+    private final ReservationRepository delegate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate newTransaction;
+    private final long maxWaitMillis;
+    private final int maxBatchSize;
+    private final BlockingQueue<PendingSave> pending = new LinkedBlockingQueue<>();
+
+    private Thread writer;
+
+    GroupCommitReservationRepository(ReservationRepository delegate, TransactionTemplate transactionTemplate, long maxWaitMillis, int maxBatchSize) {
+        this.delegate = delegate;
+        this.transactionTemplate = transactionTemplate;
+        // the caller's transaction has completed, but its resources are still bound to the thread
+        this.newTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.maxWaitMillis = maxWaitMillis;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    void start() {
+        writer = new Thread(this::writeBatches, "reservation-group-commit");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    void stop() {
+        if (writer != null) {
+            writer.interrupt();
+        }
+    }
+
+    @Override
+    public Reservation save(Reservation reservation) {
+        PendingSave save = new PendingSave(reservation);
+        pending.add(save);
+
+        Reservation saved;
+        try {
+            saved = save.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for reservation to be saved", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new ExpireOnRollback(saved.getId()));
+        }
+        return saved;
+    }
+
+    @Override
+    public List<Reservation> findByScreeningId(int screeningId) {
+        return delegate.findByScreeningId(screeningId);
+    }
+
+    @Override
+    public List<Seat> findActiveReservedSeats(int screeningId) {
+        return delegate.findActiveReservedSeats(screeningId);
+    }
+
+    @Override
+    public List<ScreeningSeatCount> countActiveReservedSeats() {
+        return delegate.countActiveReservedSeats();
+    }
+
+    @Override
+    public List<Seat> findReservedSeats(int reservationId) {
+        return delegate.findReservedSeats(reservationId);
+    }
+
+    @Override
+    public List<ReservationExpiry> findPendingExpiries() {
+        return delegate.findPendingExpiries();
+    }
+
+    @Override
+    public int markExpired(int reservationId) {
+        return delegate.markExpired(reservationId);
+    }
+
+    @Override
+    public int markHandedOff(int reservationId) {
+        return delegate.markHandedOff(reservationId);
+    }
+
+    /**
+     * Collects pending saves for up to {@code maxWaitMillis} or {@code maxBatchSize} reservations and commits them.
+     * Returns the number of reservations saved.
+     */
+    int writeBatch() throws InterruptedException {
+        PendingSave first = pending.take();
+
+        List<PendingSave> batch = new ArrayList<>(maxBatchSize);
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        while (batch.size() < maxBatchSize) {
+            PendingSave next = pending.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+            pending.drainTo(batch, maxBatchSize - batch.size());
+        }
+
+        commit(batch);
+        return batch.size();
+    }
+
+    private void writeBatches() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                writeBatch();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                LOGGER.error("Reservation group commit failed", e);
+            }
+        }
+    }
+
+    private void commit(List<PendingSave> batch) {
+        List<Reservation> saved;
+        try {
+            saved = transactionTemplate.execute(status -> {
+                List<Reservation> reservations = new ArrayList<>(batch.size());
+                batch.forEach(save -> reservations.add(delegate.save(save.reservation)));
+                return reservations;
+            });
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).result.completeExceptionally(e);
+                return;
+            }
+            LOGGER.warn("Batch of {} reservations failed, saving them one by one", batch.size(), e);
+            batch.forEach(save -> commit(List.of(save)));
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).result.complete(saved.get(i));
+        }
+    }
+
+    /**
+     * Runs before other synchronizations, so seats reloaded after the caller's rollback are already free.
+     */
+    private class ExpireOnRollback implements TransactionSynchronization, Ordered {
+
+        private final int reservationId;
+
+        ExpireOnRollback(int reservationId) {
+            this.reservationId = reservationId;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (status != STATUS_ROLLED_BACK) {
+                return;
+            }
+            try {
+                newTransaction.executeWithoutResult(transaction -> delegate.markHandedOff(reservationId));
+                LOGGER.info("Expired reservation with id: {}, the booking which saved it rolled back", reservationId);
+            } catch (RuntimeException e) {
+                LOGGER.error("Cannot expire reservation with id: {} of a rolled back booking", reservationId, e);
+            }
+        }
+    }
+
+    private static class PendingSave {
+
+        private final Reservation reservation;
+        private final CompletableFuture<Reservation> result = new CompletableFuture<>();
+
+        PendingSave(Reservation reservation) {
+            this.reservation = reservation;
+        }
+    }
+}
@@ -0,0 +1,616 @@
+package org.multiplex.domain;
+
+import lombok.Builder;
+import lombok.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps reservations in memory and appends every saved reservation and every expiry to a journal of memory-mapped
+ * segment files. When a segment is full the whole state is written to a snapshot and older segments are deleted,
+ * so recovery reads the latest snapshot and replays at most one segment.
+ * <p>
+ * Records are written right away rather than when the database transaction commits. If the transaction rolls back,
+ * the reservations it saved or expired get their previous state back with further records, unless they were changed
+ * again by someone else meanwhile; reservations it saved are expired.
+ */
+class JournalReservationRepository implements ReservationRepository {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JournalReservationRepository.class);
+
+    private static final Pattern SEGMENT_FILE = Pattern.compile("segment-(\\d+)\\.log");
+    private static final Pattern SNAPSHOT_FILE = Pattern.compile("snapshot-(\\d+)\\.bin");
+
+    private static final byte RESERVATION_SAVED = 1;
+    private static final byte RESERVATION_EXPIRED = 2;
+
+    // record length and CRC32 of the record
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int MIN_SEGMENT_BYTES = 64 * 1024;
+
+    private final ScreeningRepository screeningRepository;
+    private final Path directory;
+    private final int segmentBytes;
+    private final boolean sync;
+
+    private final Map<Integer, StoredReservation> reservations = new ConcurrentHashMap<>();
+    private final Map<Integer, Set<Integer>> reservationsByScreening = new ConcurrentHashMap<>();
+
+    // guarded by this
+    private int nextId = 1;
+    private long segmentIndex;
+    private FileChannel segmentChannel;
+    private MappedByteBuffer segment;
+
+    JournalReservationRepository(ScreeningRepository screeningRepository, Path directory, int segmentBytes, boolean sync) {
+        this.screeningRepository = screeningRepository;
+        this.directory = directory;
+        this.segmentBytes = Math.max(segmentBytes, MIN_SEGMENT_BYTES);
+        this.sync = sync;
+    }
+
+    synchronized void open() throws IOException {
+        Files.createDirectories(directory);
+
+        TreeMap<Long, Path> snapshots = files(SNAPSHOT_FILE);
+        long firstSegment = 0;
+        if (!snapshots.isEmpty()) {
+            firstSegment = snapshots.lastKey();
+            readSnapshot(snapshots.lastEntry().getValue());
+        }
+
+        TreeMap<Long, Path> segments = files(SEGMENT_FILE);
+        int records = 0;
+        for (Map.Entry<Long, Path> entry : segments.tailMap(firstSegment).entrySet()) {
+            openSegment(entry.getKey());
+            records += replaySegment();
+        }
+        if (segment == null) {
+            openSegment(firstSegment);
+        }
+
+        LOGGER.info("Recovered {} reservations from journal {}, replayed {} records of {} segments",
+                reservations.size(), directory, records, segments.tailMap(firstSegment).size());
+    }
+
+    synchronized void close() throws IOException {
+        if (segment != null) {
+            segment.force();
+            segmentChannel.close();
+            segment = null;
+        }
+    }
+
+    @Override
+    public synchronized Reservation save(Reservation reservation) {
+        int id = reservation.getId() != 0 ? reservation.getId() : nextId;
+
+        StoredReservation stored = StoredReservation.builder()
+                .id(id)
+                .screeningId(reservation.getScreening().getId())
+                .bookingUserName(reservation.getBookingUserName())
+                .bookingUserSurname(reservation.getBookingUserSurname())
+                .expirationTime(reservation.getExpirationTime())
+                .reservedSeats(reservation.getReservedSeats() != null ? Set.copyOf(reservation.getReservedSeats()) : Set.of())
+                .paid(reservation.isPaid())
+                .expired(reservation.isExpired())
+                .totalCost(reservation.getTotalCost())
+                .build();
+
+        append(encode(RESERVATION_SAVED, stored));
+        StoredReservation previous = reservations.get(id);
+        apply(stored);
+        undoOnRollback(previous, stored);
+
+        return stored.toReservation(reservation.getScreening());
+    }
+
+    @Override
+    public List<Reservation> findByScreeningId(int screeningId) {
+        Screening screening = screeningRepository.findById(screeningId);
+        return reservationsOf(screeningId).stream()
+                .map(stored -> stored.toReservation(screening))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Seat> findActiveReservedSeats(int screeningId) {
+        List<Seat> seats = new ArrayList<>();
+        for (StoredReservation stored : reservationsOf(screeningId)) {
+            if (!stored.isExpired()) {
+                stored.getReservedSeats().forEach(seat -> seats.add(new Seat(seat.getRow(), seat.getColumn())));
+            }
+        }
+        return seats;
+    }
+
+    @Override
+    public List<ScreeningSeatCount> countActiveReservedSeats() {
+        Map<Integer, Long> seatCounts = new HashMap<>();
+        for (StoredReservation stored : reservations.values()) {
+            if (!stored.isExpired()) {
+                seatCounts.merge(stored.getScreeningId(), (long) stored.getReservedSeats().size(), Long::sum);
+            }
+        }
+
+        List<ScreeningSeatCount> counts = new ArrayList<>(seatCounts.size());
+        seatCounts.forEach((screeningId, seatCount) -> counts.add(new ScreeningSeatCount(screeningId, seatCount)));
+        return counts;
+    }
+
+    @Override
+    public List<Seat> findReservedSeats(int reservationId) {
+        StoredReservation stored = reservations.get(reservationId);
+        if (stored == null) {
+            return List.of();
+        }
+        List<Seat> seats = new ArrayList<>(stored.getReservedSeats().size());
+        stored.getReservedSeats().forEach(seat -> seats.add(new Seat(seat.getRow(), seat.getColumn())));
+        return seats;
+    }
+
+    @Override
+    public List<ReservationExpiry> findPendingExpiries() {
+        List<ReservationExpiry> expiries = new ArrayList<>();
+        for (StoredReservation stored : reservations.values()) {
+            if (!stored.isPaid() && !stored.isExpired()) {
+                expiries.add(new ReservationExpiry(stored.getId(), stored.getScreeningId(), stored.getExpirationTime()));
+            }
+        }
+        return expiries;
+    }
+
+    @Override
+    public synchronized int markExpired(int reservationId) {
+        StoredReservation stored = reservations.get(reservationId);
+        if (stored == null || stored.isPaid()) {
+            return 0;
+        }
+        return expireUndoingOnRollback(stored);
+    }
+
+    @Override
+    public synchronized int markHandedOff(int reservationId) {
+        StoredReservation stored = reservations.get(reservationId);
+        if (stored == null) {
+            return 0;
+        }
+        return expireUndoingOnRollback(stored);
+    }
+
+    private int expireUndoingOnRollback(StoredReservation stored) {
+        if (stored.isExpired()) {
+            return 0;
+        }
+        undoOnRollback(stored, expire(stored));
+        return 1;
+    }
+
+    private StoredReservation expire(StoredReservation stored) {
+        append(encodeExpired(stored.getId()));
+        StoredReservation expired = stored.toBuilder().expired(true).build();
+        reservations.put(stored.getId(), expired);
+        return expired;
+    }
+
+    private void undoOnRollback(StoredReservation previous, StoredReservation written) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+
+        // synchronizations of a suspended transaction are not listed, so changes of an inner one are kept apart
+        UndoOnRollback undo = null;
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof UndoOnRollback && ((UndoOnRollback) synchronization).journal() == this) {
+                undo = (UndoOnRollback) synchronization;
+            }
+        }
+        if (undo == null) {
+            undo = new UndoOnRollback();
+            TransactionSynchronizationManager.registerSynchronization(undo);
+        }
+        undo.changes.add(new Change(previous, written));
+    }
+
+    private synchronized void undo(Change change) {
+        StoredReservation written = change.written;
+        if (reservations.get(written.getId()) != written) {
+            return;
+        }
+
+        if (change.previous != null) {
+            append(encode(RESERVATION_SAVED, change.previous));
+            apply(change.previous);
+        } else if (!written.isExpired()) {
+            expire(written);
+        }
+    }
+
+    private List<StoredReservation> reservationsOf(int screeningId) {
+        Set<Integer> ids = reservationsByScreening.getOrDefault(screeningId, Set.of());
+        List<StoredReservation> stored = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            StoredReservation reservation = reservations.get(id);
+            if (reservation != null) {
+                stored.add(reservation);
+            }
+        }
+        return stored;
+    }
+
+    private void apply(StoredReservation stored) {
+        StoredReservation previous = reservations.put(stored.getId(), stored);
+        if (previous != null && previous.getScreeningId() != stored.getScreeningId()) {
+            reservationsByScreening.get(previous.getScreeningId()).remove(stored.getId());
+        }
+        reservationsByScreening.computeIfAbsent(stored.getScreeningId(), id -> ConcurrentHashMap.newKeySet()).add(stored.getId());
+        nextId = Math.max(nextId, stored.getId() + 1);
+    }
+
+    private void append(byte[] record) {
+        if (RECORD_HEADER_BYTES + record.length > segment.capacity()) {
+            throw new IllegalArgumentException("Record of " + record.length + " bytes does not fit into a journal segment");
+        }
+        // a zero length after the last record marks the end of the segment
+        if (segment.remaining() < RECORD_HEADER_BYTES + record.length + 4) {
+            rotate();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        segment.putInt(record.length);
+        segment.putInt((int) crc.getValue());
+        segment.put(record);
+        if (sync) {
+            segment.force();
+        }
+    }
+
+    private void rotate() {
+        try {
+            segment.force();
+            segmentChannel.close();
+
+            long nextSegment = segmentIndex + 1;
+            writeSnapshot(nextSegment);
+            openSegment(nextSegment);
+
+            for (Map.Entry<Long, Path> entry : files(SEGMENT_FILE).headMap(nextSegment).entrySet()) {
+                Files.delete(entry.getValue());
+            }
+            for (Map.Entry<Long, Path> entry : files(SNAPSHOT_FILE).headMap(nextSegment).entrySet()) {
+                Files.delete(entry.getValue());
+            }
+            LOGGER.info("Journal rotated to segment {} with a snapshot of {} reservations", nextSegment, reservations.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot rotate reservation journal " + directory, e);
+        }
+    }
+
+    private void openSegment(long index) throws IOException {
+        Path path = directory.resolve(String.format("segment-%016d.log", index));
+        long size = Files.exists(path) ? Math.max(Files.size(path), segmentBytes) : segmentBytes;
+
+        segmentChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = segmentChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        segmentIndex = index;
+    }
+
+    /**
+     * Applies records of the open segment and leaves its position after the last complete one.
+     */
+    private int replaySegment() throws IOException {
+        int records = 0;
+        while (segment.remaining() >= RECORD_HEADER_BYTES) {
+            int start = segment.position();
+            int length = segment.getInt();
+            int checksum = segment.getInt();
+            if (length == 0) {
+                segment.position(start);
+                break;
+            }
+            if (length < 0 || length > segment.remaining()) {
+                LOGGER.warn("Torn record at {} of journal segment {}, ignoring the rest of it", start, segmentIndex);
+                discardTail(start);
+                break;
+            }
+
+            byte[] record = new byte[length];
+            segment.get(record);
+            CRC32 crc = new CRC32();
+            crc.update(record);
+            if ((int) crc.getValue() != checksum) {
+                LOGGER.warn("Torn record at {} of journal segment {}, ignoring the rest of it", start, segmentIndex);
+                discardTail(start);
+                break;
+            }
+
+            replay(record);
+            records++;
+        }
+        return records;
+    }
+
+    // zeroes what is left of a torn write, so records appended after it are not followed by its remains
+    private void discardTail(int start) {
+        segment.position(start);
+        while (segment.hasRemaining()) {
+            segment.put((byte) 0);
+        }
+        segment.position(start);
+    }
+
+    private void replay(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        byte type = in.readByte();
+        if (type == RESERVATION_SAVED) {
+            apply(readReservation(in));
+        } else if (type == RESERVATION_EXPIRED) {
+            reservations.computeIfPresent(in.readInt(), (id, stored) -> stored.toBuilder().expired(true).build());
+        } else {
+            throw new IllegalStateException("Unknown journal record type " + type + " in segment " + segmentIndex);
+        }
+    }
+
+    private void writeSnapshot(long beforeSegment) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(nextId);
+        out.writeInt(reservations.size());
+        for (StoredReservation stored : reservations.values()) {
+            writeReservation(out, stored);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeLong(crc.getValue());
+
+        Path snapshot = directory.resolve(String.format("snapshot-%016d.bin", beforeSegment));
+        Path temporary = directory.resolve(snapshot.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(bytes.toByteArray()));
+            channel.force(true);
+        }
+        Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void readSnapshot(Path snapshot) throws IOException {
+        byte[] bytes = Files.readAllBytes(snapshot);
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, Math.max(0, bytes.length - Long.BYTES));
+        if (bytes.length < Long.BYTES || ByteBuffer.wrap(bytes, bytes.length - Long.BYTES, Long.BYTES).getLong() != crc.getValue()) {
+            throw new IllegalStateException("Journal snapshot " + snapshot + " is damaged");
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        int snapshotNextId = in.readInt();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            apply(readReservation(in));
+        }
+        nextId = Math.max(nextId, snapshotNextId);
+    }
+
+    private TreeMap<Long, Path> files(Pattern pattern) throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (Stream<Path> paths = Files.list(directory)) {
+            paths.forEach(path -> {
+                Matcher matcher = pattern.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    files.put(Long.parseLong(matcher.group(1)), path);
+                }
+            });
+        }
+        return files;
+    }
+
+    private static byte[] encode(byte type, StoredReservation stored) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + stored.getReservedSeats().size() * 9);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(type);
+            writeReservation(out, stored);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] encodeExpired(int reservationId) {
+        return ByteBuffer.allocate(1 + Integer.BYTES)
+                .put(RESERVATION_EXPIRED)
+                .putInt(reservationId)
+                .array();
+    }
+
+    private static void writeReservation(DataOutputStream out, StoredReservation stored) throws IOException {
+        out.writeInt(stored.getId());
+        out.writeInt(stored.getScreeningId());
+        writeString(out, stored.getBookingUserName());
+        writeString(out, stored.getBookingUserSurname());
+
+        OffsetDateTime expirationTime = stored.getExpirationTime();
+        out.writeBoolean(expirationTime != null);
+        if (expirationTime != null) {
+            out.writeLong(expirationTime.toEpochSecond());
+            out.writeInt(expirationTime.getNano());
+            out.writeInt(expirationTime.getOffset().getTotalSeconds());
+        }
+
+        out.writeBoolean(stored.isPaid());
+        out.writeBoolean(stored.isExpired());
+
+        BigDecimal totalCost = stored.getTotalCost();
+        out.writeBoolean(totalCost != null);
+        if (totalCost != null) {
+            byte[] unscaled = totalCost.unscaledValue().toByteArray();
+            out.writeInt(totalCost.scale());
+            out.writeByte(unscaled.length);
+            out.write(unscaled);
+        }
+
+        out.writeInt(stored.getReservedSeats().size());
+        for (ReservedSeat seat : stored.getReservedSeats()) {
+            out.writeInt(seat.getRow());
+            out.writeInt(seat.getColumn());
+            out.writeByte(seat.getType() != null ? seat.getType().ordinal() : -1);
+        }
+    }
+
+    private static StoredReservation readReservation(DataInputStream in) throws IOException {
+        StoredReservation.StoredReservationBuilder stored = StoredReservation.builder()
+                .id(in.readInt())
+                .screeningId(in.readInt())
+                .bookingUserName(readString(in))
+                .bookingUserSurname(readString(in));
+
+        if (in.readBoolean()) {
+            long epochSecond = in.readLong();
+            int nano = in.readInt();
+            ZoneOffset offset = ZoneOffset.ofTotalSeconds(in.readInt());
+            stored.expirationTime(OffsetDateTime.ofInstant(Instant.ofEpochSecond(epochSecond, nano), offset));
+        }
+
+        stored.paid(in.readBoolean());
+        stored.expired(in.readBoolean());
+
+        if (in.readBoolean()) {
+            int scale = in.readInt();
+            byte[] unscaled = new byte[in.readByte()];
+            in.readFully(unscaled);
+            stored.totalCost(new BigDecimal(new BigInteger(unscaled), scale));
+        }
+
+        int seatCount = in.readInt();
+        Set<ReservedSeat> seats = new HashSet<>(seatCount * 2);
+        for (int i = 0; i < seatCount; i++) {
+            int row = in.readInt();
+            int column = in.readInt();
+            byte type = in.readByte();
+            seats.add(ReservedSeat.builder()
+                    .row(row)
+                    .column(column)
+                    .type(type >= 0 ? ReservationType.values()[type] : null)
+                    .build());
+        }
+        return stored.reservedSeats(Set.copyOf(seats)).build();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    @Value
+    @Builder(toBuilder = true)
+    private static class StoredReservation {
+        private int id;
+        private int screeningId;
+        private String bookingUserName;
+        private String bookingUserSurname;
+        private OffsetDateTime expirationTime;
+        private Set<ReservedSeat> reservedSeats;
+        private boolean paid;
+        private boolean expired;
+        private BigDecimal totalCost;
+
+        Reservation toReservation(Screening screening) {
+            return Reservation.builder()
+                    .id(id)
+                    .screening(screening)
+                    .bookingUserName(bookingUserName)
+                    .bookingUserSurname(bookingUserSurname)
+                    .expirationTime(expirationTime)
+                    .reservedSeats(reservedSeats)
+                    .paid(paid)
+                    .expired(expired)
+                    .totalCost(totalCost)
+                    .build();
+        }
+    }
+
+    /**
+     * Changes of one transaction, undone newest first when it rolls back. Runs before other synchronizations,
+     * so seats reloaded after the rollback are already free again.
+     */
+    private class UndoOnRollback implements TransactionSynchronization, Ordered {
+
+        private final List<Change> changes = new ArrayList<>();
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+
+        JournalReservationRepository journal() {
+            return JournalReservationRepository.this;
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (status != STATUS_ROLLED_BACK) {
+                return;
+            }
+            try {
+                for (int i = changes.size() - 1; i >= 0; i--) {
+                    undo(changes.get(i));
+                }
+                LOGGER.info("Undid {} journal changes of a rolled back transaction", changes.size());
+            } catch (RuntimeException e) {
+                LOGGER.error("Cannot undo journal changes of a rolled back transaction", e);
+            }
+        }
+    }
+
+    private static class Change {
+
+        private final StoredReservation previous;
+        private final StoredReservation written;
+
+        Change(StoredReservation previous, StoredReservation written) {
+            this.previous = previous;
+            this.written = written;
+        }
+    }
+
+}
@@ -0,0 +1,29 @@
+package org.multiplex.domain;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Transport to nodes running in the same JVM, calling them directly.
+ */
+class LocalBookingTransport implements BookingTransport {
+
+    private final Map<String, BookingNode> nodes = new ConcurrentHashMap<>();
+
+    void register(String nodeId, BookingNode node) {
+        nodes.put(nodeId, node);
+    }
+
+    void unregister(String nodeId) {
+        nodes.remove(nodeId);
+    }
+
+    @Override
+    public BookingNode connect(String nodeId) {
+        BookingNode node = nodes.get(nodeId);
+        if (node == null) {
+            throw new IllegalStateException("Node " + nodeId + " is not available");
+        }
+        return node;
+    }
+}
@@ -0,0 +1,158 @@
+package org.multiplex.domain;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Changes seat prices of matching screenings, rows and reservation types. Written as
+ * {@code conditions -> action}, e.g. {@code day=SATURDAY|SUNDAY,time=18:00-23:00 -> +3.00}.
+ * <p>
+ * Conditions, all of which have to match: {@code room} and {@code movie} by name, {@code day} of the week and
+ * {@code time} range (end excluded) of the screening start, {@code rows} like {@code 1-3} and reservation {@code type}.
+ * {@code *} matches everything. Actions: {@code +amount} and {@code -amount} change the price, {@code =amount} sets it.
+ */
+class PricingRule {
+
+    private enum Action {
+        ADD, SET
+    }
+
+    private final String room;
+    private final String movie;
+    private final Set<DayOfWeek> days;
+    private final LocalTime fromTime;
+    private final LocalTime toTime;
+    private final int firstRow;
+    private final int lastRow;
+    private final Set<ReservationType> types;
+    private final Action action;
+    private final int amount;
+
+    private PricingRule(String room, String movie, Set<DayOfWeek> days, LocalTime fromTime, LocalTime toTime,
+                        int firstRow, int lastRow, Set<ReservationType> types, Action action, int amount) {
+        this.room = room;
+        this.movie = movie;
+        this.days = days;
+        this.fromTime = fromTime;
+        this.toTime = toTime;
+        this.firstRow = firstRow;
+        this.lastRow = lastRow;
+        this.types = types;
+        this.action = action;
+        this.amount = amount;
+    }
+
+    /**
+     * Parses rules separated by {@code ;}.
+     */
+    static List<PricingRule> parseAll(String rules) {
+        List<PricingRule> parsed = new ArrayList<>();
+        for (String rule : rules.split(";")) {
+            if (!rule.isBlank()) {
+                parsed.add(parse(rule.strip()));
+            }
+        }
+        return parsed;
+    }
+
+    static PricingRule parse(String rule) {
+        int arrow = rule.indexOf("->");
+        if (arrow < 0) {
+            throw new IllegalArgumentException("Pricing rule has no action: " + rule);
+        }
+
+        String room = null;
+        String movie = null;
+        Set<DayOfWeek> days = EnumSet.allOf(DayOfWeek.class);
+        LocalTime fromTime = LocalTime.MIN;
+        LocalTime toTime = null;
+        int firstRow = 1;
+        int lastRow = Integer.MAX_VALUE;
+        Set<ReservationType> types = EnumSet.allOf(ReservationType.class);
+
+        try {
+            String conditions = rule.substring(0, arrow).strip();
+            for (String condition : conditions.equals("*") ? new String[0] : conditions.split(",")) {
+                String[] keyAndValue = condition.split("=", 2);
+                if (keyAndValue.length != 2) {
+                    throw new IllegalArgumentException("Condition is not key=value: " + condition);
+                }
+                String value = keyAndValue[1].strip();
+                switch (keyAndValue[0].strip()) {
+                    case "room":
+                        room = value;
+                        break;
+                    case "movie":
+                        movie = value;
+                        break;
+                    case "day":
+                        days = EnumSet.noneOf(DayOfWeek.class);
+                        for (String day : value.split("\\|")) {
+                            days.add(DayOfWeek.valueOf(day.strip().toUpperCase()));
+                        }
+                        break;
+                    case "time":
+                        String[] times = value.split("-");
+                        fromTime = LocalTime.parse(times[0].strip());
+                        toTime = LocalTime.parse(times[1].strip());
+                        break;
+                    case "rows":
+                        String[] rows = value.split("-");
+                        firstRow = Integer.parseInt(rows[0].strip());
+                        lastRow = Integer.parseInt(rows[rows.length - 1].strip());
+                        break;
+                    case "type":
+                        types = EnumSet.noneOf(ReservationType.class);
+                        for (String type : value.split("\\|")) {
+                            types.add(ReservationType.valueOf(type.strip().toUpperCase()));
+                        }
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown condition: " + condition);
+                }
+            }
+
+            String action = rule.substring(arrow + 2).strip();
+            int amount = new BigDecimal(action.substring(1).strip()).movePointRight(2).intValueExact();
+            switch (action.charAt(0)) {
+                case '+':
+                    return new PricingRule(room, movie, days, fromTime, toTime, firstRow, lastRow, types, Action.ADD, amount);
+                case '-':
+                    return new PricingRule(room, movie, days, fromTime, toTime, firstRow, lastRow, types, Action.ADD, -amount);
+                case '=':
+                    return new PricingRule(room, movie, days, fromTime, toTime, firstRow, lastRow, types, Action.SET, amount);
+                default:
+                    throw new IllegalArgumentException("Unknown action: " + action);
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid pricing rule '" + rule + "': " + e.getMessage(), e);
+        }
+    }
+
+    boolean appliesTo(Screening screening) {
+        OffsetDateTime start = screening.getStartScreeningTime();
+        LocalTime startTime = start.toLocalTime();
+        return (room == null || room.equals(screening.getRoom().getName()))
+                && (movie == null || movie.equals(screening.getMovie().getTitle()))
+                && days.contains(start.getDayOfWeek())
+                && !startTime.isBefore(fromTime)
+                && (toTime == null || startTime.isBefore(toTime));
+    }
+
+    boolean appliesTo(int row, ReservationType type) {
+        return row >= firstRow && row <= lastRow && types.contains(type);
+    }
+
+    /**
+     * Returns the price in minor units changed by this rule.
+     */
+    int apply(int price) {
+        return action == Action.SET ? amount : price + amount;
+    }
+}
@@ -9,23 +9,30 @@ import lombok.Value;
 import javax.persistence.CascadeType;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
 import java.util.Set;
 
 @Entity
+@Table(indexes = @Index(name = "idx_reservation_screening", columnList = "fk_screening_id, expired"))
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
 @Getter
 class Reservation {
 
+    // ids are taken from the sequence in blocks, so inserts of many reservations can be batched
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reservation_sequence")
+    @SequenceGenerator(name = "reservation_sequence", sequenceName = "reservation_sequence", allocationSize = 50)
     private int id;
 
     @ManyToOne
@@ -41,6 +48,7 @@ class Reservation {
     private Set<ReservedSeat> reservedSeats;
 
     private boolean paid;
+    private boolean expired;
     private BigDecimal totalCost;
 }
 
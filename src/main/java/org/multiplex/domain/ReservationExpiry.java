@@ -0,0 +1,12 @@
+package org.multiplex.domain;
+
+import lombok.Value;
+
+import java.time.OffsetDateTime;
+
+@Value
+class ReservationExpiry {
+    private int reservationId;
+    private int screeningId;
+    private OffsetDateTime expirationTime;
+}
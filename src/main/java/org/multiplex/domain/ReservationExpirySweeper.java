@@ -0,0 +1,137 @@
+package org.multiplex.domain;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Marks unpaid reservations expired once their expiration time has passed and releases their seats
+ * from the occupancy index, so reads never have to compare expiration times.
+ */
+class ReservationExpirySweeper {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReservationExpirySweeper.class);
+
+    private final ReservationRepository reservationRepository;
+    private final SeatOccupancyIndex seatOccupancyIndex;
+    private final ScreeningAvailability screeningAvailability;
+    private final ScreeningLocks screeningLocks;
+    private final Clock clock;
+    private final long tickMillis;
+    private final TimingWheel<ReservationExpiry> timingWheel;
+
+    private ScheduledExecutorService scheduler;
+
+    ReservationExpirySweeper(ReservationRepository reservationRepository,
+                             SeatOccupancyIndex seatOccupancyIndex,
+                             ScreeningAvailability screeningAvailability,
+                             ScreeningLocks screeningLocks,
+                             Clock clock,
+                             long tickMillis) {
+        this.reservationRepository = reservationRepository;
+        this.seatOccupancyIndex = seatOccupancyIndex;
+        this.screeningAvailability = screeningAvailability;
+        this.screeningLocks = screeningLocks;
+        this.clock = clock;
+        this.tickMillis = tickMillis;
+        this.timingWheel = new TimingWheel<>(tickMillis, clock.millis());
+    }
+
+    void start() {
+        recover();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reservation-expiry-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::sweepQuietly, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Schedules every reservation which is still waiting for payment, e.g. after a restart.
+     */
+    void recover() {
+        List<ReservationExpiry> pending = reservationRepository.findPendingExpiries();
+        pending.forEach(this::schedule);
+        LOGGER.info("Scheduled expiration of {} pending reservations", pending.size());
+    }
+
+    void schedule(Reservation reservation) {
+        if (!reservation.isPaid()) {
+            schedule(new ReservationExpiry(reservation.getId(), reservation.getScreening().getId(), reservation.getExpirationTime()));
+        }
+    }
+
+    void schedule(ReservationExpiry expiry) {
+        synchronized (timingWheel) {
+            timingWheel.add(expiry.getExpirationTime().toInstant().toEpochMilli(), expiry);
+        }
+    }
+
+    /**
+     * Expires reservations whose expiration time has passed and returns how many of them were still unpaid.
+     */
+    int sweep() {
+        List<ReservationExpiry> due = new ArrayList<>();
+        synchronized (timingWheel) {
+            timingWheel.advance(clock.millis(), due::add);
+        }
+
+        int expired = 0;
+        for (ReservationExpiry expiry : due) {
+            try {
+                if (expire(expiry)) {
+                    expired++;
+                }
+            } catch (RuntimeException e) {
+                LOGGER.error("Cannot expire reservation {}, will retry", expiry.getReservationId(), e);
+                schedule(expiry);
+            }
+        }
+        return expired;
+    }
+
+    int getPendingCount() {
+        synchronized (timingWheel) {
+            return timingWheel.size();
+        }
+    }
+
+    private boolean expire(ReservationExpiry expiry) {
+        ScreeningLocks.Stripe stripe = screeningLocks.lock(expiry.getScreeningId());
+        try {
+            // paid or already expired reservations are left untouched
+            if (reservationRepository.markExpired(expiry.getReservationId()) == 0) {
+                return false;
+            }
+
+            List<Seat> seats = seatOccupancyIndex.release(expiry.getScreeningId(), expiry.getReservationId());
+            screeningAvailability.released(expiry.getScreeningId(), seats.size());
+            LOGGER.info("Reservation {} of screening {} expired", expiry.getReservationId(), expiry.getScreeningId());
+            return true;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    private void sweepQuietly() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            LOGGER.error("Sweeping expired reservations failed", e);
+        }
+    }
+}
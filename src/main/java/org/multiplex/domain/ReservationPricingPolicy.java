@@ -1,14 +1,86 @@
 package org.multiplex.domain;
 
 import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Prices seats in minor units. Base prices of reservation types are changed by {@link PricingRule}s in the order
+ * they are given; the result for every row and type of a screening is compiled into a {@link PriceTable} once
+ * and cached until the screening's room, movie or start time changes. Prices no rule changed keep the scale
+ * of the amounts reservations were always priced with, so their totals read the same as before.
+ */
 class ReservationPricingPolicy {
 
-    private static final Price ADULT = Price.from(BigDecimal.valueOf(25));
-    private static final Price STUDENT = Price.from(BigDecimal.valueOf(18));
-    private static final Price CHILD = Price.from(BigDecimal.valueOf(12.50));
+    private static final BigDecimal ADULT = BigDecimal.valueOf(25);
+    private static final BigDecimal STUDENT = BigDecimal.valueOf(18);
+    private static final BigDecimal CHILD = BigDecimal.valueOf(12.50);
 
-    public Price getPrice(ReservationType type) {
+    private static final int TYPES = ReservationType.values().length;
+
+    private final List<PricingRule> rules;
+    private final int maxCachedScreenings;
+    private final Map<Integer, PriceTable> priceTables = new ConcurrentHashMap<>();
+
+    ReservationPricingPolicy() {
+        this(List.of(), 10_000);
+    }
+
+    ReservationPricingPolicy(List<PricingRule> rules, int maxCachedScreenings) {
+        this.rules = List.copyOf(rules);
+        this.maxCachedScreenings = maxCachedScreenings;
+    }
+
+    PriceTable getPriceTable(Screening screening) {
+        PriceTable priceTable = priceTables.get(screening.getId());
+        if (priceTable != null && priceTable.isFor(screening)) {
+            return priceTable;
+        }
+
+        // tables are cheap to compile again, so the cache is simply emptied when it gets too big
+        if (priceTables.size() >= maxCachedScreenings) {
+            priceTables.clear();
+        }
+        priceTable = compile(screening);
+        priceTables.put(screening.getId(), priceTable);
+        return priceTable;
+    }
+
+    private PriceTable compile(Screening screening) {
+        List<PricingRule> screeningRules = new ArrayList<>();
+        for (PricingRule rule : rules) {
+            if (rule.appliesTo(screening)) {
+                screeningRules.add(rule);
+            }
+        }
+
+        int rowCount = screening.getRoom().getRowCount();
+        int[] prices = new int[rowCount * TYPES];
+        byte[] scales = new byte[rowCount * TYPES];
+        for (int row = 1; row <= rowCount; row++) {
+            for (ReservationType type : ReservationType.values()) {
+                BigDecimal baseAmount = baseAmount(type);
+                int basePrice = baseAmount.movePointRight(2).intValueExact();
+                int price = basePrice;
+                for (PricingRule rule : screeningRules) {
+                    if (rule.appliesTo(row, type)) {
+                        price = rule.apply(price);
+                    }
+                }
+                price = Math.max(0, price);
+                int index = (row - 1) * TYPES + type.ordinal();
+                prices[index] = price;
+                scales[index] = (byte) (price == basePrice ? baseAmount.scale() : 2);
+            }
+        }
+
+        return new PriceTable(screening, prices, scales);
+    }
+
+    private static BigDecimal baseAmount(ReservationType type) {
         switch (type) {
             case ADULT:
                 return ADULT;
@@ -21,24 +93,43 @@ class ReservationPricingPolicy {
         throw new IllegalArgumentException("Unknown reservation type:" + type);
     }
 
-    static class Price {
-        public static final Price ZERO = new Price(BigDecimal.ZERO);
-        private final BigDecimal value;
+    static class PriceTable {
+
+        private final int screeningId;
+        private final int roomId;
+        private final int movieId;
+        private final OffsetDateTime startScreeningTime;
+        private final int[] prices;
+        private final byte[] scales;
 
-        private Price(BigDecimal value) {
-            this.value = value;
+        private PriceTable(Screening screening, int[] prices, byte[] scales) {
+            this.screeningId = screening.getId();
+            this.roomId = screening.getRoom().getId();
+            this.movieId = screening.getMovie().getId();
+            this.startScreeningTime = screening.getStartScreeningTime();
+            this.prices = prices;
+            this.scales = scales;
         }
 
-        public Price add(Price priceToAdd) {
-            return from(value.add(priceToAdd.value));
+        /**
+         * Returns the price of the seat in minor units.
+         */
+        int getPrice(int row, ReservationType type) {
+            return prices[(row - 1) * TYPES + type.ordinal()];
         }
 
-        public static Price from(BigDecimal value) {
-            return new Price(value);
+        /**
+         * Returns the number of decimals the price of the seat is written with, the highest of which a total keeps.
+         */
+        int getScale(int row, ReservationType type) {
+            return scales[(row - 1) * TYPES + type.ordinal()];
         }
 
-        public BigDecimal getValue() {
-            return value;
+        private boolean isFor(Screening screening) {
+            return screeningId == screening.getId()
+                    && roomId == screening.getRoom().getId()
+                    && movieId == screening.getMovie().getId()
+                    && startScreeningTime.equals(screening.getStartScreeningTime());
         }
     }
 }
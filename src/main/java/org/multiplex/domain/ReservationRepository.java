@@ -1,6 +1,10 @@
 package org.multiplex.domain;
 
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -9,4 +13,40 @@ interface ReservationRepository extends Repository<Reservation, Integer> {
     Reservation save(Reservation reservation);
 
     List<Reservation> findByScreeningId(int screeningId);
+
+    @Query("select new org.multiplex.domain.Seat(seat.row, seat.column)"
+            + " from Reservation reservation join reservation.reservedSeats seat"
+            + " where reservation.screening.id = :screeningId and reservation.expired = false")
+    List<Seat> findActiveReservedSeats(@Param("screeningId") int screeningId);
+
+    @Query("select new org.multiplex.domain.ScreeningSeatCount(reservation.screening.id, count(seat))"
+            + " from Reservation reservation join reservation.reservedSeats seat"
+            + " where reservation.expired = false"
+            + " group by reservation.screening.id")
+    List<ScreeningSeatCount> countActiveReservedSeats();
+
+    @Query("select new org.multiplex.domain.Seat(seat.row, seat.column)"
+            + " from Reservation reservation join reservation.reservedSeats seat"
+            + " where reservation.id = :reservationId")
+    List<Seat> findReservedSeats(@Param("reservationId") int reservationId);
+
+    @Query("select new org.multiplex.domain.ReservationExpiry(reservation.id, reservation.screening.id, reservation.expirationTime)"
+            + " from Reservation reservation"
+            + " where reservation.paid = false and reservation.expired = false")
+    List<ReservationExpiry> findPendingExpiries();
+
+    @Modifying
+    @Transactional
+    @Query("update Reservation reservation set reservation.expired = true"
+            + " where reservation.id = :reservationId and reservation.paid = false and reservation.expired = false")
+    int markExpired(@Param("reservationId") int reservationId);
+
+    /**
+     * Expires the reservation, paid or not, e.g. when its screening is handed off to another node.
+     */
+    @Modifying
+    @Transactional
+    @Query("update Reservation reservation set reservation.expired = true"
+            + " where reservation.id = :reservationId and reservation.expired = false")
+    int markHandedOff(@Param("reservationId") int reservationId);
 }
@@ -9,7 +9,9 @@ import lombok.Value;
 
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
 
 @Entity
 @Builder
@@ -19,7 +21,8 @@ import javax.persistence.Id;
 class ReservedSeat {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reserved_seat_sequence")
+    @SequenceGenerator(name = "reserved_seat_sequence", sequenceName = "reserved_seat_sequence", allocationSize = 50)
     private int id;
     private int row;
     private int column;
@@ -0,0 +1,300 @@
+package org.multiplex.domain;
+
+import org.multiplex.domain.dto.ScheduleImportDto;
+import org.multiplex.domain.dto.ScheduleImportDto.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Imports a schedule file in the background once the app is ready. Every line of the file is one of
+ * {@code movie,title,minutes}, {@code room,name,rows,columns} or {@code screening,movie title,room name,start},
+ * fields with commas are quoted and lines starting with {@code #} are skipped.
+ * <p>
+ * Screenings find their movie and room by title and name among the ones saved before, so they have to follow them
+ * in the file. They are streamed into JDBC batches, each committed in its own transaction, so the file never has
+ * to fit in memory and imported days are listed while the rest of the file is still being read.
+ * The import stops at the first invalid line, keeping the batches committed before it. Either way
+ * {@link ScreeningAvailability} then loads all screenings, so listings do not load them one by one.
+ */
+public class ScheduleImporter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScheduleImporter.class);
+
+    private static final long LOGGED_SCREENINGS = 10_000;
+
+    // the sequence Hibernate draws ids of movies, rooms and screenings from
+    private static final String NEXT_ID = "call next value for hibernate_sequence";
+    private static final String INSERT_MOVIE = "insert into Movie (id, title, duration) values (?, ?, ?)";
+    private static final String INSERT_ROOM = "insert into Room (id, name, rowCount, columnCount) values (?, ?, ?, ?)";
+    private static final String INSERT_SCREENING = "insert into Screening (id, fk_movie_id, fk_room_id, startScreeningTime)"
+            + " values (next value for hibernate_sequence, ?, ?, ?)";
+
+    private final Resource schedule;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ScreeningListingCache screeningListingCache;
+    private final ScreeningAvailability screeningAvailability;
+    private final int batchSize;
+    private final CountDownLatch finished = new CountDownLatch(1);
+
+    private ExecutorService executor;
+
+    // written only by the importing thread
+    private volatile State state = State.WAITING;
+    private volatile long linesRead;
+    private volatile int movies;
+    private volatile int rooms;
+    private volatile long screenings;
+    private volatile long startNanos;
+    private volatile long endNanos;
+    private volatile String error;
+
+    /**
+     * @param schedule file to import or {@code null} to import nothing
+     */
+    ScheduleImporter(Resource schedule,
+                     JdbcTemplate jdbcTemplate,
+                     TransactionTemplate transactionTemplate,
+                     ScreeningListingCache screeningListingCache,
+                     ScreeningAvailability screeningAvailability,
+                     int batchSize) {
+        this.schedule = schedule;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.screeningListingCache = screeningListingCache;
+        this.screeningAvailability = screeningAvailability;
+        this.batchSize = batchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "schedule-importer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.execute(this::importQuietly);
+    }
+
+    void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public ScheduleImportDto getProgress() {
+        long elapsedNanos = state == State.WAITING ? 0 : (state == State.RUNNING ? System.nanoTime() : endNanos) - startNanos;
+        return ScheduleImportDto.builder()
+                .state(state)
+                .linesRead(linesRead)
+                .movies(movies)
+                .rooms(rooms)
+                .screenings(screenings)
+                .elapsedMillis(TimeUnit.NANOSECONDS.toMillis(elapsedNanos))
+                .error(error)
+                .build();
+    }
+
+    boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        return finished.await(timeout, unit);
+    }
+
+    void importSchedule() throws IOException {
+        startNanos = System.nanoTime();
+        state = State.RUNNING;
+        if (schedule == null) {
+            finish(State.DONE);
+            return;
+        }
+
+        Map<String, Integer> movieIds = ids("select title, id from Movie");
+        Map<String, Integer> roomIds = ids("select name, id from Room");
+        List<Object[]> batch = new ArrayList<>(batchSize);
+        Set<LocalDate> days = new HashSet<>();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(schedule.getInputStream(), UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                linesRead++;
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+
+                try {
+                    List<String> fields = fields(line);
+                    switch (fields.get(0)) {
+                        case "movie":
+                            expectFields(fields, 3);
+                            movieIds.computeIfAbsent(fields.get(1), title -> insertMovie(title, Duration.ofMinutes(Long.parseLong(fields.get(2)))));
+                            break;
+                        case "room":
+                            expectFields(fields, 4);
+                            roomIds.computeIfAbsent(fields.get(1), name -> insertRoom(name, Integer.parseInt(fields.get(2)), Integer.parseInt(fields.get(3))));
+                            break;
+                        case "screening":
+                            expectFields(fields, 4);
+                            OffsetDateTime start = OffsetDateTime.parse(fields.get(3));
+                            batch.add(new Object[]{reference(movieIds, "movie", fields.get(1)), reference(roomIds, "room", fields.get(2)),
+                                    Timestamp.from(start.toInstant())});
+                            days.add(ScreeningListingCache.day(start));
+                            break;
+                        default:
+                            throw new IllegalArgumentException("Unknown record " + fields.get(0));
+                    }
+                } catch (RuntimeException e) {
+                    throw new IllegalArgumentException("Invalid schedule line " + linesRead + ": " + e.getMessage(), e);
+                }
+
+                if (batch.size() == batchSize) {
+                    flush(batch, days);
+                }
+            }
+        }
+        flush(batch, days);
+
+        finish(State.DONE);
+        LOGGER.info("Imported {} movies, {} rooms and {} screenings from {} in {} ms",
+                movies, rooms, screenings, schedule.getDescription(), getProgress().getElapsedMillis());
+    }
+
+    private void importQuietly() {
+        try {
+            importSchedule();
+        } catch (Exception e) {
+            error = e.getMessage();
+            finish(State.FAILED);
+            LOGGER.error("Cannot import schedule, {} screenings were imported", screenings, e);
+        }
+    }
+
+    private void finish(State state) {
+        endNanos = System.nanoTime();
+        this.state = state;
+        try {
+            screeningAvailability.loadAll();
+        } finally {
+            finished.countDown();
+        }
+    }
+
+    private void flush(List<Object[]> batch, Set<LocalDate> days) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            throw new IllegalStateException("Import was stopped");
+        }
+
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SCREENING, batch));
+        screeningListingCache.invalidateDays(days);
+
+        long imported = screenings + batch.size();
+        if (imported / LOGGED_SCREENINGS > screenings / LOGGED_SCREENINGS) {
+            LOGGER.info("Imported {} screenings", imported);
+        }
+        screenings = imported;
+        batch.clear();
+        days.clear();
+    }
+
+    private int insertMovie(String title, Duration duration) {
+        int id = nextId();
+        jdbcTemplate.update(INSERT_MOVIE, id, title, duration.toNanos());
+        movies++;
+        return id;
+    }
+
+    private int insertRoom(String name, int rowCount, int columnCount) {
+        if (rowCount <= 0 || columnCount <= 0) {
+            throw new IllegalArgumentException("Room " + name + " has no seats");
+        }
+        int id = nextId();
+        jdbcTemplate.update(INSERT_ROOM, id, name, rowCount, columnCount);
+        rooms++;
+        return id;
+    }
+
+    private int nextId() {
+        return jdbcTemplate.queryForObject(NEXT_ID, Integer.class);
+    }
+
+    private Map<String, Integer> ids(String query) {
+        Map<String, Integer> ids = new HashMap<>();
+        jdbcTemplate.query(query, row -> {
+            ids.put(row.getString(1), row.getInt(2));
+        });
+        return ids;
+    }
+
+    private static int reference(Map<String, Integer> ids, String record, String key) {
+        Integer id = ids.get(key);
+        if (id == null) {
+            throw new IllegalArgumentException("Unknown " + record + " " + key);
+        }
+        return id;
+    }
+
+    private static void expectFields(List<String> fields, int count) {
+        if (fields.size() != count) {
+            throw new IllegalArgumentException(fields.get(0) + " needs " + count + " fields, got " + fields.size());
+        }
+    }
+
+    static List<String> fields(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().strip());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+
+        if (quoted) {
+            throw new IllegalArgumentException("Quote is not closed");
+        }
+        fields.add(field.toString().strip());
+        return fields;
+    }
+}
@@ -4,15 +4,21 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import org.springframework.data.domain.DomainEvents;
 
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.Table;
 import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
 
 @Entity
+@Table(indexes = @Index(name = "idx_screening_start_time", columnList = "startScreeningTime"))
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
@@ -33,4 +39,8 @@ class Screening {
 
     private OffsetDateTime startScreeningTime;
 
+    @DomainEvents
+    Collection<ScreeningChangedEvent> changedEvents() {
+        return List.of(new ScreeningChangedEvent(id, startScreeningTime));
+    }
 }
@@ -0,0 +1,159 @@
+package org.multiplex.domain;
+
+import lombok.Value;
+import org.multiplex.domain.dto.AvailableScreeningDto;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read model of screening listings: seats left, sold out flag and version of every screening, kept apart from
+ * the reservations and updated by the seat counts of committed reservations and expiries, so listings never query them.
+ * Seats which are only held count as free. Screenings not known yet are loaded the first time they are asked for.
+ * <p>
+ * Bookings hold the screening's lock from before they commit until their seat counts are applied, so screenings are
+ * loaded under it: a load never sees a committed booking whose seats are still to be added on top of it.
+ */
+class ScreeningAvailability {
+
+    private final ScreeningRepository screeningRepository;
+    private final ReservationRepository reservationRepository;
+    private final ScreeningLocks screeningLocks;
+    private final Map<Integer, Availability> screenings = new ConcurrentHashMap<>();
+
+    // shared by all screenings like the seat map versions, so a reloaded screening never gets a version it had before
+    private final AtomicLong versions;
+
+    // screenings changed while loadAll() read them, null when it is not running
+    private volatile Set<Integer> changedWhileLoading;
+
+    ScreeningAvailability(ScreeningRepository screeningRepository, ReservationRepository reservationRepository,
+                          ScreeningLocks screeningLocks, Clock clock) {
+        this.screeningRepository = screeningRepository;
+        this.reservationRepository = reservationRepository;
+        this.screeningLocks = screeningLocks;
+        this.versions = new AtomicLong(clock.millis() * 1000);
+    }
+
+    /**
+     * Loads all screenings not loaded yet with one query for rooms and one for reservations, e.g. once the schedule
+     * import finishes. Loaded screenings are kept up to date by changes and stay as they are. Bookings wait for the
+     * two queries, as all screening locks are held meanwhile, and a screening changed meanwhile is left to be loaded
+     * when asked for.
+     */
+    synchronized void loadAll() {
+        Set<Integer> changed = ConcurrentHashMap.newKeySet();
+        changedWhileLoading = changed;
+        List<ScreeningLocks.Stripe> stripes = screeningLocks.lockAll();
+        try {
+            Map<Integer, Long> seatsTaken = new HashMap<>();
+            for (ScreeningSeatCount taken : reservationRepository.countActiveReservedSeats()) {
+                seatsTaken.put(taken.getScreeningId(), taken.getSeatCount());
+            }
+
+            for (ScreeningSeatCount seats : screeningRepository.findSeatCounts()) {
+                int screeningId = seats.getScreeningId();
+                Availability loaded = new Availability((int) seats.getSeatCount(),
+                        seatsTaken.getOrDefault(screeningId, 0L).intValue(), versions.incrementAndGet());
+                if (screenings.putIfAbsent(screeningId, loaded) == null && changed.contains(screeningId)) {
+                    screenings.remove(screeningId);
+                }
+            }
+        } finally {
+            stripes.forEach(ScreeningLocks.Stripe::unlock);
+            changedWhileLoading = null;
+        }
+    }
+
+    /**
+     * Returns availability of the screening or {@code null} if there is no such screening.
+     */
+    Availability get(int screeningId) {
+        Availability availability = screenings.get(screeningId);
+        if (availability != null) {
+            return availability;
+        }
+
+        Screening screening = screeningRepository.findById(screeningId);
+        if (screening == null) {
+            return null;
+        }
+        ScreeningLocks.Stripe stripe = screeningLocks.lock(screeningId);
+        try {
+            return screenings.computeIfAbsent(screeningId, id -> new Availability(
+                    screening.getRoom().getRowCount() * screening.getRoom().getColumnCount(),
+                    reservationRepository.findActiveReservedSeats(id).size(),
+                    versions.incrementAndGet()));
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    void reserved(int screeningId, int seatCount) {
+        change(screeningId, seatCount);
+    }
+
+    void released(int screeningId, int seatCount) {
+        change(screeningId, -seatCount);
+    }
+
+    void invalidate(int screeningId) {
+        noteChange(screeningId);
+        screenings.remove(screeningId);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void onScreeningChanged(ScreeningChangedEvent event) {
+        invalidate(event.getScreeningId());
+    }
+
+    List<AvailableScreeningDto> withAvailability(List<AvailableScreeningDto> listing) {
+        List<AvailableScreeningDto> screenings = new ArrayList<>(listing.size());
+        listing.forEach(screening -> screenings.add(withAvailability(screening)));
+        return screenings;
+    }
+
+    AvailableScreeningDto withAvailability(AvailableScreeningDto screening) {
+        Availability availability = get(screening.getScreeningId());
+        if (availability == null) {
+            return screening;
+        }
+
+        return new AvailableScreeningDto(screening.getScreeningId(), screening.getMovieTitle(), screening.getStartScreeningTime(),
+                availability.getSeatsLeft(), availability.isSoldOut());
+    }
+
+    private void change(int screeningId, int seatCount) {
+        screenings.computeIfPresent(screeningId, (id, availability) -> new Availability(availability.getSeatCount(),
+                availability.getSeatsTaken() + seatCount, versions.incrementAndGet()));
+    }
+
+    private void noteChange(int screeningId) {
+        Set<Integer> changed = changedWhileLoading;
+        if (changed != null) {
+            changed.add(screeningId);
+        }
+    }
+
+    @Value
+    static class Availability {
+        private int seatCount;
+        private int seatsTaken;
+        private long version;
+
+        int getSeatsLeft() {
+            return Math.max(0, seatCount - seatsTaken);
+        }
+
+        boolean isSoldOut() {
+            return getSeatsLeft() == 0;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package org.multiplex.domain;
+
+import lombok.Value;
+
+import java.time.OffsetDateTime;
+
+@Value
+class ScreeningChangedEvent {
+    private int screeningId;
+    private OffsetDateTime startScreeningTime;
+}
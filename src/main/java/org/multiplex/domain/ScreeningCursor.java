@@ -0,0 +1,64 @@
+package org.multiplex.domain;
+
+import lombok.Value;
+import org.multiplex.domain.dto.AvailableScreeningDto;
+import org.multiplex.domain.exception.InvalidCursorException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+/**
+ * Position in the screening listing after the given screening, in the order of movie title, start time and screening id.
+ */
+@Value
+class ScreeningCursor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScreeningCursor.class);
+
+    private String movieTitle;
+    private OffsetDateTime startScreeningTime;
+    private int screeningId;
+
+    static ScreeningCursor after(AvailableScreeningDto screening) {
+        return new ScreeningCursor(screening.getMovieTitle(), screening.getStartScreeningTime(), screening.getScreeningId());
+    }
+
+    String encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            Instant start = startScreeningTime.toInstant();
+            out.writeUTF(movieTitle);
+            out.writeLong(start.getEpochSecond());
+            out.writeInt(start.getNano());
+            out.writeInt(screeningId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    static ScreeningCursor decode(String cursor) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(cursor)))) {
+            String movieTitle = in.readUTF();
+            Instant start = Instant.ofEpochSecond(in.readLong(), in.readInt());
+            int screeningId = in.readInt();
+            if (in.available() == 0) {
+                return new ScreeningCursor(movieTitle, start.atOffset(ZoneOffset.UTC), screeningId);
+            }
+        } catch (IOException | IllegalArgumentException | DateTimeException e) {
+            LOGGER.info("Cannot decode cursor {}: {}", cursor, e.toString());
+        }
+        throw new InvalidCursorException(cursor);
+    }
+}
@@ -0,0 +1,211 @@
+package org.multiplex.domain;
+
+import org.multiplex.domain.dto.AvailableScreeningDto;
+import org.multiplex.domain.dto.ScreeningCacheStatsDto;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.Comparator.comparing;
+
+/**
+ * Keeps listings of whole UTC days ordered like {@link ScreeningRepository#findAvailableScreenings}
+ * and serves any time range by merging the slices of the days it covers. The least recently used days are evicted.
+ */
+class ScreeningListingCache {
+
+    static final Comparator<AvailableScreeningDto> LISTING_ORDER = comparing(AvailableScreeningDto::getMovieTitle)
+            .thenComparing(AvailableScreeningDto::getStartScreeningTime, OffsetDateTime.timeLineOrder())
+            .thenComparingInt(AvailableScreeningDto::getScreeningId);
+
+    private final ScreeningRepository screeningRepository;
+    private final int maxCachedDays;
+    private final Map<LocalDate, List<AvailableScreeningDto>> days;
+
+    // bumped on every invalidation, so a slice loaded before it is not cached
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    ScreeningListingCache(ScreeningRepository screeningRepository, int maxCachedDays) {
+        this.screeningRepository = screeningRepository;
+        this.maxCachedDays = maxCachedDays;
+        this.days = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<LocalDate, List<AvailableScreeningDto>> eldest) {
+                if (size() > ScreeningListingCache.this.maxCachedDays) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    List<AvailableScreeningDto> getAvailableScreenings(OffsetDateTime from, OffsetDateTime to) {
+        if (from.isAfter(to)) {
+            return List.of();
+        }
+
+        LocalDate firstDay = day(from);
+        LocalDate lastDay = day(to);
+        long dayCount = ChronoUnit.DAYS.between(firstDay, lastDay) + 1;
+
+        // a range which would flush the whole cache goes straight to the database
+        if (dayCount > maxCachedDays) {
+            misses.increment();
+            return screeningRepository.findAvailableScreenings(from, to);
+        }
+
+        List<List<AvailableScreeningDto>> slices = new ArrayList<>((int) dayCount);
+        for (LocalDate day = firstDay; !day.isAfter(lastDay); day = day.plusDays(1)) {
+            slices.add(slice(day));
+        }
+
+        return merge(slices, from, to);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void onScreeningChanged(ScreeningChangedEvent event) {
+        LocalDate day = day(event.getStartScreeningTime());
+
+        synchronized (days) {
+            generation++;
+            invalidations.increment();
+            days.remove(day);
+            // the screening could have been moved from another day
+            days.values().removeIf(slice -> slice.stream()
+                    .anyMatch(screening -> screening.getScreeningId() == event.getScreeningId()));
+        }
+    }
+
+    /**
+     * Drops listings of the days, e.g. after screenings were written past the repository.
+     */
+    void invalidateDays(Collection<LocalDate> changedDays) {
+        synchronized (days) {
+            generation++;
+            invalidations.increment();
+            days.keySet().removeAll(changedDays);
+        }
+    }
+
+    ScreeningCacheStatsDto getStats() {
+        int cachedDays;
+        synchronized (days) {
+            cachedDays = days.size();
+        }
+
+        return ScreeningCacheStatsDto.builder()
+                .hits(hits.sum())
+                .misses(misses.sum())
+                .evictions(evictions.sum())
+                .invalidations(invalidations.sum())
+                .cachedDays(cachedDays)
+                .maxCachedDays(maxCachedDays)
+                .build();
+    }
+
+    private List<AvailableScreeningDto> slice(LocalDate day) {
+        long loadedInGeneration;
+        synchronized (days) {
+            List<AvailableScreeningDto> slice = days.get(day);
+            if (slice != null) {
+                hits.increment();
+                return slice;
+            }
+            loadedInGeneration = generation;
+        }
+
+        misses.increment();
+        OffsetDateTime dayStart = day.atStartOfDay().atOffset(ZoneOffset.UTC);
+        List<AvailableScreeningDto> slice = List.copyOf(
+                screeningRepository.findAvailableScreeningsStartingIn(dayStart, dayStart.plusDays(1)));
+
+        synchronized (days) {
+            if (generation == loadedInGeneration) {
+                days.put(day, slice);
+            }
+        }
+        return slice;
+    }
+
+    private static List<AvailableScreeningDto> merge(List<List<AvailableScreeningDto>> slices, OffsetDateTime from, OffsetDateTime to) {
+        if (slices.size() == 1) {
+            return inRange(slices.get(0), from, to);
+        }
+
+        PriorityQueue<Cursor> cursors = new PriorityQueue<>(slices.size(), comparing(Cursor::current, LISTING_ORDER));
+        int size = 0;
+        for (List<AvailableScreeningDto> slice : slices) {
+            List<AvailableScreeningDto> screenings = inRange(slice, from, to);
+            if (!screenings.isEmpty()) {
+                cursors.add(new Cursor(screenings.iterator()));
+                size += screenings.size();
+            }
+        }
+
+        List<AvailableScreeningDto> merged = new ArrayList<>(size);
+        while (!cursors.isEmpty()) {
+            Cursor cursor = cursors.poll();
+            merged.add(cursor.current());
+            if (cursor.next()) {
+                cursors.add(cursor);
+            }
+        }
+        return merged;
+    }
+
+    private static List<AvailableScreeningDto> inRange(List<AvailableScreeningDto> slice, OffsetDateTime from, OffsetDateTime to) {
+        List<AvailableScreeningDto> screenings = new ArrayList<>(slice.size());
+        for (AvailableScreeningDto screening : slice) {
+            OffsetDateTime start = screening.getStartScreeningTime();
+            if (!start.isBefore(from) && !start.isAfter(to)) {
+                screenings.add(screening);
+            }
+        }
+        return screenings;
+    }
+
+    static LocalDate day(OffsetDateTime time) {
+        return time.atZoneSameInstant(ZoneOffset.UTC).toLocalDate();
+    }
+
+    private static class Cursor {
+
+        private final Iterator<AvailableScreeningDto> screenings;
+        private AvailableScreeningDto current;
+
+        Cursor(Iterator<AvailableScreeningDto> screenings) {
+            this.screenings = screenings;
+            this.current = screenings.next();
+        }
+
+        AvailableScreeningDto current() {
+            return current;
+        }
+
+        boolean next() {
+            if (!screenings.hasNext()) {
+                return false;
+            }
+            current = screenings.next();
+            return true;
+        }
+    }
+}
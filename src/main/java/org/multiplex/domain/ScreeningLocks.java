@@ -0,0 +1,109 @@
+package org.multiplex.domain;
+
+import org.multiplex.domain.dto.LockStripeStatsDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serializes reservations of the same screening while letting reservations of other screenings
+ * run in parallel. Screenings are spread over a fixed number of lock stripes.
+ */
+class ScreeningLocks {
+
+    private final Stripe[] stripes;
+
+    ScreeningLocks(int stripeCount) {
+        if (stripeCount < 1) {
+            throw new IllegalArgumentException("Stripe count must be positive: " + stripeCount);
+        }
+
+        stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(i);
+        }
+    }
+
+    Stripe lock(int screeningId) {
+        Stripe stripe = stripeFor(screeningId);
+        stripe.lock();
+        return stripe;
+    }
+
+    /**
+     * Locks all stripes in order, so it cannot deadlock with callers holding a single stripe, and returns them to be unlocked.
+     */
+    List<Stripe> lockAll() {
+        List<Stripe> locked = new ArrayList<>(stripes.length);
+        for (Stripe stripe : stripes) {
+            stripe.lock();
+            locked.add(stripe);
+        }
+        return locked;
+    }
+
+    int getStripeCount() {
+        return stripes.length;
+    }
+
+    List<LockStripeStatsDto> getStats() {
+        List<LockStripeStatsDto> stats = new ArrayList<>(stripes.length);
+        for (Stripe stripe : stripes) {
+            stats.add(stripe.getStats());
+        }
+        return stats;
+    }
+
+    Stripe stripeFor(int screeningId) {
+        int hash = screeningId * 0x9E3779B9;
+        return stripes[Math.floorMod(hash ^ (hash >>> 16), stripes.length)];
+    }
+
+    static class Stripe {
+
+        private final int index;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LongAdder acquisitions = new LongAdder();
+        private final LongAdder contendedAcquisitions = new LongAdder();
+        private final LongAdder totalWaitNanos = new LongAdder();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+
+        private Stripe(int index) {
+            this.index = index;
+        }
+
+        void unlock() {
+            lock.unlock();
+        }
+
+        private void lock() {
+            acquisitions.increment();
+            if (lock.tryLock()) {
+                return;
+            }
+
+            long start = System.nanoTime();
+            lock.lock();
+            long waited = System.nanoTime() - start;
+
+            contendedAcquisitions.increment();
+            totalWaitNanos.add(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+        }
+
+        private LockStripeStatsDto getStats() {
+            return LockStripeStatsDto.builder()
+                    .stripe(index)
+                    .acquisitions(acquisitions.sum())
+                    .contendedAcquisitions(contendedAcquisitions.sum())
+                    .totalWaitMicros(TimeUnit.NANOSECONDS.toMicros(totalWaitNanos.sum()))
+                    .maxWaitMicros(TimeUnit.NANOSECONDS.toMicros(maxWaitNanos.get()))
+                    .queueLength(lock.getQueueLength())
+                    .build();
+        }
+    }
+}
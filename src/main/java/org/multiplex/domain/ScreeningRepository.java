@@ -1,9 +1,18 @@
 package org.multiplex.domain;
 
+import org.multiplex.domain.dto.AvailableScreeningDto;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
 import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 interface ScreeningRepository extends Repository<Screening, Integer> {
 
@@ -11,5 +20,46 @@ interface ScreeningRepository extends Repository<Screening, Integer> {
 
     Screening findById(int screeningId);
 
-    List<Screening> findByStartScreeningTimeBetween(OffsetDateTime from, OffsetDateTime to);
+    @Query("select new org.multiplex.domain.ScreeningSeatCount(screening.id, cast(room.rowCount * room.columnCount as long))"
+            + " from Screening screening join screening.room room")
+    List<ScreeningSeatCount> findSeatCounts();
+
+    @Query("select new org.multiplex.domain.dto.AvailableScreeningDto(screening.id, movie.title, screening.startScreeningTime)"
+            + " from Screening screening join screening.movie movie"
+            + " where screening.startScreeningTime between :from and :to"
+            + " order by movie.title, screening.startScreeningTime, screening.id")
+    List<AvailableScreeningDto> findAvailableScreenings(@Param("from") OffsetDateTime from, @Param("to") OffsetDateTime to);
+
+    @Query("select new org.multiplex.domain.dto.AvailableScreeningDto(screening.id, movie.title, screening.startScreeningTime)"
+            + " from Screening screening join screening.movie movie"
+            + " where screening.startScreeningTime >= :from and screening.startScreeningTime < :until"
+            + " order by movie.title, screening.startScreeningTime, screening.id")
+    List<AvailableScreeningDto> findAvailableScreeningsStartingIn(@Param("from") OffsetDateTime from, @Param("until") OffsetDateTime until);
+
+    @Query("select new org.multiplex.domain.dto.AvailableScreeningDto(screening.id, movie.title, screening.startScreeningTime)"
+            + " from Screening screening join screening.movie movie"
+            + " where screening.startScreeningTime between :from and :to"
+            + " order by movie.title, screening.startScreeningTime, screening.id")
+    List<AvailableScreeningDto> findAvailableScreenings(@Param("from") OffsetDateTime from, @Param("to") OffsetDateTime to, Pageable page);
+
+    @Query("select new org.multiplex.domain.dto.AvailableScreeningDto(screening.id, movie.title, screening.startScreeningTime)"
+            + " from Screening screening join screening.movie movie"
+            + " where screening.startScreeningTime between :from and :to"
+            + " and (movie.title > :title"
+            + " or (movie.title = :title and screening.startScreeningTime > :startTime)"
+            + " or (movie.title = :title and screening.startScreeningTime = :startTime and screening.id > :screeningId))"
+            + " order by movie.title, screening.startScreeningTime, screening.id")
+    List<AvailableScreeningDto> findAvailableScreeningsAfter(@Param("from") OffsetDateTime from,
+                                                             @Param("to") OffsetDateTime to,
+                                                             @Param("title") String title,
+                                                             @Param("startTime") OffsetDateTime startTime,
+                                                             @Param("screeningId") int screeningId,
+                                                             Pageable page);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select new org.multiplex.domain.dto.AvailableScreeningDto(screening.id, movie.title, screening.startScreeningTime)"
+            + " from Screening screening join screening.movie movie"
+            + " where screening.startScreeningTime between :from and :to"
+            + " order by movie.title, screening.startScreeningTime, screening.id")
+    Stream<AvailableScreeningDto> streamAvailableScreenings(@Param("from") OffsetDateTime from, @Param("to") OffsetDateTime to);
 }
@@ -0,0 +1,168 @@
+package org.multiplex.domain;
+
+import org.multiplex.domain.dto.CompactScreeningSeatsInfoDto;
+import org.multiplex.domain.dto.ReservationDto;
+import org.multiplex.domain.dto.ReservationSummaryDto;
+import org.multiplex.domain.dto.ScreeningIdDto;
+import org.multiplex.domain.dto.ScreeningReservationsDto;
+import org.multiplex.domain.dto.ScreeningSeatsInfoDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Sends requests for a screening to the node which owns it. Movies, rooms and screenings are known to every node,
+ * reservations of a screening are kept only by its owner.
+ * <p>
+ * When a node joins or leaves, the owners of all screenings are computed again and every screening which changed
+ * its owner is handed off from the previous owner to the new one. Requests wait while the ownership is moving.
+ * A screening which cannot be moved gets its reservations back and stays with the previous owner until
+ * a later membership change moves it.
+ */
+class ScreeningRouter implements BookingNode {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScreeningRouter.class);
+
+    private final BookingTransport transport;
+    private final Supplier<List<Integer>> screeningIds;
+    private final ReadWriteLock membershipLock = new ReentrantReadWriteLock();
+
+    // screenings which failed to move to their owner on the ring, with the node still owning them
+    private final Map<Integer, String> strandedOwners = new HashMap<>();
+
+    private ConsistentHashRing ring;
+
+    ScreeningRouter(ConsistentHashRing ring, BookingTransport transport, Supplier<List<Integer>> screeningIds) {
+        this.ring = ring;
+        this.transport = transport;
+        this.screeningIds = screeningIds;
+    }
+
+    @Override
+    public ReservationSummaryDto reserveSeats(ReservationDto reservationDto) {
+        return route(reservationDto.getScreeningId(), node -> node.reserveSeats(reservationDto));
+    }
+
+    @Override
+    public ScreeningSeatsInfoDto getScreeningSeatsInfo(ScreeningIdDto screeningId) {
+        return route(screeningId.getValue(), node -> node.getScreeningSeatsInfo(screeningId));
+    }
+
+    @Override
+    public CompactScreeningSeatsInfoDto getCompactScreeningSeatsInfo(ScreeningIdDto screeningId) {
+        return route(screeningId.getValue(), node -> node.getCompactScreeningSeatsInfo(screeningId));
+    }
+
+    @Override
+    public ScreeningReservationsDto handOffScreening(ScreeningIdDto screeningId) {
+        return route(screeningId.getValue(), node -> node.handOffScreening(screeningId));
+    }
+
+    @Override
+    public void takeOverScreening(ScreeningReservationsDto screeningReservations) {
+        route(screeningReservations.getScreeningId(), node -> {
+            node.takeOverScreening(screeningReservations);
+            return null;
+        });
+    }
+
+    String ownerOf(int screeningId) {
+        Lock lock = membershipLock.readLock();
+        lock.lock();
+        try {
+            return currentOwnerOf(screeningId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds the node and moves the screenings it now owns to it. Returns the number of screenings moved.
+     */
+    int join(String nodeId) {
+        return changeMembership(ring -> ring.withNode(nodeId));
+    }
+
+    /**
+     * Moves the screenings owned by the node to the remaining nodes and removes it. Returns the number of screenings moved.
+     */
+    int leave(String nodeId) {
+        return changeMembership(ring -> ring.withoutNode(nodeId));
+    }
+
+    private int changeMembership(Function<ConsistentHashRing, ConsistentHashRing> change) {
+        Lock lock = membershipLock.writeLock();
+        lock.lock();
+        try {
+            ConsistentHashRing changed = change.apply(ring);
+
+            int moved = 0;
+            for (int screeningId : screeningIds.get()) {
+                String previousOwner = currentOwnerOf(screeningId);
+                String owner = changed.ownerOf(screeningId);
+                if (previousOwner.equals(owner)) {
+                    strandedOwners.remove(screeningId);
+                } else if (move(screeningId, previousOwner, owner)) {
+                    strandedOwners.remove(screeningId);
+                    moved++;
+                } else {
+                    strandedOwners.put(screeningId, previousOwner);
+                }
+            }
+
+            LOGGER.info("Nodes changed from {} to {}, moved {} screenings, {} stay with previous owners",
+                    ring.getNodes(), changed.getNodes(), moved, strandedOwners.size());
+            ring = changed;
+            return moved;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean move(int screeningId, String previousOwner, String owner) {
+        ScreeningReservationsDto reservations;
+        try {
+            reservations = transport.connect(previousOwner).handOffScreening(ScreeningIdDto.fromInt(screeningId));
+        } catch (RuntimeException e) {
+            LOGGER.error("Cannot hand off screening with id: {} from {}, it stays there", screeningId, previousOwner, e);
+            return false;
+        }
+
+        try {
+            transport.connect(owner).takeOverScreening(reservations);
+            return true;
+        } catch (RuntimeException e) {
+            LOGGER.error("Cannot move screening with id: {} to {}, giving its reservations back to {}", screeningId, owner, previousOwner, e);
+        }
+        try {
+            transport.connect(previousOwner).takeOverScreening(reservations);
+        } catch (RuntimeException e) {
+            LOGGER.error("Cannot give {} reservations of screening with id: {} back to {}, they are lost",
+                    reservations.getReservations().size(), screeningId, previousOwner, e);
+        }
+        return false;
+    }
+
+    private String currentOwnerOf(int screeningId) {
+        String strandedOwner = strandedOwners.get(screeningId);
+        return strandedOwner != null ? strandedOwner : ring.ownerOf(screeningId);
+    }
+
+    private <T> T route(int screeningId, Function<BookingNode, T> request) {
+        Lock lock = membershipLock.readLock();
+        lock.lock();
+        try {
+            return request.apply(transport.connect(currentOwnerOf(screeningId)));
+        } finally {
+            lock.unlock();
+        }
+    }
+}
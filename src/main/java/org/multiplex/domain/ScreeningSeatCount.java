@@ -0,0 +1,9 @@
+package org.multiplex.domain;
+
+import lombok.Value;
+
+@Value
+class ScreeningSeatCount {
+    private int screeningId;
+    private long seatCount;
+}
@@ -0,0 +1,69 @@
+package org.multiplex.domain;
+
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Version of a screening's seat map together with the last seat reservations and releases which led to it.
+ * Only the most recent {@code capacity} changes are kept.
+ */
+class SeatChangeLog {
+
+    private final SeatChange[] changes;
+    private int oldest;
+    private int size;
+
+    // version of the seat map before the oldest kept change
+    private long baseVersion;
+    private volatile long version;
+
+    SeatChangeLog(int capacity, long version) {
+        this.changes = new SeatChange[capacity];
+        this.baseVersion = version;
+        this.version = version;
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    synchronized void append(long version, boolean reserved, List<Seat> seats) {
+        if (size == changes.length) {
+            baseVersion = changes[oldest].getVersion();
+            oldest = (oldest + 1) % changes.length;
+            size--;
+        }
+
+        changes[(oldest + size) % changes.length] = new SeatChange(version, reserved, seats);
+        size++;
+        this.version = version;
+    }
+
+    /**
+     * Returns changes made after the given version in the order they were made
+     * or {@code null} if they are not known any more.
+     */
+    synchronized List<SeatChange> since(long sinceVersion) {
+        if (sinceVersion < baseVersion || sinceVersion > version) {
+            return null;
+        }
+
+        List<SeatChange> since = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            SeatChange change = changes[(oldest + i) % changes.length];
+            if (change.getVersion() > sinceVersion) {
+                since.add(change);
+            }
+        }
+        return since;
+    }
+
+    @Value
+    static class SeatChange {
+        private long version;
+        private boolean reserved;
+        private List<Seat> seats;
+    }
+}
@@ -0,0 +1,15 @@
+package org.multiplex.domain;
+
+import lombok.Value;
+import org.multiplex.domain.dto.ReservationDto.SeatToReserveDto;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+@Value
+class SeatHold {
+    private String id;
+    private int screeningId;
+    private List<SeatToReserveDto> seats;
+    private OffsetDateTime expirationTime;
+}
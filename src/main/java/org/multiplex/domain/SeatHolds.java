@@ -0,0 +1,153 @@
+package org.multiplex.domain;
+
+import org.multiplex.domain.dto.ReservationDto.SeatToReserveDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Seats claimed for a short time while a user is still choosing them. Holds live only in memory:
+ * their seats are taken in the {@link SeatOccupancyIndex} and given back when the hold is released or runs out.
+ * Callers are expected to hold the screening's lock when adding, removing or releasing a hold.
+ */
+class SeatHolds {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SeatHolds.class);
+
+    private final SeatOccupancyIndex seatOccupancyIndex;
+    private final ScreeningLocks screeningLocks;
+    private final Clock clock;
+    private final long ttlMillis;
+    private final long tickMillis;
+    private final Map<String, SeatHold> holds = new ConcurrentHashMap<>();
+    private final TimingWheel<String> timingWheel;
+
+    private ScheduledExecutorService scheduler;
+
+    SeatHolds(SeatOccupancyIndex seatOccupancyIndex, ScreeningLocks screeningLocks, Clock clock, long ttlMillis, long tickMillis) {
+        this.seatOccupancyIndex = seatOccupancyIndex;
+        this.screeningLocks = screeningLocks;
+        this.clock = clock;
+        this.ttlMillis = ttlMillis;
+        this.tickMillis = tickMillis;
+        this.timingWheel = new TimingWheel<>(tickMillis, clock.millis());
+    }
+
+    void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "seat-hold-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::sweepQuietly, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    SeatHold add(Screening screening, List<SeatToReserveDto> seats) {
+        long expirationMillis = clock.millis() + ttlMillis;
+        OffsetDateTime expirationTime = OffsetDateTime.ofInstant(Instant.ofEpochMilli(expirationMillis), clock.getZone());
+        SeatHold hold = new SeatHold(UUID.randomUUID().toString(), screening.getId(), List.copyOf(seats), expirationTime);
+
+        holds.put(hold.getId(), hold);
+        seatOccupancyIndex.hold(screening, seats(hold));
+        synchronized (timingWheel) {
+            timingWheel.add(expirationMillis, hold.getId());
+        }
+        return hold;
+    }
+
+    /**
+     * Returns the hold unless it does not exist or has already run out.
+     */
+    SeatHold get(String holdId) {
+        SeatHold hold = holds.get(holdId);
+        if (hold == null || !hold.getExpirationTime().toInstant().isAfter(clock.instant())) {
+            return null;
+        }
+        return hold;
+    }
+
+    /**
+     * Gives the hold's seats back and returns whether the hold was still there.
+     */
+    boolean release(SeatHold hold) {
+        if (!holds.remove(hold.getId(), hold)) {
+            return false;
+        }
+
+        seatOccupancyIndex.releaseHold(hold.getScreeningId(), seats(hold));
+        return true;
+    }
+
+    /**
+     * Removes the hold whose seats have been reserved, leaving them taken.
+     */
+    void confirm(SeatHold hold) {
+        if (holds.remove(hold.getId(), hold)) {
+            seatOccupancyIndex.forgetHold(hold.getScreeningId(), seats(hold));
+        }
+    }
+
+    /**
+     * Releases holds which have run out and returns how many of them there were.
+     */
+    int sweep() {
+        List<String> due = new ArrayList<>();
+        synchronized (timingWheel) {
+            timingWheel.advance(clock.millis(), due::add);
+        }
+
+        int expired = 0;
+        for (String holdId : due) {
+            SeatHold hold = holds.get(holdId);
+            if (hold == null) {
+                continue;
+            }
+
+            ScreeningLocks.Stripe stripe = screeningLocks.lock(hold.getScreeningId());
+            try {
+                if (release(hold)) {
+                    LOGGER.info("Seat hold {} of screening {} expired", holdId, hold.getScreeningId());
+                    expired++;
+                }
+            } finally {
+                stripe.unlock();
+            }
+        }
+        return expired;
+    }
+
+    int getCount() {
+        return holds.size();
+    }
+
+    private static List<Seat> seats(SeatHold hold) {
+        List<Seat> seats = new ArrayList<>(hold.getSeats().size());
+        hold.getSeats().forEach(seat -> seats.add(new Seat(seat.getRow(), seat.getColumn())));
+        return seats;
+    }
+
+    private void sweepQuietly() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            LOGGER.error("Sweeping expired seat holds failed", e);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package org.multiplex.domain;
+
+import org.multiplex.domain.dto.ScreeningIdDto;
+import org.multiplex.domain.dto.ScreeningSeatsChangesDto;
+import org.multiplex.domain.dto.ScreeningSeatsInfoDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes seat map changes to subscribers of a screening. Changed screenings are collected between dispatcher ticks,
+ * so a burst of reservations reaches subscribers as one event. Events are written by a small pool of senders
+ * and a subscriber whose queue of unsent events overflows is dropped.
+ */
+public class SeatMapBroadcaster implements SeatMapListener {
+
+    public static final String SEAT_MAP_EVENT = "seat-map";
+    public static final String SEAT_CHANGES_EVENT = "seat-changes";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SeatMapBroadcaster.class);
+
+    private final CinemaService cinemaService;
+    private final long dispatchMillis;
+    private final int senderThreads;
+    private final int queueCapacity;
+
+    private final Map<Integer, List<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final Set<Integer> changedScreenings = ConcurrentHashMap.newKeySet();
+
+    private Executor senders;
+    private ScheduledExecutorService dispatcher;
+
+    SeatMapBroadcaster(CinemaService cinemaService,
+                       SeatOccupancyIndex seatOccupancyIndex,
+                       long dispatchMillis,
+                       int senderThreads,
+                       int queueCapacity) {
+        this.cinemaService = cinemaService;
+        this.dispatchMillis = dispatchMillis;
+        this.senderThreads = senderThreads;
+        this.queueCapacity = queueCapacity;
+        seatOccupancyIndex.addListener(this);
+    }
+
+    void start() {
+        AtomicInteger senderCount = new AtomicInteger();
+        start(Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "seat-map-sender-" + senderCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }));
+
+        dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "seat-map-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dispatcher.scheduleWithFixedDelay(this::dispatchQuietly, dispatchMillis, dispatchMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts without the dispatcher thread, {@link #dispatch()} has to be called explicitly.
+     */
+    void start(Executor senders) {
+        this.senders = senders;
+    }
+
+    void stop() {
+        if (dispatcher != null) {
+            dispatcher.shutdownNow();
+        }
+        if (senders instanceof ExecutorService) {
+            ((ExecutorService) senders).shutdownNow();
+        }
+        subscriptions.values().forEach(screeningSubscriptions -> screeningSubscriptions.forEach(Subscription::close));
+    }
+
+    /**
+     * Sends the current seat map to the subscriber and then its changes until the subscriber is unsubscribed or dropped.
+     */
+    public void subscribe(ScreeningIdDto screeningId, SeatMapSubscriber subscriber) {
+
+        ScreeningSeatsInfoDto seatMap = cinemaService.getScreeningSeatsInfo(screeningId);
+
+        Subscription subscription = new Subscription(screeningId.getValue(), subscriber, seatMap.getVersion());
+        subscriptions.compute(screeningId.getValue(), (id, screeningSubscriptions) -> {
+            List<Subscription> updated = screeningSubscriptions != null ? screeningSubscriptions : new CopyOnWriteArrayList<>();
+            updated.add(subscription);
+            return updated;
+        });
+
+        subscription.offer(SEAT_MAP_EVENT, seatMap.getVersion(), seatMap);
+        // seats could have changed after the seat map was taken but before the subscription was visible
+        changedScreenings.add(screeningId.getValue());
+    }
+
+    public void unsubscribe(ScreeningIdDto screeningId, SeatMapSubscriber subscriber) {
+        subscriptions.computeIfPresent(screeningId.getValue(), (id, screeningSubscriptions) -> {
+            screeningSubscriptions.removeIf(subscription -> subscription.subscriber == subscriber);
+            return screeningSubscriptions.isEmpty() ? null : screeningSubscriptions;
+        });
+    }
+
+    int getSubscriberCount() {
+        return subscriptions.values().stream().mapToInt(List::size).sum();
+    }
+
+    @Override
+    public void onSeatMapChanged(int screeningId) {
+        if (subscriptions.containsKey(screeningId)) {
+            changedScreenings.add(screeningId);
+        }
+    }
+
+    /**
+     * Queues changes of every screening changed since the previous call for its subscribers.
+     */
+    void dispatch() {
+        Iterator<Integer> changed = changedScreenings.iterator();
+        while (changed.hasNext()) {
+            int screeningId = changed.next();
+            changed.remove();
+            dispatch(screeningId);
+        }
+    }
+
+    private void dispatch(int screeningId) {
+        List<Subscription> screeningSubscriptions = subscriptions.get(screeningId);
+        if (screeningSubscriptions == null) {
+            return;
+        }
+
+        // subscribers usually follow the same version, so its changes are built once for all of them
+        Map<Long, ScreeningSeatsChangesDto> changesSince = new HashMap<>();
+        for (Subscription subscription : screeningSubscriptions) {
+            ScreeningSeatsChangesDto changes = changesSince.computeIfAbsent(subscription.version,
+                    version -> cinemaService.getScreeningSeatsChanges(ScreeningIdDto.fromInt(screeningId), version));
+
+            if (changes.getVersion() != subscription.version) {
+                subscription.version = changes.getVersion();
+                subscription.offer(SEAT_CHANGES_EVENT, changes.getVersion(), changes);
+            }
+        }
+    }
+
+    private void dispatchQuietly() {
+        try {
+            dispatch();
+        } catch (RuntimeException e) {
+            LOGGER.error("Dispatching seat map changes failed", e);
+        }
+    }
+
+    private class Subscription {
+
+        private final int screeningId;
+        private final SeatMapSubscriber subscriber;
+        private final Queue<Event> events;
+        private final AtomicBoolean sending = new AtomicBoolean();
+
+        // changed only by the dispatcher
+        private long version;
+
+        Subscription(int screeningId, SeatMapSubscriber subscriber, long version) {
+            this.screeningId = screeningId;
+            this.subscriber = subscriber;
+            this.events = new ArrayBlockingQueue<>(queueCapacity);
+            this.version = version;
+        }
+
+        void offer(String eventName, long version, Object data) {
+            if (!events.offer(new Event(eventName, version, data))) {
+                LOGGER.info("Dropping subscriber of screening {} which is {} events behind", screeningId, queueCapacity);
+                drop();
+                return;
+            }
+
+            if (sending.compareAndSet(false, true)) {
+                senders.execute(this::send);
+            }
+        }
+
+        private void send() {
+            Event event;
+            while ((event = events.poll()) != null) {
+                try {
+                    subscriber.send(event.name, event.version, event.data);
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.debug("Cannot send seat map event to subscriber of screening {}", screeningId, e);
+                    drop();
+                    return;
+                }
+            }
+
+            sending.set(false);
+            // an event offered after the queue was found empty but before the flag was cleared
+            if (!events.isEmpty() && sending.compareAndSet(false, true)) {
+                senders.execute(this::send);
+            }
+        }
+
+        private void drop() {
+            unsubscribe(ScreeningIdDto.fromInt(screeningId), subscriber);
+            events.clear();
+            close();
+        }
+
+        private void close() {
+            try {
+                subscriber.close();
+            } catch (RuntimeException e) {
+                LOGGER.debug("Cannot close subscriber of screening {}", screeningId, e);
+            }
+        }
+    }
+
+    private static class Event {
+
+        private final String name;
+        private final long version;
+        private final Object data;
+
+        Event(String name, long version, Object data) {
+            this.name = name;
+            this.version = version;
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package org.multiplex.domain;
+
+interface SeatMapListener {
+
+    /**
+     * Called after seats of the screening were taken or freed or its seat map was dropped.
+     * Runs on the thread which made the change, so it must not block.
+     */
+    void onSeatMapChanged(int screeningId);
+}
@@ -0,0 +1,16 @@
+package org.multiplex.domain;
+
+import java.io.IOException;
+
+/**
+ * Client following changes of one screening's seat map, e.g. over a server-sent events connection.
+ */
+public interface SeatMapSubscriber {
+
+    void send(String eventName, long version, Object data) throws IOException;
+
+    /**
+     * Ends the subscription from the server side, e.g. when the client cannot keep up.
+     */
+    void close();
+}
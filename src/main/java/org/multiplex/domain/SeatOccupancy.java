@@ -0,0 +1,158 @@
+package org.multiplex.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+class SeatOccupancy {
+
+    private static final int WORD_BITS = Long.SIZE;
+
+    private final int rowCount;
+    private final int columnCount;
+    private final AtomicLongArray words;
+
+    SeatOccupancy(int rowCount, int columnCount) {
+        this.rowCount = rowCount;
+        this.columnCount = columnCount;
+        this.words = new AtomicLongArray((rowCount * columnCount + WORD_BITS - 1) / WORD_BITS);
+    }
+
+    int getRowCount() {
+        return rowCount;
+    }
+
+    int getColumnCount() {
+        return columnCount;
+    }
+
+    boolean contains(int row, int column) {
+        return row >= 1 && row <= rowCount && column >= 1 && column <= columnCount;
+    }
+
+    boolean isReserved(int row, int column) {
+        int bit = bitIndex(row, column);
+        return (words.get(bit / WORD_BITS) & (1L << bit)) != 0;
+    }
+
+    void reserve(int row, int column) {
+        int bit = bitIndex(row, column);
+        int word = bit / WORD_BITS;
+        long mask = 1L << bit;
+
+        long current;
+        do {
+            current = words.get(word);
+        } while (!words.compareAndSet(word, current, current | mask));
+    }
+
+    void release(int row, int column) {
+        int bit = bitIndex(row, column);
+        int word = bit / WORD_BITS;
+        long mask = 1L << bit;
+
+        long current;
+        do {
+            current = words.get(word);
+        } while (!words.compareAndSet(word, current, current & ~mask));
+    }
+
+    int getReservedCount() {
+        int count = 0;
+        for (int i = 0; i < words.length(); i++) {
+            count += Long.bitCount(words.get(i));
+        }
+        return count;
+    }
+
+    int getFreeCount() {
+        return rowCount * columnCount - getReservedCount();
+    }
+
+    /**
+     * Returns up to 64 seats of given row starting at column {@code word * 64 + 1},
+     * bit 0 being the first of them. Bits past the end of the row are always zero.
+     */
+    long rowWord(int row, int word) {
+        int firstColumn = word * WORD_BITS;
+        if (row < 1 || row > rowCount || firstColumn >= columnCount || firstColumn < 0) {
+            return 0L;
+        }
+
+        int bit = (row - 1) * columnCount + firstColumn;
+        int index = bit / WORD_BITS;
+        int offset = bit % WORD_BITS;
+
+        long value = words.get(index) >>> offset;
+        if (offset != 0 && index + 1 < words.length()) {
+            value |= words.get(index + 1) << (WORD_BITS - offset);
+        }
+
+        int columnsLeft = columnCount - firstColumn;
+        return columnsLeft >= WORD_BITS ? value : value & ((1L << columnsLeft) - 1);
+    }
+
+    /**
+     * Returns the first column of the row from {@code fromColumn} on whose seat is reserved, or free when
+     * {@code reserved} is false, and column count + 1 if there is no such seat.
+     */
+    int nextColumn(int row, int fromColumn, boolean reserved) {
+        int column = Math.max(fromColumn, 1);
+        while (column <= columnCount) {
+            int word = (column - 1) / WORD_BITS;
+            long seats = reserved ? rowWord(row, word) : ~rowWord(row, word);
+            seats &= -1L << ((column - 1) % WORD_BITS);
+
+            if (seats != 0) {
+                return Math.min(word * WORD_BITS + Long.numberOfTrailingZeros(seats) + 1, columnCount + 1);
+            }
+            column = (word + 1) * WORD_BITS + 1;
+        }
+        return columnCount + 1;
+    }
+
+    void forEachReserved(SeatConsumer consumer) {
+        forEach(consumer, true);
+    }
+
+    void forEachAvailable(SeatConsumer consumer) {
+        forEach(consumer, false);
+    }
+
+    io.vavr.collection.List<Seat> getReservedSeats() {
+        List<Seat> seats = new ArrayList<>();
+        forEachReserved((row, column) -> seats.add(new Seat(row, column)));
+        return io.vavr.collection.List.ofAll(seats);
+    }
+
+    private void forEach(SeatConsumer consumer, boolean reserved) {
+        int seatCount = rowCount * columnCount;
+
+        for (int i = 0; i < words.length(); i++) {
+            long word = reserved ? words.get(i) : ~words.get(i);
+
+            int seatsInWord = Math.min(WORD_BITS, seatCount - i * WORD_BITS);
+            if (seatsInWord < WORD_BITS) {
+                word &= (1L << seatsInWord) - 1;
+            }
+
+            while (word != 0) {
+                int bit = i * WORD_BITS + Long.numberOfTrailingZeros(word);
+                consumer.accept(bit / columnCount + 1, bit % columnCount + 1);
+                word &= word - 1;
+            }
+        }
+    }
+
+    private int bitIndex(int row, int column) {
+        if (!contains(row, column)) {
+            throw new IndexOutOfBoundsException("Seat at row: " + row + " and column: " + column + " is out of room");
+        }
+        return (row - 1) * columnCount + (column - 1);
+    }
+
+    @FunctionalInterface
+    interface SeatConsumer {
+        void accept(int row, int column);
+    }
+}
@@ -0,0 +1,176 @@
+package org.multiplex.domain;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+class SeatOccupancyIndex {
+
+    private static final int CHANGE_LOG_CAPACITY = 256;
+
+    private final ReservationRepository reservationRepository;
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Integer, Set<Seat>> heldSeats = new ConcurrentHashMap<>();
+    private final List<SeatMapListener> listeners = new CopyOnWriteArrayList<>();
+
+    // shared by all screenings, so a rebuilt seat map never gets a version it had before;
+    // started from the clock to keep versions growing across restarts
+    private final AtomicLong versions;
+
+    SeatOccupancyIndex(ReservationRepository reservationRepository, Clock clock) {
+        this.reservationRepository = reservationRepository;
+        this.versions = new AtomicLong(clock.millis() * 1000);
+    }
+
+    void addListener(SeatMapListener listener) {
+        listeners.add(listener);
+    }
+
+    SeatOccupancy get(Screening screening) {
+        return entry(screening).occupancy;
+    }
+
+    /**
+     * Returns the seat map of the screening or {@code null} if it is not loaded at the moment.
+     */
+    SeatOccupancy getIfLoaded(int screeningId) {
+        Entry entry = entries.get(screeningId);
+        return entry != null ? entry.occupancy : null;
+    }
+
+    long getVersion(Screening screening) {
+        return entry(screening).changeLog.getVersion();
+    }
+
+    /**
+     * Returns seat reservations and releases made after the given version of the screening's seat map
+     * or {@code null} if they are not known any more.
+     */
+    List<SeatChangeLog.SeatChange> getChangesSince(Screening screening, long version) {
+        return entry(screening).changeLog.since(version);
+    }
+
+    void reserve(Screening screening, Reservation reservation) {
+        List<Seat> seats = new ArrayList<>(reservation.getReservedSeats().size());
+        reservation.getReservedSeats().forEach(seat -> seats.add(new Seat(seat.getRow(), seat.getColumn())));
+        change(screening.getId(), seats, true);
+    }
+
+    /**
+     * Frees seats of the reservation and returns them.
+     */
+    List<Seat> release(int screeningId, int reservationId) {
+        List<Seat> seats = reservationRepository.findReservedSeats(reservationId);
+        change(screeningId, seats, false);
+        return seats;
+    }
+
+    /**
+     * Marks seats held in memory as taken. Unlike reserved seats they are not in the database,
+     * so they are kept aside and taken again whenever the screening's seat map is loaded.
+     */
+    void hold(Screening screening, List<Seat> seats) {
+        heldSeats.compute(screening.getId(), (id, held) -> {
+            Set<Seat> updated = held != null ? held : ConcurrentHashMap.newKeySet();
+            updated.addAll(seats);
+            return updated;
+        });
+        change(screening.getId(), seats, true);
+    }
+
+    int getHeldCount(int screeningId) {
+        return heldSeats.getOrDefault(screeningId, Set.of()).size();
+    }
+
+    void releaseHold(int screeningId, List<Seat> seats) {
+        forgetHold(screeningId, seats);
+        change(screeningId, seats, false);
+    }
+
+    /**
+     * Stops keeping held seats aside without freeing them, as they are reserved now.
+     */
+    void forgetHold(int screeningId, List<Seat> seats) {
+        heldSeats.computeIfPresent(screeningId, (id, held) -> {
+            held.removeAll(seats);
+            return held.isEmpty() ? null : held;
+        });
+    }
+
+    void invalidate(int screeningId) {
+        if (entries.remove(screeningId) != null) {
+            notifyListeners(screeningId);
+        }
+    }
+
+    private void change(int screeningId, List<Seat> seats, boolean reserved) {
+        Entry changed = entries.computeIfPresent(screeningId, (id, entry) -> {
+            List<Seat> changedSeats = new ArrayList<>(seats.size());
+            for (Seat seat : seats) {
+                if (entry.occupancy.contains(seat.getRow(), seat.getColumn())) {
+                    if (reserved) {
+                        entry.occupancy.reserve(seat.getRow(), seat.getColumn());
+                    } else {
+                        entry.occupancy.release(seat.getRow(), seat.getColumn());
+                    }
+                    changedSeats.add(seat);
+                }
+            }
+            entry.changeLog.append(versions.incrementAndGet(), reserved, changedSeats);
+            return entry;
+        });
+
+        if (changed != null) {
+            notifyListeners(screeningId);
+        }
+    }
+
+    private void notifyListeners(int screeningId) {
+        for (SeatMapListener listener : listeners) {
+            listener.onSeatMapChanged(screeningId);
+        }
+    }
+
+    private Entry entry(Screening screening) {
+        Entry entry = entries.get(screening.getId());
+        if (entry != null) {
+            return entry;
+        }
+
+        return entries.computeIfAbsent(screening.getId(), id -> load(screening));
+    }
+
+    private Entry load(Screening screening) {
+        Room room = screening.getRoom();
+        SeatOccupancy occupancy = new SeatOccupancy(room.getRowCount(), room.getColumnCount());
+
+        for (Seat seat : reservationRepository.findActiveReservedSeats(screening.getId())) {
+            if (occupancy.contains(seat.getRow(), seat.getColumn())) {
+                occupancy.reserve(seat.getRow(), seat.getColumn());
+            }
+        }
+        for (Seat seat : heldSeats.getOrDefault(screening.getId(), Set.of())) {
+            if (occupancy.contains(seat.getRow(), seat.getColumn())) {
+                occupancy.reserve(seat.getRow(), seat.getColumn());
+            }
+        }
+
+        return new Entry(occupancy, new SeatChangeLog(CHANGE_LOG_CAPACITY, versions.incrementAndGet()));
+    }
+
+    private static class Entry {
+
+        private final SeatOccupancy occupancy;
+        private final SeatChangeLog changeLog;
+
+        Entry(SeatOccupancy occupancy, SeatChangeLog changeLog) {
+            this.occupancy = occupancy;
+            this.changeLog = changeLog;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.multiplex.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel: every level has {@value #WHEEL_SIZE} slots and a slot of a level spans a whole
+ * revolution of the level below. Timers of a higher level are cascaded down when their slot comes up,
+ * so adding a timer and expiring it are both constant time regardless of how far in the future it is.
+ * <p>
+ * Not thread safe.
+ */
+class TimingWheel<T> {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+    private static final long RANGE = 1L << (WHEEL_BITS * LEVELS);
+
+    private final long tickMillis;
+    private final List<Timer<T>>[][] slots;
+    private final List<Timer<T>> overdue = new ArrayList<>();
+
+    // the last tick whose slot has been expired
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(long tickMillis, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick has to be positive: " + tickMillis);
+        }
+        this.tickMillis = tickMillis;
+        this.slots = new List[LEVELS][WHEEL_SIZE];
+        this.currentTick = Math.floorDiv(startMillis, tickMillis);
+    }
+
+    void add(long deadlineMillis, T item) {
+        // rounded up, so a timer never fires before its deadline
+        long deadlineTick = Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis);
+        place(new Timer<>(deadlineTick, item));
+        size++;
+    }
+
+    /**
+     * Moves the wheel to the given time and passes every item whose deadline has passed to the consumer.
+     */
+    void advance(long nowMillis, Consumer<T> expired) {
+        long nowTick = Math.floorDiv(nowMillis, tickMillis);
+
+        expire(overdue, expired);
+
+        while (currentTick < nowTick) {
+            if (size == 0) {
+                currentTick = nowTick;
+                break;
+            }
+
+            currentTick++;
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (WHEEL_BITS * level)) - 1)) == 0) {
+                    cascade(level);
+                }
+            }
+
+            List<Timer<T>> slot = slots[0][(int) (currentTick & WHEEL_MASK)];
+            if (slot != null) {
+                expire(slot, expired);
+            }
+            // cascaded timers due exactly at this tick
+            expire(overdue, expired);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void place(Timer<T> timer) {
+        long delta = timer.deadlineTick - currentTick;
+        if (delta <= 0) {
+            overdue.add(timer);
+            return;
+        }
+
+        // timers further away than the whole wheel wait in the last slot of the top level and are placed again later
+        long placementTick = delta < RANGE ? timer.deadlineTick : currentTick + RANGE - 1;
+        delta = placementTick - currentTick;
+
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (WHEEL_BITS * (level + 1))) {
+            level++;
+        }
+
+        int index = (int) ((placementTick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+        if (slots[level][index] == null) {
+            slots[level][index] = new ArrayList<>();
+        }
+        slots[level][index].add(timer);
+    }
+
+    private void cascade(int level) {
+        int index = (int) ((currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+        List<Timer<T>> slot = slots[level][index];
+        if (slot == null || slot.isEmpty()) {
+            return;
+        }
+
+        slots[level][index] = null;
+        slot.forEach(this::place);
+    }
+
+    private void expire(List<Timer<T>> timers, Consumer<T> expired) {
+        if (timers.isEmpty()) {
+            return;
+        }
+
+        List<Timer<T>> due = new ArrayList<>(timers);
+        timers.clear();
+        size -= due.size();
+        due.forEach(timer -> expired.accept(timer.item));
+    }
+
+    private static class Timer<T> {
+
+        private final long deadlineTick;
+        private final T item;
+
+        Timer(long deadlineTick, T item) {
+            this.deadlineTick = deadlineTick;
+            this.item = item;
+        }
+    }
+}
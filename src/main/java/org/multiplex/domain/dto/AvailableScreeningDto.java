@@ -1,14 +1,22 @@
 package org.multiplex.domain.dto;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Value;
 
 import java.time.OffsetDateTime;
 
 @Builder
+@AllArgsConstructor
 @Value
 public class AvailableScreeningDto {
     private int screeningId;
     private String movieTitle;
     private OffsetDateTime startScreeningTime;
+    private Integer seatsLeft;
+    private Boolean soldOut;
+
+    public AvailableScreeningDto(int screeningId, String movieTitle, OffsetDateTime startScreeningTime) {
+        this(screeningId, movieTitle, startScreeningTime, null, null);
+    }
 }
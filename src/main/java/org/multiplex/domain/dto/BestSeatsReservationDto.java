@@ -0,0 +1,20 @@
+package org.multiplex.domain.dto;
+
+import lombok.Builder;
+import lombok.Value;
+import org.multiplex.domain.dto.ReservationDto.BookingUserDto;
+import org.multiplex.domain.dto.ReservationDto.ReservationType;
+
+import java.util.List;
+
+/**
+ * Reservation of seats next to each other chosen by the cinema, one seat for every reservation type.
+ */
+@Builder
+@Value
+public class BestSeatsReservationDto {
+
+    private int screeningId;
+    private List<ReservationType> reservationTypes;
+    private BookingUserDto bookingUser;
+}
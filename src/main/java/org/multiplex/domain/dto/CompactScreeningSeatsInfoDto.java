@@ -0,0 +1,22 @@
+package org.multiplex.domain.dto;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+@Builder
+@Value
+public class CompactScreeningSeatsInfoDto {
+    private int screeningId;
+    private String roomName;
+    private long version;
+    private int rowCount;
+    private int columnCount;
+    private int availableSeatCount;
+    /**
+     * Seats of every row from the first column as runs of available ({@code A}) and reserved ({@code R}) seats,
+     * e.g. {@code A3R2A20} for 3 available, 2 reserved and 20 available seats.
+     */
+    private List<String> rows;
+}
@@ -0,0 +1,15 @@
+package org.multiplex.domain.dto;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Builder
+@Value
+public class LockStripeStatsDto {
+    private int stripe;
+    private long acquisitions;
+    private long contendedAcquisitions;
+    private long totalWaitMicros;
+    private long maxWaitMicros;
+    private int queueLength;
+}
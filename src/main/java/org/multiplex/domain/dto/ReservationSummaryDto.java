@@ -5,6 +5,7 @@ import lombok.Value;
 
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
+import java.util.List;
 
 @Builder
 @Value
@@ -12,4 +13,13 @@ public class ReservationSummaryDto {
     private int reservationId;
     private BigDecimal totalCost;
     private OffsetDateTime expirationTime;
+    private List<ReservedSeatDto> reservedSeats;
+
+    @Builder
+    @Value
+    public static class ReservedSeatDto {
+        private int row;
+        private int column;
+        private ReservationDto.ReservationType reservationType;
+    }
 }
@@ -0,0 +1,21 @@
+package org.multiplex.domain.dto;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Builder
+@Value
+public class ScheduleImportDto {
+
+    public enum State {
+        WAITING, RUNNING, DONE, FAILED
+    }
+
+    private State state;
+    private long linesRead;
+    private int movies;
+    private int rooms;
+    private long screenings;
+    private long elapsedMillis;
+    private String error;
+}
@@ -0,0 +1,15 @@
+package org.multiplex.domain.dto;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Builder
+@Value
+public class ScreeningCacheStatsDto {
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+    private int cachedDays;
+    private int maxCachedDays;
+}
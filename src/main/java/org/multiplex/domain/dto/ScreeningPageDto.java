@@ -0,0 +1,14 @@
+package org.multiplex.domain.dto;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+@Builder
+@Value
+public class ScreeningPageDto {
+    private List<AvailableScreeningDto> screenings;
+    // null on the last page
+    private String nextCursor;
+}
@@ -0,0 +1,25 @@
+package org.multiplex.domain.dto;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+@Builder
+@Value
+public class ScreeningReservationsDto {
+    private int screeningId;
+    private List<HandedOffReservationDto> reservations;
+
+    @Builder
+    @Value
+    public static class HandedOffReservationDto {
+        private ReservationDto.BookingUserDto bookingUser;
+        private OffsetDateTime expirationTime;
+        private BigDecimal totalCost;
+        private boolean paid;
+        private List<ReservationSummaryDto.ReservedSeatDto> reservedSeats;
+    }
+}
@@ -0,0 +1,27 @@
+package org.multiplex.domain.dto;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+@Builder
+@Value
+public class ScreeningSeatsChangesDto {
+    private int screeningId;
+    private long sinceVersion;
+    private long version;
+    private List<SeatDto> takenSeats;
+    private List<SeatDto> freedSeats;
+    /**
+     * Whole seat map, given instead of the changes when they are not known any more.
+     */
+    private ScreeningSeatsInfoDto seatMap;
+
+    @Builder
+    @Value
+    public static class SeatDto {
+        private int row;
+        private int column;
+    }
+}
@@ -10,6 +10,7 @@ import java.util.List;
 public class ScreeningSeatsInfoDto {
     private int screeningId;
     private String roomName;
+    private long version;
     private List<AvailableSeatDto> availableSeats;
 
     @Builder
@@ -0,0 +1,15 @@
+package org.multiplex.domain.dto;
+
+import lombok.Builder;
+import lombok.Value;
+import org.multiplex.domain.dto.ReservationDto.SeatToReserveDto;
+
+import java.util.List;
+
+@Builder
+@Value
+public class SeatHoldDto {
+
+    private int screeningId;
+    private List<SeatToReserveDto> seatsToHold;
+}
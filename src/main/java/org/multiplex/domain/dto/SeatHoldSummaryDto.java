@@ -0,0 +1,13 @@
+package org.multiplex.domain.dto;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.OffsetDateTime;
+
+@Builder
+@Value
+public class SeatHoldSummaryDto {
+    private String holdId;
+    private OffsetDateTime expirationTime;
+}
@@ -0,0 +1,8 @@
+package org.multiplex.domain.exception;
+
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String cursor) {
+        super("Cursor: " + cursor + " is invalid");
+    }
+}
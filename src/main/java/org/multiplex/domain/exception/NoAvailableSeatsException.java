@@ -0,0 +1,8 @@
+package org.multiplex.domain.exception;
+
+public class NoAvailableSeatsException extends RuntimeException {
+
+    public NoAvailableSeatsException(int seatCount) {
+        super("There are no " + seatCount + " available seats next to each other");
+    }
+}
@@ -0,0 +1,8 @@
+package org.multiplex.domain.exception;
+
+public class SeatHoldNotFoundException extends RuntimeException {
+
+    public SeatHoldNotFoundException(String id) {
+        super("Seat hold with id: " + id + " doesn't exist or has expired");
+    }
+}
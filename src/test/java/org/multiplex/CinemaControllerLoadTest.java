@@ -0,0 +1,232 @@
+package org.multiplex;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+/**
+ * Mixed seat map reads and reservations sent over HTTP by many clients to the app started
+ * in the synchronous and in the asynchronous mode. Run with {@code mvn -Pstress test}.
+ */
+@Tag("stress")
+class CinemaControllerLoadTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CinemaControllerLoadTest.class);
+
+    private static final int CLIENTS = 64;
+    private static final int REQUESTS_PER_CLIENT = 100;
+    private static final double WRITE_SHARE = 0.2;
+
+    // sample screenings start in December 2019
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2019-12-09T10:00:00Z"), ZoneOffset.UTC);
+
+    @Test
+    void handlesMixedLoad_InSynchronousMode() throws Exception {
+
+        LoadResult result = runLoad("sync", "--cinema.web.async.enabled=false", "--cinema.admission.enabled=false");
+
+        then(result.count(200)).isPositive();
+        then(result.statuses()).containsOnlyKeys(200, 400);
+    }
+
+    @Test
+    void handlesMixedLoad_InAsynchronousMode() throws Exception {
+
+        LoadResult result = runLoad("async", "--cinema.web.async.enabled=true", "--cinema.admission.enabled=false");
+
+        then(result.count(200)).isPositive();
+        then(result.statuses().keySet()).isSubsetOf(200, 400, 503);
+    }
+
+    @Test
+    void rejectsRequestsWithServiceUnavailable_WhenAsynchronousQueuesAreFull() throws Exception {
+
+        LoadResult result = runLoad("async overloaded", "--cinema.web.async.enabled=true", "--cinema.admission.enabled=false",
+                "--cinema.web.async.read-threads=1", "--cinema.web.async.read-queue=1",
+                "--cinema.web.async.write-threads=1", "--cinema.web.async.write-queue=1");
+
+        then(result.count(200)).isPositive();
+        then(result.count(503)).isPositive();
+        then(result.statuses().keySet()).isSubsetOf(200, 400, 503);
+    }
+
+    @Test
+    void rejectsRequestsWithTooManyRequests_WhenAdmissionLimitsAreExceeded() throws Exception {
+
+        // all clients share one address, so they share the client bucket
+        LoadResult result = runLoad("admission control", "--cinema.web.async.enabled=false",
+                "--cinema.admission.client.rate=100", "--cinema.admission.client.burst=100",
+                "--cinema.admission.reservations.initial-limit=2", "--cinema.admission.reservations.max-limit=4");
+
+        then(result.count(200)).isPositive();
+        then(result.count(429)).isPositive();
+        then(result.statuses().keySet()).isSubsetOf(200, 400, 429);
+    }
+
+    private LoadResult runLoad(String mode, String... args) throws Exception {
+
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        arguments.add("--server.port=0");
+        arguments.add("--server.tomcat.max-threads=16");
+        // every reservation is logged, which would make the console the bottleneck
+        arguments.add("--logging.level.org.multiplex.domain=WARN");
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(App.class)
+                .initializers(applicationContext -> ((GenericApplicationContext) applicationContext)
+                        .registerBean("loadTestClock", Clock.class, () -> CLOCK, definition -> definition.setPrimary(true)))
+                .run(arguments.toArray(new String[0]))) {
+
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String baseUrl = "http://localhost:" + port;
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            List<Integer> screeningIds = screeningIds(client, baseUrl);
+
+            LoadResult result = new LoadResult();
+            ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicInteger nextSeat = new AtomicInteger();
+
+            for (int i = 0; i < CLIENTS; i++) {
+                Random random = new Random(i);
+                clients.submit(() -> {
+                    start.await();
+                    for (int request = 0; request < REQUESTS_PER_CLIENT; request++) {
+                        int screeningId = screeningIds.get(random.nextInt(screeningIds.size()));
+                        if (random.nextDouble() < WRITE_SHARE) {
+                            int seat = nextSeat.getAndIncrement();
+                            result.add(true, send(client, reservation(baseUrl, screeningId, 1 + seat / 5 % 5, 1 + seat % 5 * 2)));
+                        } else {
+                            result.add(false, send(client, HttpRequest.newBuilder(URI.create(baseUrl + "/screening/" + screeningId)).build()));
+                        }
+                    }
+                    return null;
+                });
+            }
+
+            long startNanos = System.nanoTime();
+            start.countDown();
+            clients.shutdown();
+            then(clients.awaitTermination(5, TimeUnit.MINUTES)).isTrue();
+            long elapsedNanos = System.nanoTime() - startNanos;
+
+            LOGGER.warn("{} mode - throughput: {} req/s, reads: {}, writes: {}, statuses: {}", mode,
+                    (long) (CLIENTS * REQUESTS_PER_CLIENT / (elapsedNanos / 1e9)),
+                    result.latencies(false), result.latencies(true), result.statuses());
+            return result;
+        }
+    }
+
+    private static List<Integer> screeningIds(HttpClient client, String baseUrl) throws Exception {
+        // sample screenings are imported in the background after startup
+        Pattern importing = Pattern.compile("\"state\":\"(WAITING|RUNNING)\"");
+        while (importing.matcher(client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/stats/schedule-import")).build(),
+                HttpResponse.BodyHandlers.ofString()).body()).find()) {
+            Thread.sleep(10);
+        }
+
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl
+                + "/screenings?from=2019-12-01T00:00:00Z&to=2020-01-01T00:00:00Z")).build(), HttpResponse.BodyHandlers.ofString());
+
+        List<Integer> screeningIds = new ArrayList<>();
+        Matcher matcher = Pattern.compile("\"screeningId\":(\\d+)").matcher(response.body());
+        while (matcher.find()) {
+            screeningIds.add(Integer.parseInt(matcher.group(1)));
+        }
+        then(screeningIds).isNotEmpty();
+        return screeningIds;
+    }
+
+    private static HttpRequest reservation(String baseUrl, int screeningId, int row, int column) {
+        String body = "{\"screeningId\":" + screeningId + ",\"seatsToReserve\":[{\"row\":" + row + ",\"column\":" + column
+                + ",\"reservationType\":\"ADULT\"}],\"bookingUser\":{\"name\":\"John\",\"surname\":\"Smith\"}}";
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/reserve"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static Sample send(HttpClient client, HttpRequest request) {
+        long startNanos = System.nanoTime();
+        try {
+            int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            return new Sample(status, (System.nanoTime() - startNanos) / 1_000);
+        } catch (Exception e) {
+            return new Sample(-1, (System.nanoTime() - startNanos) / 1_000);
+        }
+    }
+
+    private static class Sample {
+
+        private final int status;
+        private final long latencyMicros;
+
+        Sample(int status, long latencyMicros) {
+            this.status = status;
+            this.latencyMicros = latencyMicros;
+        }
+    }
+
+    private static class LoadResult {
+
+        private final Map<Integer, AtomicInteger> statuses = new ConcurrentHashMap<>();
+        private final ConcurrentLinkedQueue<Long> readLatencies = new ConcurrentLinkedQueue<>();
+        private final ConcurrentLinkedQueue<Long> writeLatencies = new ConcurrentLinkedQueue<>();
+
+        void add(boolean write, Sample sample) {
+            statuses.computeIfAbsent(sample.status, status -> new AtomicInteger()).incrementAndGet();
+            (write ? writeLatencies : readLatencies).add(sample.latencyMicros);
+        }
+
+        int count(int status) {
+            AtomicInteger count = statuses.get(status);
+            return count == null ? 0 : count.get();
+        }
+
+        Map<Integer, Integer> statuses() {
+            Map<Integer, Integer> counts = new ConcurrentHashMap<>();
+            statuses.forEach((status, count) -> counts.put(status, count.get()));
+            return counts;
+        }
+
+        String latencies(boolean write) {
+            long[] latencies = (write ? writeLatencies : readLatencies).stream().mapToLong(Long::longValue).sorted().toArray();
+            if (latencies.length == 0) {
+                return "none";
+            }
+            return String.format("p50: %d us, p99: %d us", percentile(latencies, 50), percentile(latencies, 99));
+        }
+
+        private static long percentile(long[] sorted, double percentile) {
+            return sorted[Math.max(0, (int) Math.ceil(percentile / 100 * sorted.length) - 1)];
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.multiplex;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+class ConcurrencyLimitTest {
+
+    private static final long TARGET = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    void tryAcquire_RejectsRequestsOverLimit() {
+
+        //given
+        ConcurrencyLimit limit = ConcurrencyLimit.fixed(2);
+
+        //when
+        then(limit.tryAcquire()).isTrue();
+        then(limit.tryAcquire()).isTrue();
+        then(limit.tryAcquire()).isFalse();
+        limit.release(10 * TARGET, 0);
+
+        //then
+        then(limit.tryAcquire()).isTrue();
+        then(limit.getLimit()).isEqualTo(2);
+        then(limit.getInFlight()).isEqualTo(2);
+    }
+
+    @Test
+    void release_IncreasesLimitByAboutOnePerRound_WhenFastAndInUse() {
+
+        //given
+        ConcurrencyLimit limit = new ConcurrencyLimit(4, 1, 10, TARGET, 0);
+        while (limit.tryAcquire()) {
+        }
+
+        //when
+        for (int i = 0; i < 30; i++) {
+            limit.release(TARGET / 2, 0);
+            while (limit.tryAcquire()) {
+            }
+        }
+
+        //then
+        then(limit.getLimit()).isEqualTo(8);
+        then(limit.getInFlight()).isEqualTo(8);
+    }
+
+    @Test
+    void release_DoesNotIncreaseLimit_WhenMostlyIdle() {
+
+        //given
+        ConcurrencyLimit limit = new ConcurrencyLimit(10, 1, 20, TARGET, 0);
+
+        //when
+        for (int i = 0; i < 100; i++) {
+            limit.tryAcquire();
+            limit.release(TARGET / 2, 0);
+        }
+
+        //then
+        then(limit.getLimit()).isEqualTo(10);
+    }
+
+    @Test
+    void release_DecreasesLimitOncePerTargetLatency_WhenSlow() {
+
+        //given
+        ConcurrencyLimit limit = new ConcurrencyLimit(20, 2, 20, TARGET, 0);
+        for (int i = 0; i < 20; i++) {
+            limit.tryAcquire();
+        }
+
+        //when
+        for (int i = 0; i < 10; i++) {
+            limit.release(2 * TARGET, TARGET);
+        }
+        int afterOverload = limit.getLimit();
+        limit.release(2 * TARGET, 2 * TARGET);
+
+        //then
+        then(afterOverload).isEqualTo(18);
+        then(limit.getLimit()).isEqualTo(16);
+    }
+
+    @Test
+    void release_KeepsLimitAboveMinimum() {
+
+        //given
+        ConcurrencyLimit limit = new ConcurrencyLimit(3, 2, 10, TARGET, 0);
+
+        //when
+        for (int i = 1; i <= 20; i++) {
+            limit.tryAcquire();
+            limit.release(2 * TARGET, i * TARGET);
+        }
+
+        //then
+        then(limit.getLimit()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,118 @@
+package org.multiplex;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Clock;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.BDDAssertions.then;
+import static org.assertj.core.api.BDDAssertions.thenThrownBy;
+
+class IdempotentRequestsTest {
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @Test
+    void execute_ReturnsFirstResult_ForRepeatedKey() {
+
+        //given
+        IdempotentRequests idempotentRequests = new IdempotentRequests(Clock.systemUTC(), 60_000, 100);
+
+        //when
+        int first = idempotentRequests.execute("key", "request", this::count).join();
+        int repeated = idempotentRequests.execute("key", "request", this::count).join();
+        int otherKey = idempotentRequests.execute("other", "request", this::count).join();
+        int withoutKey = idempotentRequests.execute(null, "request", this::count).join();
+
+        //then
+        then(first).isEqualTo(1);
+        then(repeated).isEqualTo(1);
+        then(otherKey).isEqualTo(2);
+        then(withoutKey).isEqualTo(3);
+    }
+
+    @Test
+    void execute_RejectsKeyReused_ForAnotherRequest() {
+
+        //given
+        IdempotentRequests idempotentRequests = new IdempotentRequests(Clock.systemUTC(), 60_000, 100);
+        idempotentRequests.execute("key", "request", this::count);
+
+        //when
+        thenThrownBy(() -> idempotentRequests.execute("key", "another request", this::count))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("422");
+        then(executions).hasValue(1);
+    }
+
+    @Test
+    void execute_GivesRunningRequestsResult_ToRepeatWithoutWaiting() {
+
+        //given
+        IdempotentRequests idempotentRequests = new IdempotentRequests(Clock.systemUTC(), 60_000, 100);
+        CompletableFuture<Integer> running = new CompletableFuture<>();
+        CompletableFuture<Integer> first = idempotentRequests.execute("key", "request", () -> running);
+
+        //when
+        CompletableFuture<Integer> repeated = idempotentRequests.execute("key", "request", this::count);
+        then(repeated).isNotDone();
+        running.complete(7);
+
+        //then
+        then(first.join()).isEqualTo(7);
+        then(repeated.join()).isEqualTo(7);
+        then(executions).hasValue(0);
+    }
+
+    @Test
+    void execute_RunsAgain_WhenFirstRequestFailed() {
+
+        //given
+        IdempotentRequests idempotentRequests = new IdempotentRequests(Clock.systemUTC(), 60_000, 100);
+        thenThrownBy(() -> idempotentRequests.execute("key", "request", () -> {
+            throw new IllegalStateException("failed");
+        })).isInstanceOf(IllegalStateException.class);
+        CompletableFuture<Integer> running = new CompletableFuture<>();
+        idempotentRequests.execute("other", "request", () -> running);
+        CompletableFuture<Integer> repeated = idempotentRequests.execute("other", "request", this::count);
+        running.completeExceptionally(new IllegalStateException("failed"));
+
+        //when
+        int retried = idempotentRequests.execute("key", "request", this::count).join();
+        int retriedAfterAsyncFailure = idempotentRequests.execute("other", "request", this::count).join();
+
+        //then
+        then(repeated).isCompletedExceptionally();
+        then(retried).isEqualTo(1);
+        then(retriedAfterAsyncFailure).isEqualTo(2);
+    }
+
+    @Test
+    void execute_ForgetsExpiredAndOldestKeys() throws Exception {
+
+        //given
+        IdempotentRequests expiring = new IdempotentRequests(Clock.systemUTC(), 10, 100);
+        IdempotentRequests bounded = new IdempotentRequests(Clock.systemUTC(), 60_000, 2);
+
+        //when
+        expiring.execute("key", "request", this::count);
+        Thread.sleep(20);
+        int afterExpiry = expiring.execute("key", "request", this::count).join();
+
+        bounded.execute("first", "request", this::count);
+        bounded.execute("second", "request", this::count);
+        bounded.execute("third", "request", this::count);
+        int evicted = bounded.execute("first", "request", this::count).join();
+
+        //then
+        then(afterExpiry).isEqualTo(2);
+        then(evicted).isEqualTo(6);
+        then(bounded.size()).isEqualTo(2);
+    }
+
+    private CompletableFuture<Integer> count() {
+        return CompletableFuture.completedFuture(executions.incrementAndGet());
+    }
+}
@@ -0,0 +1,97 @@
+package org.multiplex;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void tryTake_AllowsBurst_ThenRate() {
+
+        //given
+        long now = 42 * SECOND;
+        TokenBucket bucket = new TokenBucket(10, 5, now);
+
+        //when
+        for (int i = 0; i < 5; i++) {
+            then(bucket.tryTake(now)).isZero();
+        }
+
+        //then
+        then(bucket.tryTake(now)).isEqualTo(SECOND / 10);
+        then(bucket.tryTake(now + SECOND / 10)).isZero();
+        then(bucket.tryTake(now + SECOND / 10)).isEqualTo(SECOND / 10);
+        then(bucket.isFull(now + SECOND / 10)).isFalse();
+        then(bucket.isFull(now + SECOND)).isTrue();
+    }
+
+    @Test
+    void tryTake_DoesNotStoreMoreThanBurst_WhenIdle() {
+
+        //given
+        TokenBucket bucket = new TokenBucket(10, 2, 0);
+
+        //when
+        long later = 60 * SECOND;
+
+        //then
+        then(bucket.tryTake(later)).isZero();
+        then(bucket.tryTake(later)).isZero();
+        then(bucket.tryTake(later)).isPositive();
+    }
+
+    @Test
+    void tryTake_WorksAcrossNanoTimeOverflow() {
+
+        //given
+        long now = Long.MAX_VALUE - SECOND / 20;
+        TokenBucket bucket = new TokenBucket(10, 1, now);
+
+        //when
+        then(bucket.tryTake(now)).isZero();
+
+        //then
+        then(bucket.tryTake(now + SECOND / 20)).isEqualTo(SECOND / 20);
+        then(bucket.tryTake(now + SECOND / 10)).isZero();
+    }
+
+    @Test
+    void tryTake_GivesOutExactlyBurst_ToConcurrentCallers() throws Exception {
+
+        //given
+        TokenBucket bucket = new TokenBucket(1, 1000, 0);
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+
+        //when
+        List<Future<Integer>> taken = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            taken.add(callers.submit(() -> {
+                int count = 0;
+                for (int j = 0; j < 1000; j++) {
+                    if (bucket.tryTake(0) == 0) {
+                        count++;
+                    }
+                }
+                return count;
+            }));
+        }
+        int total = 0;
+        for (Future<Integer> future : taken) {
+            total += future.get();
+        }
+        callers.shutdown();
+
+        //then
+        then(total).isEqualTo(1000);
+    }
+}
@@ -0,0 +1,126 @@
+package org.multiplex.domain;
+
+import org.junit.jupiter.api.Test;
+import org.multiplex.domain.dto.ReservationDto;
+import org.multiplex.domain.dto.ReservationDto.SeatToReserveDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+class BestSeatFinderTest {
+
+    private final BestSeatFinder bestSeatFinder = new BestSeatFinder();
+    private final BitmaskSeatsValidator seatsValidator = new BitmaskSeatsValidator();
+
+    @Test
+    void find_ReturnsBlockInTheMiddle_OfEmptyRoom() {
+
+        //given
+        SeatOccupancy occupancy = new SeatOccupancy(5, 10);
+
+        //when
+        BestSeatFinder.SeatBlock block = bestSeatFinder.find(occupancy, 4);
+
+        then(block).isEqualTo(new BestSeatFinder.SeatBlock(3, 4, 4));
+    }
+
+    @Test
+    void find_SkipsBlocks_WhichLeaveSingleSeatNextToReservedOne() {
+
+        //given
+        SeatOccupancy occupancy = new SeatOccupancy(1, 10);
+        occupancy.reserve(1, 3);
+        occupancy.reserve(1, 8);
+
+        //when
+        BestSeatFinder.SeatBlock block = bestSeatFinder.find(occupancy, 2);
+
+        // 5-6 in the middle would leave single free seats at 4 and 7
+        then(block).isIn(new BestSeatFinder.SeatBlock(1, 4, 2), new BestSeatFinder.SeatBlock(1, 6, 2));
+        then(bestSeatFinder.find(occupancy, 3)).isNull();
+    }
+
+    @Test
+    void find_ReturnsNull_IfNoRowHasEnoughFreeSeatsTogether() {
+
+        //given
+        SeatOccupancy occupancy = new SeatOccupancy(2, 5);
+        occupancy.reserve(1, 3);
+        occupancy.reserve(2, 3);
+
+        //when
+        BestSeatFinder.SeatBlock block = bestSeatFinder.find(occupancy, 3);
+
+        then(block).isNull();
+        then(bestSeatFinder.find(occupancy, 6)).isNull();
+    }
+
+    @Test
+    void find_ReturnsAsCentralBlockAsCheckingEveryBlock_ForRandomRooms() {
+
+        Random random = new Random(20191221);
+
+        for (int i = 0; i < 5_000; i++) {
+            //given
+            int rowCount = 1 + random.nextInt(12);
+            int columnCount = 1 + random.nextInt(80);
+            SeatOccupancy occupancy = new SeatOccupancy(rowCount, columnCount);
+            double reservedShare = random.nextDouble();
+            for (int row = 1; row <= rowCount; row++) {
+                for (int column = 1; column <= columnCount; column++) {
+                    if (random.nextDouble() < reservedShare) {
+                        occupancy.reserve(row, column);
+                    }
+                }
+            }
+            int seatCount = 1 + random.nextInt(6);
+            Room room = new Room(1, "Random", rowCount, columnCount);
+
+            //when
+            BestSeatFinder.SeatBlock block = bestSeatFinder.find(occupancy, seatCount);
+
+            int bestDistance = Integer.MAX_VALUE;
+            for (int row = 1; row <= rowCount; row++) {
+                for (int column = 1; column + seatCount - 1 <= columnCount; column++) {
+                    if (isValid(new BestSeatFinder.SeatBlock(row, column, seatCount), occupancy, room)) {
+                        bestDistance = Math.min(bestDistance, distance(new BestSeatFinder.SeatBlock(row, column, seatCount), room));
+                    }
+                }
+            }
+
+            if (bestDistance == Integer.MAX_VALUE) {
+                then(block).as("room %dx%d, %d seats", rowCount, columnCount, seatCount).isNull();
+            } else {
+                then(block).as("room %dx%d, %d seats", rowCount, columnCount, seatCount).isNotNull();
+                then(isValid(block, occupancy, room)).isTrue();
+                then(distance(block, room)).isEqualTo(bestDistance);
+            }
+        }
+    }
+
+    private boolean isValid(BestSeatFinder.SeatBlock block, SeatOccupancy occupancy, Room room) {
+        List<SeatToReserveDto> seats = new ArrayList<>();
+        for (int i = 0; i < block.getSeatCount(); i++) {
+            seats.add(SeatToReserveDto.builder()
+                    .row(block.getRow())
+                    .column(block.getFirstColumn() + i)
+                    .reservationType(ReservationDto.ReservationType.ADULT)
+                    .build());
+        }
+
+        try {
+            seatsValidator.validate(seats, occupancy, room);
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static int distance(BestSeatFinder.SeatBlock block, Room room) {
+        return Math.abs(2 * block.getRow() - room.getRowCount() - 1)
+                + Math.abs(2 * block.getFirstColumn() + block.getSeatCount() - 2 - room.getColumnCount());
+    }
+}
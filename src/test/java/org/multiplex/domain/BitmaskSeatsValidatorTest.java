@@ -0,0 +1,124 @@
+package org.multiplex.domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.multiplex.domain.dto.ReservationDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+class BitmaskSeatsValidatorTest {
+
+    private final SeatsValidator seatsValidator = new SeatsValidator();
+    private final BitmaskSeatsValidator bitmaskSeatsValidator = new BitmaskSeatsValidator();
+
+    @ParameterizedTest
+    @MethodSource("org.multiplex.domain.SeatsValidatorTest#reservationToValidation")
+    void validate_GivesTheSameResultAsSeatsValidator(io.vavr.collection.List<Seat> reservedSeats,
+                                                     List<ReservationDto.SeatToReserveDto> seatToReserve,
+                                                     Class<? extends RuntimeException> expectedException) {
+
+        Room room = SeatsValidatorTest.TEST_ROOM;
+
+        then(outcome(bitmaskSeatsValidator, seatToReserve, reservedSeats, room)).isEqualTo(expectedException);
+    }
+
+    @Test
+    void validate_GivesTheSameExceptionAsSeatsValidator_ForRandomReservations() {
+
+        Random random = new Random(20191215);
+
+        for (int i = 0; i < 20_000; i++) {
+            // HashMap and HashSet used by SeatsValidator visit such small rows and columns in ascending order,
+            // so both validators check seats in the same order and have to report the same broken rule
+            Room room = new Room(1, "Random", 1 + random.nextInt(12), 1 + random.nextInt(12));
+            io.vavr.collection.List<Seat> reservedSeats = randomReservedSeats(random, room);
+            List<ReservationDto.SeatToReserveDto> seatsToReserve = randomSeatsToReserve(random, room, 14, 15);
+
+            then(outcome(bitmaskSeatsValidator, seatsToReserve, reservedSeats, room))
+                    .as("reserved: %s, to reserve: %s", reservedSeats, seatsToReserve)
+                    .isEqualTo(outcome(seatsValidator, seatsToReserve, reservedSeats, room));
+        }
+    }
+
+    @Test
+    void validate_AcceptsTheSameReservationsAsSeatsValidator_ForRandomReservationsInLargeRooms() {
+
+        Random random = new Random(20191216);
+
+        for (int i = 0; i < 5_000; i++) {
+            Room room = new Room(1, "Random", 1 + random.nextInt(30), 1 + random.nextInt(200));
+            io.vavr.collection.List<Seat> reservedSeats = randomReservedSeats(random, room);
+            List<ReservationDto.SeatToReserveDto> seatsToReserve = randomSeatsToReserve(random, room, 6, room.getColumnCount() + 2);
+
+            then(outcome(bitmaskSeatsValidator, seatsToReserve, reservedSeats, room) == null)
+                    .as("reserved: %s, to reserve: %s", reservedSeats, seatsToReserve)
+                    .isEqualTo(outcome(seatsValidator, seatsToReserve, reservedSeats, room) == null);
+        }
+    }
+
+    private static Class<? extends RuntimeException> outcome(Object validator,
+                                                             List<ReservationDto.SeatToReserveDto> seatsToReserve,
+                                                             io.vavr.collection.List<Seat> reservedSeats,
+                                                             Room room) {
+        try {
+            if (validator instanceof SeatsValidator) {
+                ((SeatsValidator) validator).validate(seatsToReserve, reservedSeats, room);
+            } else {
+                ((BitmaskSeatsValidator) validator).validate(seatsToReserve, occupancy(reservedSeats, room), room);
+            }
+            return null;
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+    }
+
+    private static SeatOccupancy occupancy(io.vavr.collection.List<Seat> reservedSeats, Room room) {
+        SeatOccupancy occupancy = new SeatOccupancy(room.getRowCount(), room.getColumnCount());
+        reservedSeats.forEach(seat -> occupancy.reserve(seat.getRow(), seat.getColumn()));
+        return occupancy;
+    }
+
+    private static io.vavr.collection.List<Seat> randomReservedSeats(Random random, Room room) {
+        double density = random.nextDouble() * 0.6;
+
+        List<Seat> reserved = new ArrayList<>();
+        for (int row = 1; row <= room.getRowCount(); row++) {
+            for (int column = 1; column <= room.getColumnCount(); column++) {
+                if (random.nextDouble() < density) {
+                    reserved.add(new Seat(row, column));
+                }
+            }
+        }
+        return io.vavr.collection.List.ofAll(reserved);
+    }
+
+    private static List<ReservationDto.SeatToReserveDto> randomSeatsToReserve(Random random, Room room, int maxSeats, int maxColumn) {
+        int seats = 1 + random.nextInt(maxSeats);
+        int row = 1 + random.nextInt(room.getRowCount());
+        int column = 1 + random.nextInt(room.getColumnCount());
+
+        List<ReservationDto.SeatToReserveDto> toReserve = new ArrayList<>();
+        for (int i = 0; i < seats; i++) {
+            // mostly neighbouring seats of one group, sometimes a seat outside of the room
+            if (random.nextInt(10) == 0) {
+                row = random.nextInt(room.getRowCount() + 3);
+                column = random.nextInt(room.getColumnCount() + 3);
+            } else {
+                column += random.nextInt(3) == 0 ? 2 : 1;
+            }
+            column = Math.min(column, maxColumn);
+
+            toReserve.add(ReservationDto.SeatToReserveDto.builder()
+                    .row(row)
+                    .column(column)
+                    .reservationType(ReservationDto.ReservationType.ADULT)
+                    .build());
+        }
+        return toReserve;
+    }
+}
@@ -0,0 +1,151 @@
+package org.multiplex.domain;
+
+import lombok.Value;
+import org.multiplex.domain.dto.ReservationDto;
+import org.multiplex.domain.dto.ReservationDto.SeatToReserveDto;
+import org.multiplex.domain.dto.ReservationSummaryDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fires overlapping reservations of small seat groups at a few screenings from many threads
+ * and records the outcome and timing of every call.
+ */
+class BookingStressHarness {
+
+    private final CinemaService cinemaService;
+    private final List<Screening> screenings;
+
+    BookingStressHarness(CinemaService cinemaService, List<Screening> screenings) {
+        this.cinemaService = cinemaService;
+        this.screenings = screenings;
+    }
+
+    Result run(int threads, int requestsPerThread, long seed) throws Exception {
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<List<Operation>>> workers = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            Random random = new Random(seed + thread);
+            workers.add(executor.submit(() -> {
+                start.await();
+                List<Operation> operations = new ArrayList<>(requestsPerThread);
+                for (int i = 0; i < requestsPerThread; i++) {
+                    operations.add(reserve(randomReservation(random)));
+                }
+                return operations;
+            }));
+        }
+
+        long startNanos = System.nanoTime();
+        start.countDown();
+
+        List<Operation> operations = new ArrayList<>();
+        for (Future<List<Operation>> worker : workers) {
+            operations.addAll(worker.get());
+        }
+        long wallNanos = System.nanoTime() - startNanos;
+
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        return new Result(threads, operations, wallNanos);
+    }
+
+    private Operation reserve(ReservationDto reservation) {
+        List<Seat> seats = new ArrayList<>();
+        reservation.getSeatsToReserve().forEach(seat -> seats.add(new Seat(seat.getRow(), seat.getColumn())));
+
+        long start = System.nanoTime();
+        try {
+            ReservationSummaryDto summary = cinemaService.reserveSeats(reservation);
+            return new Operation(reservation.getScreeningId(), seats, start, System.nanoTime(), summary.getReservationId(), null);
+        } catch (RuntimeException e) {
+            return new Operation(reservation.getScreeningId(), seats, start, System.nanoTime(), null, e.getClass());
+        }
+    }
+
+    private ReservationDto randomReservation(Random random) {
+        Screening screening = screenings.get(random.nextInt(screenings.size()));
+        Room room = screening.getRoom();
+
+        // groups of up to four seats, sometimes with a hole inside, squeezed into a few rows to make them collide
+        int groupSize = 1 + random.nextInt(4);
+        int row = 1 + random.nextInt(Math.min(room.getRowCount(), 5));
+        int column = 1 + random.nextInt(Math.max(1, room.getColumnCount() - groupSize - 1));
+
+        List<SeatToReserveDto> seats = new ArrayList<>(groupSize);
+        for (int i = 0; i < groupSize && column <= room.getColumnCount(); i++) {
+            seats.add(SeatToReserveDto.builder()
+                    .row(row)
+                    .column(column)
+                    .reservationType(ReservationDto.ReservationType.values()[random.nextInt(3)])
+                    .build());
+            column += random.nextInt(8) == 0 ? 2 : 1;
+        }
+
+        return ReservationDto.builder()
+                .screeningId(screening.getId())
+                .seatsToReserve(seats)
+                .bookingUser(ReservationDto.BookingUserDto.builder()
+                        .name("Jan")
+                        .surname("Kowalski")
+                        .build())
+                .build();
+    }
+
+    @Value
+    static class Operation {
+        private int screeningId;
+        private List<Seat> seats;
+        private long startNanos;
+        private long endNanos;
+        private Integer reservationId;
+        private Class<? extends RuntimeException> failure;
+
+        boolean isAccepted() {
+            return reservationId != null;
+        }
+    }
+
+    @Value
+    static class Result {
+        private int threads;
+        private List<Operation> operations;
+        private long wallNanos;
+
+        double getThroughput() {
+            return operations.size() / (wallNanos / 1e9);
+        }
+
+        long getAccepted() {
+            return operations.stream().filter(Operation::isAccepted).count();
+        }
+
+        long getLatencyPercentileMicros(double percentile) {
+            long[] latencies = operations.stream()
+                    .mapToLong(operation -> operation.getEndNanos() - operation.getStartNanos())
+                    .toArray();
+            Arrays.sort(latencies);
+            int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+            return TimeUnit.NANOSECONDS.toMicros(latencies[Math.max(0, index)]);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("threads: %2d, requests: %5d, accepted: %5d, throughput: %8.0f req/s, p50: %6d us, p99: %6d us",
+                    threads, operations.size(), getAccepted(), getThroughput(),
+                    getLatencyPercentileMicros(50), getLatencyPercentileMicros(99));
+        }
+    }
+}
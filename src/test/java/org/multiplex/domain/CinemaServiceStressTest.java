@@ -0,0 +1,119 @@
+package org.multiplex.domain;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.multiplex.App;
+import org.multiplex.domain.dto.ScreeningIdDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+/**
+ * Run with {@code mvn -Pstress test}.
+ */
+@Tag("stress")
+class CinemaServiceStressTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CinemaServiceStressTest.class);
+
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16};
+    private static final int REQUESTS = 4_000;
+    private static final int SCREENINGS = 4;
+
+    private final LinearizabilityChecker checker = new LinearizabilityChecker();
+
+    @Test
+    void reserveSeats_NeverOversells_WithInMemoryRepositories() throws Exception {
+
+        Clock clock = Clock.fixed(Instant.parse("2019-12-09T10:00:00Z"), ZoneOffset.UTC);
+        Movie movie = new Movie(1, "Gladiator", Duration.ofMinutes(171));
+        Room room = new Room(1, "Sala czerwona", 10, 20);
+
+        for (int threads : THREAD_COUNTS) {
+
+            //given
+            InMemoryScreeningRepository screeningRepository = new InMemoryScreeningRepository();
+            InMemoryReservationRepository reservationRepository = new InMemoryReservationRepository();
+            SeatOccupancyIndex seatOccupancyIndex = new SeatOccupancyIndex(reservationRepository, clock);
+            ScreeningLocks screeningLocks = new ScreeningLocks(64);
+            ScreeningAvailability screeningAvailability = new ScreeningAvailability(screeningRepository, reservationRepository, screeningLocks, clock);
+            CinemaService cinemaService = new CinemaService(screeningRepository, new ScreeningListingCache(screeningRepository, 31), reservationRepository,
+                    new ReservationPricingPolicy(), new UserValidator(), new BitmaskSeatsValidator(), new BestSeatFinder(), seatOccupancyIndex, screeningAvailability,
+                    screeningLocks, new ReservationExpirySweeper(reservationRepository, seatOccupancyIndex, screeningAvailability, screeningLocks, clock, 100),
+                    new SeatHolds(seatOccupancyIndex, screeningLocks, clock, 300_000, 1_000),
+                    new BookingMetrics(new SimpleMeterRegistry(), seatOccupancyIndex), clock);
+
+            List<Screening> screenings = new ArrayList<>();
+            for (int i = 1; i <= SCREENINGS; i++) {
+                Screening screening = new Screening(i, movie, room, OffsetDateTime.now(clock).plusDays(2));
+                screeningRepository.add(screening);
+                screenings.add(screening);
+            }
+
+            //when
+            BookingStressHarness.Result result = new BookingStressHarness(cinemaService, screenings)
+                    .run(threads, REQUESTS / threads, threads);
+
+            LOGGER.warn("In-memory repositories - {}", result);
+            thenIsLinearizable(result, screenings, cinemaService);
+        }
+    }
+
+    @Test
+    void reserveSeats_NeverOversells_WithHsqlRepositories() throws Exception {
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(App.class)
+                .web(WebApplicationType.NONE)
+                .run()) {
+
+            CinemaService cinemaService = context.getBean(CinemaService.class);
+            ScreeningRepository screeningRepository = context.getBean(ScreeningRepository.class);
+            Movie movie = context.getBean(MovieRepository.class).save(new Movie(0, "Gladiator", Duration.ofMinutes(171)));
+            Room room = context.getBean(RoomRepository.class).save(new Room(0, "Sala czerwona", 10, 20));
+
+            for (int threads : THREAD_COUNTS) {
+
+                //given
+                List<Screening> screenings = new ArrayList<>();
+                for (int i = 0; i < SCREENINGS; i++) {
+                    screenings.add(screeningRepository.save(new Screening(0, movie, room, OffsetDateTime.now().plusDays(2))));
+                }
+
+                //when
+                BookingStressHarness.Result result = new BookingStressHarness(cinemaService, screenings)
+                        .run(threads, REQUESTS / threads, threads);
+
+                LOGGER.warn("HSQL repositories - {}", result);
+                thenIsLinearizable(result, screenings, cinemaService);
+            }
+        }
+    }
+
+    private void thenIsLinearizable(BookingStressHarness.Result result, List<Screening> screenings, CinemaService cinemaService) {
+
+        Map<Integer, Room> rooms = LinearizabilityChecker.rooms(screenings);
+
+        then(result.getAccepted()).isPositive();
+        then(checker.check(result.getOperations(), rooms)).isEmpty();
+
+        screenings.forEach(screening -> {
+            SeatOccupancy expected = checker.finalOccupancy(result.getOperations(), screening.getId(), screening.getRoom());
+            then(cinemaService.getScreeningSeatsInfo(ScreeningIdDto.fromInt(screening.getId())).getAvailableSeats())
+                    .hasSize(expected.getFreeCount());
+        });
+    }
+}
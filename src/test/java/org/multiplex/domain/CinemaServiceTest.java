@@ -1,40 +1,79 @@
 package org.multiplex.domain;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.assertj.core.api.Condition;
 import org.junit.jupiter.api.Test;
 import org.multiplex.domain.dto.AvailableScreeningDto;
+import org.multiplex.domain.dto.BestSeatsReservationDto;
+import org.multiplex.domain.dto.CompactScreeningSeatsInfoDto;
+import org.multiplex.domain.dto.LockStripeStatsDto;
 import org.multiplex.domain.dto.ReservationDto;
 import org.multiplex.domain.dto.ReservationDto.SeatToReserveDto;
 import org.multiplex.domain.dto.ReservationSummaryDto;
+import org.multiplex.domain.dto.ReservationSummaryDto.ReservedSeatDto;
 import org.multiplex.domain.dto.ScreeningIdDto;
+import org.multiplex.domain.dto.ScreeningPageDto;
+import org.multiplex.domain.dto.ScreeningSeatsChangesDto;
 import org.multiplex.domain.dto.ScreeningSeatsInfoDto;
+import org.multiplex.domain.dto.SeatHoldDto;
+import org.multiplex.domain.dto.SeatHoldSummaryDto;
 import org.multiplex.domain.dto.TimeRangeDto;
+import org.multiplex.domain.exception.InvalidCursorException;
+import org.multiplex.domain.exception.InvalidUserNameOrSurnameException;
+import org.multiplex.domain.exception.NoAvailableSeatsException;
 import org.multiplex.domain.exception.ReservationTimeException;
 import org.multiplex.domain.exception.ScreeningNotFoundException;
-
-import java.time.Clock;
+import org.multiplex.domain.exception.SeatHoldNotFoundException;
+import org.multiplex.domain.exception.SeatReservedException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.BDDAssertions.then;
 import static org.assertj.core.api.BDDAssertions.thenCode;
 import static org.assertj.core.api.BDDAssertions.thenThrownBy;
+import static org.assertj.core.groups.Tuple.tuple;
 
 class CinemaServiceTest {
 
-    private final InMemoryScreeningRepository screeningRepo = new InMemoryScreeningRepository();
-    private final InMemoryReservationRepository reservationRepo = new InMemoryReservationRepository();
+    final InMemoryScreeningRepository screeningRepo = new InMemoryScreeningRepository();
+    private final ReservationRepository reservationRepo = createReservationRepository();
     private final ReservationPricingPolicy reservationPricingPolicy = new ReservationPricingPolicy();
     private final UserValidator userValidator = new UserValidator();
-    private final SeatsValidator seatsValidator = new SeatsValidator();
-    private final Clock clock = Clock.fixed(Instant.parse("2019-12-09T10:30:02.00Z"), ZoneOffset.UTC);
-    private final CinemaService cinemaService = new CinemaService(screeningRepo, reservationRepo, reservationPricingPolicy, userValidator, seatsValidator, clock);
+    private final BitmaskSeatsValidator seatsValidator = new BitmaskSeatsValidator();
+    private final BestSeatFinder bestSeatFinder = new BestSeatFinder();
+    private final MutableClock clock = new MutableClock(Instant.parse("2019-12-09T10:30:02.00Z"));
+    private final SeatOccupancyIndex seatOccupancyIndex = new SeatOccupancyIndex(reservationRepo, clock);
+    private final ScreeningLocks screeningLocks = new ScreeningLocks(16);
+    private final ScreeningAvailability screeningAvailability = new ScreeningAvailability(screeningRepo, reservationRepo, screeningLocks, clock);
+    private final ReservationExpirySweeper reservationExpirySweeper = new ReservationExpirySweeper(reservationRepo, seatOccupancyIndex, screeningAvailability, screeningLocks, clock, 100);
+    private final ScreeningListingCache screeningListingCache = new ScreeningListingCache(screeningRepo, 31);
+    private final SeatHolds seatHolds = new SeatHolds(seatOccupancyIndex, screeningLocks, clock, 300_000, 1_000);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final BookingMetrics bookingMetrics = new BookingMetrics(meterRegistry, seatOccupancyIndex);
+    private final CinemaService cinemaService = new CinemaService(screeningRepo, screeningListingCache, reservationRepo, reservationPricingPolicy, userValidator, seatsValidator, bestSeatFinder, seatOccupancyIndex, screeningAvailability, screeningLocks, reservationExpirySweeper, seatHolds, bookingMetrics, clock);
+
+    ReservationRepository createReservationRepository() {
+        return new InMemoryReservationRepository();
+    }
 
     @Test
     public void getAvailableScreenings_ReturnsScreenings_InTimeRange() {
@@ -88,6 +127,140 @@ class CinemaServiceTest {
     }
 
 
+    @Test
+    public void getAvailableScreeningsPage_ReturnsAllScreeningsInListingOrder_PageByPage() {
+
+        //given
+        addScreening(TITANIC, RED_ROOM, date("2019-12-06", "10:00"));
+        addScreening(TITANIC, YELLOW_ROOM, date("2019-12-06", "10:00"));
+        addScreening(TITANIC, BLUE_ROOM, date("2019-12-06", "12:00"));
+        addScreening(GLADIATOR, RED_ROOM, date("2019-12-06", "18:00"));
+        addScreening(GLADIATOR, YELLOW_ROOM, date("2019-12-06", "13:00"));
+        addScreening(FORREST_GUMP, YELLOW_ROOM, date("2019-12-06", "15:00"));
+        addScreening(FORREST_GUMP, YELLOW_ROOM, date("2019-12-07", "15:00"));
+
+        TimeRangeDto timeRangeDto = TimeRangeDto.builder()
+                .from(date("2019-12-06", "08:00"))
+                .to(date("2019-12-06", "20:00"))
+                .build();
+
+        //when
+        List<AvailableScreeningDto> screenings = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        String cursor = null;
+        do {
+            ScreeningPageDto page = cinemaService.getAvailableScreeningsPage(timeRangeDto, cursor, 4);
+            screenings.addAll(page.getScreenings());
+            pageSizes.add(page.getScreenings().size());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        then(pageSizes).containsExactly(4, 2);
+        then(screenings).containsExactlyElementsOf(cinemaService.getAvailableScreenings(timeRangeDto));
+    }
+
+    @Test
+    public void getAvailableScreeningsPage_Throws_IfCursorIsInvalid() {
+
+        //given
+        TimeRangeDto timeRangeDto = TimeRangeDto.builder()
+                .from(date("2019-12-06", "08:00"))
+                .to(date("2019-12-06", "20:00"))
+                .build();
+
+        thenThrownBy(() -> cinemaService.getAvailableScreeningsPage(timeRangeDto, "not-a-cursor", 10))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+
+    @Test
+    public void forEachAvailableScreening_PassesScreeningsInListingOrder() {
+
+        //given
+        addScreening(TITANIC, RED_ROOM, date("2019-12-06", "10:00"));
+        addScreening(GLADIATOR, RED_ROOM, date("2019-12-06", "18:00"));
+        addScreening(GLADIATOR, YELLOW_ROOM, date("2019-12-06", "13:00"));
+
+        TimeRangeDto timeRangeDto = TimeRangeDto.builder()
+                .from(date("2019-12-06", "08:00"))
+                .to(date("2019-12-06", "20:00"))
+                .build();
+
+        //when
+        List<AvailableScreeningDto> screenings = new ArrayList<>();
+        cinemaService.forEachAvailableScreening(timeRangeDto, screenings::add);
+
+        then(screenings).containsExactlyElementsOf(cinemaService.getAvailableScreenings(timeRangeDto));
+    }
+
+    @Test
+    public void getAvailableScreenings_ReturnsSeatsLeft_AfterReservationsAndExpiries() {
+
+        //given
+        Screening screening = addScreening(TITANIC, RED_ROOM, date("2019-12-12", "10:00"));
+        Screening soldOut = addScreening(GLADIATOR, new Room(4, "Sala mała", 1, 2), date("2019-12-12", "12:00"));
+        TimeRangeDto timeRangeDto = TimeRangeDto.builder()
+                .from(date("2019-12-12", "08:00"))
+                .to(date("2019-12-12", "20:00"))
+                .build();
+        then(cinemaService.getAvailableScreenings(timeRangeDto)).extracting(AvailableScreeningDto::getSeatsLeft).containsExactly(2, 400);
+
+        //when
+        cinemaService.reserveSeats(reservation(screening, 1, 1, 2, 3));
+        cinemaService.reserveSeats(reservation(soldOut, 1, 1, 2));
+
+        then(cinemaService.getAvailableScreenings(timeRangeDto))
+                .extracting(AvailableScreeningDto::getSeatsLeft, AvailableScreeningDto::getSoldOut)
+                .containsExactly(tuple(0, true), tuple(397, false));
+
+        clock.advance(Duration.ofDays(2));
+        reservationExpirySweeper.sweep();
+
+        //then
+        then(cinemaService.getAvailableScreenings(timeRangeDto))
+                .extracting(AvailableScreeningDto::getSeatsLeft, AvailableScreeningDto::getSoldOut)
+                .containsExactly(tuple(2, false), tuple(400, false));
+    }
+
+    @Test
+    public void getAvailableScreenings_ReturnsTheSameSeatsLeftAsFullRecompute_AfterRandomBookings() {
+
+        //given
+        List<Screening> screenings = new ArrayList<>();
+        for (int hour = 10; hour < 16; hour++) {
+            screenings.add(addScreening(hour % 2 == 0 ? TITANIC : GLADIATOR, BLUE_ROOM, date("2019-12-12", hour + ":00")));
+        }
+        TimeRangeDto timeRangeDto = TimeRangeDto.builder()
+                .from(date("2019-12-12", "00:00"))
+                .to(date("2019-12-12", "23:00"))
+                .build();
+        cinemaService.getAvailableScreenings(timeRangeDto);
+        Random random = new Random(7);
+
+        //when
+        for (int i = 0; i < 500; i++) {
+            Screening screening = screenings.get(random.nextInt(screenings.size()));
+            int column = 1 + random.nextInt(BLUE_ROOM.getColumnCount() - 2);
+            try {
+                cinemaService.reserveSeats(reservation(screening, 1 + random.nextInt(BLUE_ROOM.getRowCount()), column, column + 1));
+            } catch (RuntimeException e) {
+                // taken seats and gaps are expected
+            }
+            if (random.nextInt(50) == 0) {
+                clock.advance(Duration.ofHours(6));
+                reservationExpirySweeper.sweep();
+            }
+        }
+
+        //then
+        ScreeningAvailability rebuilt = new ScreeningAvailability(screeningRepo, reservationRepo, screeningLocks, clock);
+        rebuilt.loadAll();
+        for (AvailableScreeningDto screening : cinemaService.getAvailableScreenings(timeRangeDto)) {
+            int recomputed = BLUE_ROOM.getRowCount() * BLUE_ROOM.getColumnCount() - reservationRepo.findActiveReservedSeats(screening.getScreeningId()).size();
+            then(screening.getSeatsLeft()).isEqualTo(recomputed);
+            then(rebuilt.get(screening.getScreeningId()).getSeatsLeft()).isEqualTo(recomputed);
+        }
+    }
+
     @Test
     public void getScreeningSeatsInfo_ReturnsAllSeatsAsAvailable_IfThereIsNoReservation() {
 
@@ -172,6 +345,8 @@ class CinemaServiceTest {
                 .paid(false);
 
         addReservation(reservationBuilder);
+        reservationExpirySweeper.recover();
+        reservationExpirySweeper.sweep();
 
         //when
         ScreeningSeatsInfoDto screeningSeatsInfo = cinemaService.getScreeningSeatsInfo(id);
@@ -180,6 +355,130 @@ class CinemaServiceTest {
         then(screeningSeatsInfo.getAvailableSeats()).hasSize(540);
     }
 
+    @Test
+    public void getScreeningSeatsInfo_ReturnsAvailableSeats_SeatsReservedByReserveSeatsAreSkipped() {
+
+        //given
+        Screening screening = addScreening(FORREST_GUMP, RED_ROOM, date("2019-12-09", "12:30"));
+        ScreeningIdDto id = ScreeningIdDto.fromInt(screening.getId());
+
+        cinemaService.getScreeningSeatsInfo(id);
+        cinemaService.reserveSeats(ReservationDto.builder()
+                .screeningId(screening.getId())
+                .seatsToReserve(List.of(
+                        SeatToReserveDto.builder().row(2).column(5).reservationType(ReservationDto.ReservationType.ADULT).build(),
+                        SeatToReserveDto.builder().row(2).column(6).reservationType(ReservationDto.ReservationType.CHILD).build()))
+                .bookingUser(ReservationDto.BookingUserDto.builder()
+                        .name("John")
+                        .surname("Smith")
+                        .build())
+                .build());
+
+        //when
+        ScreeningSeatsInfoDto screeningSeatsInfo = cinemaService.getScreeningSeatsInfo(id);
+
+        then(screeningSeatsInfo.getAvailableSeats()).hasSize(398)
+                .noneMatch(seat -> seat.getRow() == 2 && (seat.getColumn() == 5 || seat.getColumn() == 6));
+    }
+
+    @Test
+    public void getScreeningSeatsInfo_ReturnsAvailableSeats_SeatsOfReservationReleasedAfterItExpires() {
+
+        //given
+        Screening screening = addScreening(GLADIATOR, RED_ROOM, date("2019-12-12", "18:00"));
+        ScreeningIdDto id = ScreeningIdDto.fromInt(screening.getId());
+
+        ReservationSummaryDto reservationSummary = cinemaService.reserveSeats(ReservationDto.builder()
+                .screeningId(screening.getId())
+                .seatsToReserve(List.of(
+                        SeatToReserveDto.builder().row(4).column(7).reservationType(ReservationDto.ReservationType.ADULT).build(),
+                        SeatToReserveDto.builder().row(4).column(8).reservationType(ReservationDto.ReservationType.ADULT).build()))
+                .bookingUser(ReservationDto.BookingUserDto.builder()
+                        .name("John")
+                        .surname("Smith")
+                        .build())
+                .build());
+
+        then(reservationExpirySweeper.sweep()).isZero();
+        then(cinemaService.getScreeningSeatsInfo(id).getAvailableSeats()).hasSize(398);
+
+        //when
+        clock.advance(Duration.between(OffsetDateTime.now(clock), reservationSummary.getExpirationTime()).plusMillis(100));
+        int expired = reservationExpirySweeper.sweep();
+
+        then(expired).isEqualTo(1);
+        then(cinemaService.getScreeningSeatsInfo(id).getAvailableSeats()).hasSize(400);
+        then(reservationRepo.findPendingExpiries()).isEmpty();
+    }
+
+    @Test
+    public void getCompactScreeningSeatsInfo_EncodesRowsAsRunsOfAvailableAndReservedSeats() {
+
+        //given
+        Screening screening = addScreening(FORREST_GUMP, BLUE_ROOM, date("2019-12-09", "12:30"));
+        ScreeningIdDto id = ScreeningIdDto.fromInt(screening.getId());
+
+        addReservation(Reservation.builder()
+                .screening(screening)
+                .reservedSeats(Set.of(reservedSeat(1, 1), reservedSeat(1, 2), reservedSeat(3, 10), reservedSeat(3, 30)))
+                .expirationTime(OffsetDateTime.now(clock).plusHours(2))
+                .paid(false));
+
+        //when
+        CompactScreeningSeatsInfoDto screeningSeatsInfo = cinemaService.getCompactScreeningSeatsInfo(id);
+
+        then(screeningSeatsInfo.getRoomName()).isEqualTo(BLUE_ROOM.getName());
+        then(screeningSeatsInfo.getRowCount()).isEqualTo(18);
+        then(screeningSeatsInfo.getColumnCount()).isEqualTo(30);
+        then(screeningSeatsInfo.getAvailableSeatCount()).isEqualTo(536);
+        then(screeningSeatsInfo.getRows()).hasSize(18);
+        then(screeningSeatsInfo.getRows().get(0)).isEqualTo("R2A28");
+        then(screeningSeatsInfo.getRows().get(1)).isEqualTo("A30");
+        then(screeningSeatsInfo.getRows().get(2)).isEqualTo("A9R1A19R1");
+    }
+
+    @Test
+    public void getScreeningSeatsChanges_ReturnsSeatsTakenAndFreed_SinceGivenVersion() {
+
+        //given
+        Screening screening = addScreening(GLADIATOR, RED_ROOM, date("2019-12-12", "18:00"));
+        ScreeningIdDto id = ScreeningIdDto.fromInt(screening.getId());
+        long version = cinemaService.getScreeningSeatsInfo(id).getVersion();
+
+        ReservationSummaryDto reservationSummary = cinemaService.reserveSeats(reservation(screening, 4, 7, 8));
+        clock.advance(Duration.between(OffsetDateTime.now(clock), reservationSummary.getExpirationTime()).plusMillis(100));
+        reservationExpirySweeper.sweep();
+        cinemaService.reserveSeats(reservation(screening, 5, 1, 2));
+
+        //when
+        ScreeningSeatsChangesDto changes = cinemaService.getScreeningSeatsChanges(id, version);
+
+        then(changes.getVersion()).isGreaterThan(version).isEqualTo(cinemaService.getSeatMapVersion(id));
+        then(changes.getTakenSeats()).extracting(ScreeningSeatsChangesDto.SeatDto::getRow, ScreeningSeatsChangesDto.SeatDto::getColumn)
+                .containsExactlyInAnyOrder(tuple(5, 1), tuple(5, 2));
+        then(changes.getFreedSeats()).extracting(ScreeningSeatsChangesDto.SeatDto::getRow, ScreeningSeatsChangesDto.SeatDto::getColumn)
+                .containsExactlyInAnyOrder(tuple(4, 7), tuple(4, 8));
+        then(changes.getSeatMap()).isNull();
+        then(cinemaService.getScreeningSeatsChanges(id, changes.getVersion()).getTakenSeats()).isEmpty();
+    }
+
+    @Test
+    public void getScreeningSeatsChanges_ReturnsWholeSeatMap_IfVersionIsNotKnown() {
+
+        //given
+        Screening screening = addScreening(GLADIATOR, RED_ROOM, date("2019-12-12", "18:00"));
+        ScreeningIdDto id = ScreeningIdDto.fromInt(screening.getId());
+        long version = cinemaService.getSeatMapVersion(id);
+        cinemaService.reserveSeats(reservation(screening, 4, 7, 8));
+
+        //when
+        ScreeningSeatsChangesDto changes = cinemaService.getScreeningSeatsChanges(id, version - 1);
+
+        then(changes.getTakenSeats()).isEmpty();
+        then(changes.getSeatMap().getVersion()).isEqualTo(changes.getVersion());
+        then(changes.getSeatMap().getAvailableSeats()).hasSize(398);
+    }
+
     @Test
     public void getScreeningSeatsInfo_Throws_IfThereIsNotScreeningWithGivenId() {
 
@@ -226,7 +525,7 @@ class CinemaServiceTest {
         //when
         ReservationSummaryDto reservationSummary = cinemaService.reserveSeats(reservationDto);
 
-        then(reservationSummary.getTotalCost()).isEqualByComparingTo("55.50");
+        then(reservationSummary.getTotalCost()).isEqualTo(new BigDecimal("55.5"));
         then(reservationSummary.getExpirationTime()).isNotNull();
 
     }
@@ -287,6 +586,363 @@ class CinemaServiceTest {
 
     }
 
+    @Test
+    public void reserveSeats_AcceptsOnlyOneOfConcurrentReservations_ForTheSameSeat() throws Exception {
+
+        //given
+        int screeningId = addScreening(TITANIC, RED_ROOM, date("2019-12-10", "10:30")).getId();
+
+        ReservationDto reservationDto = ReservationDto.builder()
+                .screeningId(screeningId)
+                .seatsToReserve(List.of(SeatToReserveDto.builder()
+                        .row(5)
+                        .column(5)
+                        .reservationType(ReservationDto.ReservationType.ADULT)
+                        .build()))
+                .bookingUser(ReservationDto.BookingUserDto.builder()
+                        .name("John")
+                        .surname("Smith")
+                        .build())
+                .build();
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        //when
+        for (int i = 0; i < threads; i++) {
+            executor.submit(() -> {
+                start.await();
+                try {
+                    cinemaService.reserveSeats(reservationDto);
+                    accepted.incrementAndGet();
+                } catch (SeatReservedException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        then(accepted).hasValue(1);
+        then(rejected).hasValue(threads - 1);
+        then(cinemaService.getReservationLockStats())
+                .extracting(LockStripeStatsDto::getAcquisitions)
+                .containsOnly(0L, (long) threads);
+    }
+
+    @Test
+    public void reserveBestSeats_ReservesSeatsTogether_ClosestToTheMiddleOfTheRoom() {
+
+        //given
+        Screening screening = addScreening(TITANIC, RED_ROOM, date("2019-12-10", "10:30"));
+        BestSeatsReservationDto reservationDto = BestSeatsReservationDto.builder()
+                .screeningId(screening.getId())
+                .reservationTypes(List.of(ReservationDto.ReservationType.ADULT, ReservationDto.ReservationType.CHILD))
+                .bookingUser(ReservationDto.BookingUserDto.builder()
+                        .name("John")
+                        .surname("Smith")
+                        .build())
+                .build();
+
+        //when
+        ReservationSummaryDto first = cinemaService.reserveBestSeats(reservationDto);
+        ReservationSummaryDto second = cinemaService.reserveBestSeats(reservationDto);
+
+        then(first.getTotalCost()).isEqualTo(new BigDecimal("37.5"));
+        then(first.getReservedSeats())
+                .extracting(ReservedSeatDto::getRow, ReservedSeatDto::getColumn, ReservedSeatDto::getReservationType)
+                .containsExactly(
+                        tuple(10, 10, ReservationDto.ReservationType.ADULT),
+                        tuple(10, 11, ReservationDto.ReservationType.CHILD));
+        then(second.getReservedSeats())
+                .extracting(ReservedSeatDto::getRow, ReservedSeatDto::getColumn)
+                .containsExactly(tuple(11, 10), tuple(11, 11));
+        then(reservationRepo.findActiveReservedSeats(screening.getId())).hasSize(4);
+    }
+
+    @Test
+    public void reserveBestSeats_Throws_IfThereAreNoSeatsTogether() {
+
+        //given
+        Screening screening = addScreening(TITANIC, RED_ROOM, date("2019-12-10", "10:30"));
+        List<ReservationDto.ReservationType> reservationTypes = new ArrayList<>();
+        for (int i = 0; i < 21; i++) {
+            reservationTypes.add(ReservationDto.ReservationType.ADULT);
+        }
+
+        thenThrownBy(() -> cinemaService.reserveBestSeats(BestSeatsReservationDto.builder()
+                .screeningId(screening.getId())
+                .reservationTypes(reservationTypes)
+                .bookingUser(ReservationDto.BookingUserDto.builder()
+                        .name("John")
+                        .surname("Smith")
+                        .build())
+                .build()))
+                .isInstanceOf(NoAvailableSeatsException.class);
+    }
+
+    @Test
+    public void holdSeats_MakesSeatsUnavailable_ForSeatMapAndOtherReservations() {
+
+        //given
+        Screening screening = addScreening(TITANIC, RED_ROOM, date("2019-12-10", "10:30"));
+        ScreeningIdDto id = ScreeningIdDto.fromInt(screening.getId());
+
+        //when
+        SeatHoldSummaryDto hold = cinemaService.holdSeats(seatHold(screening, 3, 4, 5));
+
+        then(hold.getExpirationTime()).isEqualTo(OffsetDateTime.now(clock).plusMinutes(5));
+        then(cinemaService.getScreeningSeatsInfo(id).getAvailableSeats()).hasSize(398)
+                .noneMatch(seat -> seat.getRow() == 3 && (seat.getColumn() == 4 || seat.getColumn() == 5));
+        thenThrownBy(() -> cinemaService.reserveSeats(reservation(screening, 3, 5)))
+                .isInstanceOf(SeatReservedException.class);
+        then(reservationRepo.findByScreeningId(screening.getId())).isEmpty();
+    }
+
+    @Test
+    public void confirmSeatHold_ReservesHeldSeats_OnlyOnce() {
+
+        //given
+        Screening screening = addScreening(TITANIC, RED_ROOM, date("2019-12-10", "10:30"));
+        ScreeningIdDto id = ScreeningIdDto.fromInt(screening.getId());
+        SeatHoldSummaryDto hold = cinemaService.holdSeats(seatHold(screening, 3, 4, 5));
+
+        //when
+        ReservationSummaryDto reservationSummary = cinemaService.confirmSeatHold(hold.getHoldId(), ReservationDto.BookingUserDto.builder()
+                .name("John")
+                .surname("Smith")
+                .build());
+
+        then(reservationSummary.getTotalCost()).isEqualTo(new BigDecimal("50"));
+        then(reservationRepo.findActiveReservedSeats(screening.getId()))
+                .extracting(Seat::getRow, Seat::getColumn)
+                .containsExactlyInAnyOrder(tuple(3, 4), tuple(3, 5));
+        then(cinemaService.getScreeningSeatsInfo(id).getAvailableSeats()).hasSize(398);
+        thenThrownBy(() -> cinemaService.confirmSeatHold(hold.getHoldId(), ReservationDto.BookingUserDto.builder()
+                .name("John")
+                .surname("Smith")
+                .build()))
+                .isInstanceOf(SeatHoldNotFoundException.class);
+    }
+
+    @Test
+    public void confirmSeatHold_KeepsHold_IfBookingUserIsInvalid() {
+
+        //given
+        Screening screening = addScreening(TITANIC, RED_ROOM, date("2019-12-10", "10:30"));
+        SeatHoldSummaryDto hold = cinemaService.holdSeats(seatHold(screening, 3, 4));
+
+        //when
+        thenThrownBy(() -> cinemaService.confirmSeatHold(hold.getHoldId(), ReservationDto.BookingUserDto.builder()
+                .name("john")
+                .surname("Smith")
+                .build()))
+                .isInstanceOf(InvalidUserNameOrSurnameException.class);
+
+        then(seatHolds.get(hold.getHoldId())).isNotNull();
+        then(cinemaService.getScreeningSeatsInfo(ScreeningIdDto.fromInt(screening.getId())).getAvailableSeats()).hasSize(399);
+    }
+
+    @Test
+    public void confirmSeatHold_KeepsHold_IfReservationCannotBeSaved() {
+
+        //given
+        Screening screening = addScreening(TITANIC, RED_ROOM, date("2019-12-10", "10:30"));
+        ScreeningIdDto id = ScreeningIdDto.fromInt(screening.getId());
+        SeatHoldSummaryDto hold = cinemaService.holdSeats(seatHold(screening, 3, 4));
+        ReservationRepository failingRepo = (ReservationRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{ReservationRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("save")) {
+                        throw new IllegalStateException("Database is not available");
+                    }
+                    return method.invoke(reservationRepo, args);
+                });
+        CinemaService failingService = new CinemaService(screeningRepo, screeningListingCache, failingRepo, reservationPricingPolicy, userValidator, seatsValidator, bestSeatFinder,
+                seatOccupancyIndex, screeningAvailability, screeningLocks, reservationExpirySweeper, seatHolds, bookingMetrics, clock);
+        List<Long> seatMapVersions = new ArrayList<>();
+        seatOccupancyIndex.addListener(screeningId -> seatMapVersions.add(seatOccupancyIndex.getVersion(screening)));
+
+        //when
+        thenThrownBy(() -> failingService.confirmSeatHold(hold.getHoldId(), ReservationDto.BookingUserDto.builder()
+                .name("John")
+                .surname("Smith")
+                .build()))
+                .isInstanceOf(IllegalStateException.class);
+
+        then(seatHolds.get(hold.getHoldId())).isNotNull();
+        then(seatMapVersions).isEmpty();
+        then(cinemaService.getScreeningSeatsInfo(id).getAvailableSeats()).hasSize(399);
+        thenThrownBy(() -> cinemaService.reserveSeats(reservation(screening, 3, 4))).isInstanceOf(SeatReservedException.class);
+        then(cinemaService.confirmSeatHold(hold.getHoldId(), ReservationDto.BookingUserDto.builder()
+                .name("John")
+                .surname("Smith")
+                .build()).getReservedSeats()).hasSize(1);
+        then(seatHolds.get(hold.getHoldId())).isNull();
+        then(cinemaService.getScreeningSeatsInfo(id).getAvailableSeats()).hasSize(399);
+    }
+
+    @Test
+    public void confirmSeatHold_Throws_IfHoldHasExpired() {
+
+        //given
+        Screening screening = addScreening(TITANIC, RED_ROOM, date("2019-12-10", "10:30"));
+        ScreeningIdDto id = ScreeningIdDto.fromInt(screening.getId());
+        SeatHoldSummaryDto hold = cinemaService.holdSeats(seatHold(screening, 3, 4));
+
+        //when
+        clock.advance(Duration.ofMinutes(5).plusSeconds(1));
+        int expired = seatHolds.sweep();
+
+        then(expired).isEqualTo(1);
+        then(cinemaService.getScreeningSeatsInfo(id).getAvailableSeats()).hasSize(400);
+        thenThrownBy(() -> cinemaService.confirmSeatHold(hold.getHoldId(), ReservationDto.BookingUserDto.builder()
+                .name("John")
+                .surname("Smith")
+                .build()))
+                .isInstanceOf(SeatHoldNotFoundException.class);
+    }
+
+    @Test
+    public void releaseSeatHold_MakesSeatsAvailable() {
+
+        //given
+        Screening screening = addScreening(TITANIC, RED_ROOM, date("2019-12-10", "10:30"));
+        SeatHoldSummaryDto hold = cinemaService.holdSeats(seatHold(screening, 3, 4));
+
+        //when
+        cinemaService.releaseSeatHold(hold.getHoldId());
+
+        then(cinemaService.getScreeningSeatsInfo(ScreeningIdDto.fromInt(screening.getId())).getAvailableSeats()).hasSize(400);
+        then(seatHolds.getCount()).isZero();
+    }
+
+    @Test
+    public void holdSeats_AcceptsOnlyOneOfConcurrentHolds_ForTheSameSeat() throws Exception {
+
+        //given
+        Screening screening = addScreening(TITANIC, RED_ROOM, date("2019-12-10", "10:30"));
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        //when
+        for (int i = 0; i < threads; i++) {
+            executor.submit(() -> {
+                start.await();
+                try {
+                    cinemaService.holdSeats(seatHold(screening, 5, 5));
+                    accepted.incrementAndGet();
+                } catch (SeatReservedException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        then(accepted).hasValue(1);
+        then(rejected).hasValue(threads - 1);
+        then(seatHolds.getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void reserveSeats_RecordsPhaseTimes_AndSeatsTakenOnScreening() {
+
+        //given
+        Screening screening = addScreening(TITANIC, RED_ROOM, date("2019-12-10", "10:30"));
+
+        //when
+        cinemaService.reserveSeats(reservation(screening, 5, 5, 6, 7));
+
+        for (String phase : List.of("screening-lookup", "user-validation", "lock", "seat-load", "seat-validation", "pricing", "save")) {
+            then(meterRegistry.get("cinema.booking.phase").tag("phase", phase).timer().count()).as(phase).isEqualTo(1);
+        }
+        then(meterRegistry.get("cinema.reservations.seats").counter().count()).isEqualTo(3);
+        then(meterRegistry.get("cinema.screening.seats.taken").tag("screening", String.valueOf(screening.getId())).gauge().value())
+                .isEqualTo(3);
+    }
+
+    @Test
+    public void holdSeats_DoesNotCountHeldSeats_AsTakenOnScreening() {
+
+        //given
+        Screening screening = addScreening(TITANIC, RED_ROOM, date("2019-12-10", "10:30"));
+        cinemaService.reserveSeats(reservation(screening, 5, 5, 6, 7));
+
+        //when
+        cinemaService.holdSeats(seatHold(screening, 7, 5, 6));
+
+        //then
+        then(meterRegistry.get("cinema.screening.seats.taken").tag("screening", String.valueOf(screening.getId())).gauge().value())
+                .isEqualTo(3);
+    }
+
+    @Test
+    public void reserveSeats_CountsRejections_ByPhaseAndExceptionType() {
+
+        //given
+        Screening screening = addScreening(TITANIC, RED_ROOM, date("2019-12-10", "10:30"));
+        cinemaService.reserveSeats(reservation(screening, 5, 5));
+
+        //when
+        thenThrownBy(() -> cinemaService.reserveSeats(reservation(screening, 5, 5)));
+        thenThrownBy(() -> cinemaService.reserveSeats(reservation(screening, 5, 7)));
+        thenThrownBy(() -> cinemaService.reserveSeats(reservation(screening, 5, 7)));
+        thenThrownBy(() -> cinemaService.reserveSeats(ReservationDto.builder()
+                .screeningId(screening.getId())
+                .seatsToReserve(reservation(screening, 6, 1).getSeatsToReserve())
+                .bookingUser(ReservationDto.BookingUserDto.builder().name("jo").surname("Smith").build())
+                .build()));
+
+        then(rejections("seat-validation", "SeatReservedException")).isEqualTo(1);
+        then(rejections("seat-validation", "SeatGapException")).isEqualTo(2);
+        then(rejections("user-validation", "InvalidUserNameOrSurnameException")).isEqualTo(1);
+        then(meterRegistry.get("cinema.reservations").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void reserveSeats_CountsReservations_OnlyOnceCommitted() {
+
+        //given
+        Screening screening = addScreening(TITANIC, RED_ROOM, date("2019-12-10", "10:30"));
+
+        //when
+        reserveInTransaction(reservation(screening, 5, 5, 6), false);
+        reserveInTransaction(reservation(screening, 7, 5), true);
+
+        then(meterRegistry.get("cinema.reservations").counter().count()).isEqualTo(1);
+        then(meterRegistry.get("cinema.reservations.seats").counter().count()).isEqualTo(1);
+    }
+
+    private void reserveInTransaction(ReservationDto reservationDto, boolean commit) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cinemaService.reserveSeats(reservationDto);
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            if (commit) {
+                TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+            }
+            TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations,
+                    commit ? TransactionSynchronization.STATUS_COMMITTED : TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private double rejections(String phase, String exception) {
+        return meterRegistry.get("cinema.booking.rejections").tag("phase", phase).tag("exception", exception).counter().count();
+    }
+
     private OffsetDateTime date(String date, String time) {
         return OffsetDateTime.of(LocalDate.parse(date), LocalTime.parse(time), ZoneOffset.UTC);
     }
@@ -313,6 +969,28 @@ class CinemaServiceTest {
     }
 
 
+    private ReservationDto reservation(Screening screening, int row, int... columns) {
+        List<SeatToReserveDto> seats = new ArrayList<>();
+        for (int column : columns) {
+            seats.add(SeatToReserveDto.builder().row(row).column(column).reservationType(ReservationDto.ReservationType.ADULT).build());
+        }
+        return ReservationDto.builder()
+                .screeningId(screening.getId())
+                .seatsToReserve(seats)
+                .bookingUser(ReservationDto.BookingUserDto.builder()
+                        .name("John")
+                        .surname("Smith")
+                        .build())
+                .build();
+    }
+
+    private SeatHoldDto seatHold(Screening screening, int row, int... columns) {
+        return SeatHoldDto.builder()
+                .screeningId(screening.getId())
+                .seatsToHold(reservation(screening, row, columns).getSeatsToReserve())
+                .build();
+    }
+
     private ReservedSeat reservedSeat(int row, int collumn) {
         return new ReservedSeat(0, row, collumn, ReservationType.ADULT);
     }
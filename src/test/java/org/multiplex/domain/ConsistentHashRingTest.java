@@ -0,0 +1,59 @@
+package org.multiplex.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.BDDAssertions.then;
+import static org.assertj.core.api.BDDAssertions.thenThrownBy;
+
+class ConsistentHashRingTest {
+
+    private static final int SCREENINGS = 10_000;
+
+    @Test
+    void ownerOf_SpreadsScreeningsEvenly() {
+
+        //given
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("a", "b", "c", "d"), 128);
+
+        //when
+        Map<String, Integer> owned = new HashMap<>();
+        for (int screeningId = 1; screeningId <= SCREENINGS; screeningId++) {
+            owned.merge(ring.ownerOf(screeningId), 1, Integer::sum);
+        }
+
+        //then
+        then(owned).containsOnlyKeys("a", "b", "c", "d");
+        then(owned.values()).allSatisfy(count -> then(count).isBetween(SCREENINGS / 4 * 8 / 10, SCREENINGS / 4 * 12 / 10));
+    }
+
+    @Test
+    void withNode_MovesScreeningsOnlyToTheNewNode() {
+
+        //given
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("a", "b", "c"), 128);
+
+        //when
+        ConsistentHashRing changed = ring.withNode("d");
+
+        //then
+        int moved = 0;
+        for (int screeningId = 1; screeningId <= SCREENINGS; screeningId++) {
+            if (!ring.ownerOf(screeningId).equals(changed.ownerOf(screeningId))) {
+                then(changed.ownerOf(screeningId)).isEqualTo("d");
+                moved++;
+            }
+        }
+        then(moved).isBetween(SCREENINGS / 4 * 8 / 10, SCREENINGS / 4 * 12 / 10);
+        then(changed.withoutNode("d").ownerOf(42)).isEqualTo(ring.ownerOf(42));
+    }
+
+    @Test
+    void ownerOf_FailsWithoutNodes() {
+
+        thenThrownBy(() -> new ConsistentHashRing(List.of(), 128).ownerOf(1)).isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,187 @@
+package org.multiplex.domain;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.BDDAssertions.then;
+import static org.assertj.core.api.BDDAssertions.thenThrownBy;
+
+class GroupCommitReservationRepositoryTest {
+
+    private final Screening screening = new Screening(1, new Movie(1, "Titanic", Duration.ofMinutes(194)),
+            new Room(1, "Sala czerwona", 20, 20), OffsetDateTime.parse("2019-12-10T10:00:00Z"));
+
+    private final InMemoryReservationRepository saved = new InMemoryReservationRepository();
+    private final TransactionalRepository transactionalRepository = new TransactionalRepository(saved);
+    private final CountingTransactionManager transactionManager = new CountingTransactionManager(transactionalRepository);
+    private final GroupCommitReservationRepository repository = new GroupCommitReservationRepository(transactionalRepository,
+            new TransactionTemplate(transactionManager), 100, 50);
+    private final ExecutorService callers = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void stop() {
+        repository.stop();
+        callers.shutdownNow();
+    }
+
+    @Test
+    void save_CommitsConcurrentReservationsTogether() throws Exception {
+
+        //given
+        repository.start();
+
+        //when
+        List<Future<Reservation>> results = new ArrayList<>();
+        for (int column = 1; column <= 8; column++) {
+            Reservation reservation = reservation("John", column);
+            results.add(callers.submit(() -> repository.save(reservation)));
+        }
+
+        List<Integer> ids = new ArrayList<>();
+        for (Future<Reservation> result : results) {
+            ids.add(result.get().getId());
+        }
+
+        then(ids).doesNotHaveDuplicates().doesNotContain(0);
+        then(saved.findActiveReservedSeats(screening.getId())).hasSize(8);
+        then(transactionManager.commits.get()).isLessThan(8);
+    }
+
+    @Test
+    void save_FailsOnlyForTheReservationWhichCannotBeSaved() throws Exception {
+
+        //given
+        repository.start();
+
+        //when
+        Future<Reservation> first = callers.submit(() -> repository.save(reservation("John", 1)));
+        Future<Reservation> failing = callers.submit(() -> repository.save(reservation(TransactionalRepository.FAILING_NAME, 2)));
+        Future<Reservation> second = callers.submit(() -> repository.save(reservation("John", 3)));
+
+        then(first.get().getId()).isPositive();
+        then(second.get().getId()).isPositive();
+        thenThrownBy(failing::get).hasCauseInstanceOf(IllegalStateException.class);
+        then(saved.findActiveReservedSeats(screening.getId())).containsExactlyInAnyOrder(new Seat(1, 1), new Seat(1, 3));
+    }
+
+    @Test
+    void save_ExpiresReservationAgain_WhenCallersTransactionRollsBack() {
+
+        //given
+        repository.start();
+
+        //when
+        Reservation rolledBack = saveInCallersTransaction(reservation("John", 1), TransactionSynchronization.STATUS_ROLLED_BACK);
+        Reservation committed = saveInCallersTransaction(reservation("John", 2), TransactionSynchronization.STATUS_COMMITTED);
+
+        //then
+        then(saved.findActiveReservedSeats(screening.getId())).containsExactly(new Seat(1, 2));
+        then(saved.findByScreeningId(screening.getId()))
+                .filteredOn(Reservation::isExpired)
+                .extracting(Reservation::getId)
+                .containsExactly(rolledBack.getId())
+                .doesNotContain(committed.getId());
+    }
+
+    private Reservation saveInCallersTransaction(Reservation reservation, int completionStatus) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            Reservation saved = repository.save(reservation);
+            TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(), completionStatus);
+            return saved;
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private Reservation reservation(String name, int column) {
+        return Reservation.builder()
+                .screening(screening)
+                .bookingUserName(name)
+                .bookingUserSurname("Smith")
+                .expirationTime(screening.getStartScreeningTime())
+                .reservedSeats(Set.of(new ReservedSeat(0, 1, column, ReservationType.ADULT)))
+                .build();
+    }
+
+    /**
+     * Keeps saved reservations aside until the transaction is committed, like the database would.
+     */
+    private static class TransactionalRepository extends InMemoryReservationRepository {
+
+        static final String FAILING_NAME = "Fail";
+
+        private final InMemoryReservationRepository committed;
+        private final List<Reservation> uncommitted = new ArrayList<>();
+        private final AtomicInteger nextId = new AtomicInteger(1);
+
+        TransactionalRepository(InMemoryReservationRepository committed) {
+            this.committed = committed;
+        }
+
+        @Override
+        public Reservation save(Reservation reservation) {
+            if (FAILING_NAME.equals(reservation.getBookingUserName())) {
+                throw new IllegalStateException("Cannot save reservation");
+            }
+            Reservation saved = Reservation.builder()
+                    .id(nextId.getAndIncrement())
+                    .screening(reservation.getScreening())
+                    .bookingUserName(reservation.getBookingUserName())
+                    .reservedSeats(reservation.getReservedSeats())
+                    .build();
+            uncommitted.add(saved);
+            return saved;
+        }
+
+        @Override
+        public int markHandedOff(int reservationId) {
+            return committed.markHandedOff(reservationId);
+        }
+    }
+
+    private static class CountingTransactionManager implements PlatformTransactionManager {
+
+        private final TransactionalRepository repository;
+        private final AtomicInteger commits = new AtomicInteger();
+
+        CountingTransactionManager(TransactionalRepository repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            commits.incrementAndGet();
+            repository.uncommitted.forEach(repository.committed::save);
+            repository.uncommitted.clear();
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            repository.uncommitted.clear();
+        }
+    }
+}
@@ -3,14 +3,19 @@ package org.multiplex.domain;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 class InMemoryReservationRepository implements ReservationRepository {
 
     private final Map<Integer, Reservation> data = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(1_000_000);
 
     @Override
     public Reservation save(Reservation reservation) {
+        if (reservation.getId() == 0) {
+            reservation = withId(reservation, nextId.getAndIncrement());
+        }
         data.put(reservation.getId(), reservation);
         return reservation;
     }
@@ -21,4 +26,82 @@ class InMemoryReservationRepository implements ReservationRepository {
                 .filter(reservation -> reservation.getScreening().getId() == screeningId)
                 .collect(Collectors.toList());
     }
+
+    @Override
+    public List<Seat> findActiveReservedSeats(int screeningId) {
+        return findByScreeningId(screeningId).stream()
+                .filter(reservation -> !reservation.isExpired())
+                .flatMap(reservation -> reservation.getReservedSeats().stream())
+                .map(seat -> new Seat(seat.getRow(), seat.getColumn()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<ScreeningSeatCount> countActiveReservedSeats() {
+        return data.values().stream()
+                .filter(reservation -> !reservation.isExpired())
+                .collect(Collectors.groupingBy(reservation -> reservation.getScreening().getId(),
+                        Collectors.summingLong(reservation -> reservation.getReservedSeats().size())))
+                .entrySet().stream()
+                .map(seatCount -> new ScreeningSeatCount(seatCount.getKey(), seatCount.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Seat> findReservedSeats(int reservationId) {
+        Reservation reservation = data.get(reservationId);
+        if (reservation == null) {
+            return List.of();
+        }
+        return reservation.getReservedSeats().stream()
+                .map(seat -> new Seat(seat.getRow(), seat.getColumn()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<ReservationExpiry> findPendingExpiries() {
+        return data.values().stream()
+                .filter(reservation -> !reservation.isPaid() && !reservation.isExpired())
+                .map(reservation -> new ReservationExpiry(reservation.getId(), reservation.getScreening().getId(), reservation.getExpirationTime()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public int markExpired(int reservationId) {
+        return expire(reservationId, true);
+    }
+
+    @Override
+    public int markHandedOff(int reservationId) {
+        return expire(reservationId, false);
+    }
+
+    private int expire(int reservationId, boolean unpaidOnly) {
+        AtomicInteger updated = new AtomicInteger();
+        data.computeIfPresent(reservationId, (id, reservation) -> {
+            if ((unpaidOnly && reservation.isPaid()) || reservation.isExpired()) {
+                return reservation;
+            }
+            updated.incrementAndGet();
+            return copyOf(reservation).expired(true).build();
+        });
+        return updated.get();
+    }
+
+    private static Reservation withId(Reservation reservation, int id) {
+        return copyOf(reservation).id(id).build();
+    }
+
+    private static Reservation.ReservationBuilder copyOf(Reservation reservation) {
+        return Reservation.builder()
+                .id(reservation.getId())
+                .screening(reservation.getScreening())
+                .bookingUserName(reservation.getBookingUserName())
+                .bookingUserSurname(reservation.getBookingUserSurname())
+                .expirationTime(reservation.getExpirationTime())
+                .reservedSeats(reservation.getReservedSeats())
+                .paid(reservation.isPaid())
+                .expired(reservation.isExpired())
+                .totalCost(reservation.getTotalCost());
+    }
 }
@@ -1,10 +1,15 @@
 package org.multiplex.domain;
 
+import org.multiplex.domain.dto.AvailableScreeningDto;
+import org.springframework.data.domain.Pageable;
+
 import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 class InMemoryScreeningRepository implements ScreeningRepository {
 
@@ -26,12 +31,51 @@ class InMemoryScreeningRepository implements ScreeningRepository {
     }
 
     @Override
-    public List<Screening> findByStartScreeningTimeBetween(OffsetDateTime from, OffsetDateTime to) {
+    public List<ScreeningSeatCount> findSeatCounts() {
+        return data.values().stream()
+                .map(screening -> new ScreeningSeatCount(screening.getId(),
+                        (long) screening.getRoom().getRowCount() * screening.getRoom().getColumnCount()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<AvailableScreeningDto> findAvailableScreenings(OffsetDateTime from, OffsetDateTime to) {
+        return findAvailableScreenings(startScreeningTime -> !(startScreeningTime.isBefore(from) || startScreeningTime.isAfter(to)));
+    }
+
+    @Override
+    public List<AvailableScreeningDto> findAvailableScreeningsStartingIn(OffsetDateTime from, OffsetDateTime until) {
+        return findAvailableScreenings(startScreeningTime -> !startScreeningTime.isBefore(from) && startScreeningTime.isBefore(until));
+    }
+
+    @Override
+    public List<AvailableScreeningDto> findAvailableScreenings(OffsetDateTime from, OffsetDateTime to, Pageable page) {
+        return findAvailableScreenings(from, to).stream()
+                .limit(page.getPageSize())
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<AvailableScreeningDto> findAvailableScreeningsAfter(OffsetDateTime from, OffsetDateTime to,
+                                                                    String title, OffsetDateTime startTime, int screeningId,
+                                                                    Pageable page) {
+        AvailableScreeningDto cursor = new AvailableScreeningDto(screeningId, title, startTime);
+        return findAvailableScreenings(from, to).stream()
+                .filter(screening -> ScreeningListingCache.LISTING_ORDER.compare(screening, cursor) > 0)
+                .limit(page.getPageSize())
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<AvailableScreeningDto> streamAvailableScreenings(OffsetDateTime from, OffsetDateTime to) {
+        return findAvailableScreenings(from, to).stream();
+    }
+
+    private List<AvailableScreeningDto> findAvailableScreenings(Predicate<OffsetDateTime> startScreeningTimeFilter) {
         return data.values().stream()
-                .filter(screening -> {
-                    final OffsetDateTime startScreeningTime = screening.getStartScreeningTime();
-                    return !(startScreeningTime.isBefore(from) || startScreeningTime.isAfter(to));
-                })
+                .filter(screening -> startScreeningTimeFilter.test(screening.getStartScreeningTime()))
+                .map(screening -> new AvailableScreeningDto(screening.getId(), screening.getMovie().getTitle(), screening.getStartScreeningTime()))
+                .sorted(ScreeningListingCache.LISTING_ORDER)
                 .collect(Collectors.toList());
     }
 }
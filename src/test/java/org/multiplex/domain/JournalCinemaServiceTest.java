@@ -0,0 +1,39 @@
+package org.multiplex.domain;
+
+import org.junit.jupiter.api.AfterEach;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Runs all {@link CinemaServiceTest} cases against {@link JournalReservationRepository}.
+ */
+class JournalCinemaServiceTest extends CinemaServiceTest {
+
+    private Path directory;
+    private JournalReservationRepository journal;
+
+    @Override
+    ReservationRepository createReservationRepository() {
+        try {
+            directory = Files.createTempDirectory("reservation-journal");
+            journal = new JournalReservationRepository(screeningRepo, directory, 64 * 1024, false);
+            journal.open();
+            return journal;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @AfterEach
+    void deleteJournal() throws IOException {
+        journal.close();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package org.multiplex.domain;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.BDDAssertions.then;
+import static org.assertj.core.groups.Tuple.tuple;
+
+class JournalReservationRepositoryTest {
+
+    private static final int SEGMENT_BYTES = 64 * 1024;
+    private static final OffsetDateTime EXPIRATION_TIME = OffsetDateTime.of(2019, 12, 10, 10, 0, 0, 0, ZoneOffset.ofHours(1));
+
+    @TempDir
+    Path directory;
+
+    private final InMemoryScreeningRepository screeningRepo = new InMemoryScreeningRepository();
+    private final Screening screening = new Screening(1, new Movie(1, "Titanic", Duration.ofMinutes(194)),
+            new Room(1, "Sala czerwona", 20, 20), EXPIRATION_TIME.plusDays(1));
+
+    private JournalReservationRepository journal;
+
+    @AfterEach
+    void closeJournal() throws IOException {
+        journal.close();
+    }
+
+    @Test
+    void open_RecoversSavedAndExpiredReservations() throws IOException {
+
+        //given
+        screeningRepo.add(screening);
+        journal = open();
+        Reservation first = journal.save(reservation(1, 2));
+        Reservation second = journal.save(reservation(3, 4));
+        journal.markExpired(first.getId());
+        journal.close();
+
+        //when
+        journal = open();
+
+        then(journal.findByScreeningId(screening.getId()))
+                .extracting(Reservation::getId, Reservation::isExpired, Reservation::getBookingUserName,
+                        Reservation::getExpirationTime, Reservation::getTotalCost)
+                .containsExactlyInAnyOrder(
+                        tuple(first.getId(), true, "John", EXPIRATION_TIME, new BigDecimal("37.50")),
+                        tuple(second.getId(), false, "John", EXPIRATION_TIME, new BigDecimal("37.50")));
+        then(journal.findActiveReservedSeats(screening.getId())).containsExactlyInAnyOrder(new Seat(3, 3), new Seat(3, 4));
+        then(journal.findPendingExpiries()).extracting(ReservationExpiry::getReservationId).containsExactly(second.getId());
+        then(journal.save(reservation(5)).getId()).isGreaterThan(second.getId());
+    }
+
+    @Test
+    void save_RotatesSegments_AndRecoversFromSnapshot() throws IOException {
+
+        //given
+        journal = open();
+        for (int i = 0; i < 2_000; i++) {
+            journal.save(reservation(1 + i % 20));
+        }
+        journal.markExpired(1);
+        journal.close();
+
+        //when
+        journal = open();
+
+        then(files("segment-")).hasSize(1);
+        then(files("snapshot-")).hasSize(1);
+        then(journal.findPendingExpiries()).hasSize(1_999);
+        then(journal.findReservedSeats(2_000)).containsExactly(new Seat(3, 20));
+    }
+
+    @Test
+    void open_IgnoresTornRecordAtTheEndOfJournal() throws IOException {
+
+        //given
+        journal = open();
+        journal.save(reservation(1));
+        Reservation torn = journal.save(reservation(2));
+        journal.close();
+
+        Path segment = files("segment-").get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            // damages the last byte of the second record
+            channel.write(ByteBuffer.wrap(new byte[]{42}), recordEnd(segment, 2) - 1);
+        }
+
+        //when
+        journal = open();
+        Reservation next = journal.save(reservation(3));
+        journal.close();
+        journal = open();
+
+        then(journal.findActiveReservedSeats(screening.getId())).containsExactlyInAnyOrder(new Seat(3, 1), new Seat(3, 3));
+        then(next.getId()).isEqualTo(torn.getId());
+    }
+
+    @Test
+    void rollback_ExpiresSavedReservations_AndRestoresExpiredOnes() throws IOException {
+
+        //given
+        screeningRepo.add(screening);
+        journal = open();
+        Reservation handedOff = journal.save(reservation(1, 2));
+        Reservation committed = journal.save(reservation(3));
+
+        //when
+        Reservation rolledBack = inTransaction(TransactionSynchronization.STATUS_ROLLED_BACK, () -> {
+            journal.markHandedOff(handedOff.getId());
+            journal.markHandedOff(committed.getId());
+            return journal.save(reservation(1, 2));
+        });
+        inTransaction(TransactionSynchronization.STATUS_COMMITTED, () -> journal.markExpired(committed.getId()));
+        journal.close();
+        journal = open();
+
+        then(journal.findByScreeningId(screening.getId()))
+                .extracting(Reservation::getId, Reservation::isExpired)
+                .containsExactlyInAnyOrder(tuple(handedOff.getId(), false), tuple(committed.getId(), true), tuple(rolledBack.getId(), true));
+        then(journal.findActiveReservedSeats(screening.getId())).containsExactlyInAnyOrder(new Seat(3, 1), new Seat(3, 2));
+    }
+
+    private static <T> T inTransaction(int completionStatus, Supplier<T> work) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            T result = work.get();
+            TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(), completionStatus);
+            return result;
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private JournalReservationRepository open() throws IOException {
+        JournalReservationRepository repository = new JournalReservationRepository(screeningRepo, directory, SEGMENT_BYTES, false);
+        repository.open();
+        return repository;
+    }
+
+    private Reservation reservation(int... columns) {
+        Set<ReservedSeat> seats = new HashSet<>();
+        for (int column : columns) {
+            seats.add(new ReservedSeat(0, 3, column, ReservationType.ADULT));
+        }
+        return Reservation.builder()
+                .screening(screening)
+                .bookingUserName("John")
+                .bookingUserSurname("Smith")
+                .expirationTime(EXPIRATION_TIME)
+                .reservedSeats(seats)
+                .totalCost(new BigDecimal("37.50"))
+                .build();
+    }
+
+    private List<Path> files(String prefix) throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.filter(path -> path.getFileName().toString().startsWith(prefix)).collect(Collectors.toList());
+        }
+    }
+
+    private static long recordEnd(Path segment, int records) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(segment));
+        for (int i = 0; i < records; i++) {
+            int length = bytes.getInt();
+            bytes.position(bytes.position() + 4 + length);
+        }
+        return bytes.position();
+    }
+}
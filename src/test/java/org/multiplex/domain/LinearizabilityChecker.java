@@ -0,0 +1,164 @@
+package org.multiplex.domain;
+
+import org.multiplex.domain.BookingStressHarness.Operation;
+import org.multiplex.domain.dto.ReservationDto;
+import org.multiplex.domain.exception.SeatGapException;
+import org.multiplex.domain.exception.SeatReservedException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Checks that recorded reservations of every screening can be explained by some sequential order
+ * of calls that respects real time, using {@link SeatsValidator} as the sequential specification.
+ * Reservation ids are taken as the witness order, as they are generated under the screening lock.
+ */
+class LinearizabilityChecker {
+
+    private final SeatsValidator specification = new SeatsValidator();
+
+    List<String> check(List<Operation> operations, Map<Integer, Room> rooms) {
+
+        List<String> violations = new ArrayList<>();
+
+        operations.stream()
+                .collect(Collectors.groupingBy(Operation::getScreeningId))
+                .forEach((screeningId, screeningOperations) ->
+                        violations.addAll(checkScreening(screeningId, screeningOperations, rooms.get(screeningId))));
+
+        return violations;
+    }
+
+    SeatOccupancy finalOccupancy(List<Operation> operations, int screeningId, Room room) {
+        SeatOccupancy occupancy = new SeatOccupancy(room.getRowCount(), room.getColumnCount());
+        operations.stream()
+                .filter(operation -> operation.getScreeningId() == screeningId && operation.isAccepted())
+                .forEach(operation -> reserve(occupancy, operation));
+        return occupancy;
+    }
+
+    private List<String> checkScreening(int screeningId, List<Operation> operations, Room room) {
+
+        List<String> violations = new ArrayList<>();
+
+        List<Operation> witness = operations.stream()
+                .filter(Operation::isAccepted)
+                .sorted(Comparator.comparing(Operation::getReservationId))
+                .collect(Collectors.toList());
+
+        // no operation may be ordered after one which started when it had already finished
+        long earliestEndOfLater = Long.MAX_VALUE;
+        for (int i = witness.size() - 1; i >= 0; i--) {
+            Operation operation = witness.get(i);
+            if (earliestEndOfLater < operation.getStartNanos()) {
+                violations.add("Screening " + screeningId + ": reservation " + operation.getReservationId()
+                        + " is ordered before a reservation which had finished before it started");
+            }
+            earliestEndOfLater = Math.min(earliestEndOfLater, operation.getEndNanos());
+        }
+
+        // every accepted reservation has to be valid in the witness order, so no seat is sold twice and no gap is left
+        SeatOccupancy occupancy = new SeatOccupancy(room.getRowCount(), room.getColumnCount());
+        for (Operation operation : witness) {
+            if (isRejected(operation, occupancy, room)) {
+                violations.add("Screening " + screeningId + ": reservation " + operation.getReservationId()
+                        + " of seats " + operation.getSeats() + " conflicts with earlier reservations");
+            }
+            reserve(occupancy, operation);
+        }
+
+        violations.addAll(findGaps(screeningId, occupancy));
+
+        // every rejection has to be explained by reservations which could have happened before it
+        for (Operation operation : operations) {
+            if (operation.isAccepted()) {
+                continue;
+            }
+
+            if (operation.getFailure() != SeatReservedException.class && operation.getFailure() != SeatGapException.class) {
+                violations.add("Screening " + screeningId + ": unexpected failure " + operation.getFailure().getSimpleName());
+            } else if (!isRejectionExplained(operation, witness, room)) {
+                violations.add("Screening " + screeningId + ": seats " + operation.getSeats()
+                        + " were rejected although they were free at every possible point");
+            }
+        }
+
+        return violations;
+    }
+
+    private boolean isRejectionExplained(Operation rejected, List<Operation> witness, Room room) {
+
+        int firstPossiblePoint = 0;
+        int lastPossiblePoint = witness.size();
+
+        for (int i = 0; i < witness.size(); i++) {
+            if (witness.get(i).getEndNanos() < rejected.getStartNanos()) {
+                firstPossiblePoint = i + 1;
+            }
+        }
+        for (int i = witness.size() - 1; i >= 0; i--) {
+            if (witness.get(i).getStartNanos() > rejected.getEndNanos()) {
+                lastPossiblePoint = i;
+            }
+        }
+
+        SeatOccupancy occupancy = new SeatOccupancy(room.getRowCount(), room.getColumnCount());
+        for (int i = 0; i < firstPossiblePoint; i++) {
+            reserve(occupancy, witness.get(i));
+        }
+
+        for (int point = firstPossiblePoint; point <= lastPossiblePoint; point++) {
+            if (isRejected(rejected, occupancy, room)) {
+                return true;
+            }
+            if (point < witness.size()) {
+                reserve(occupancy, witness.get(point));
+            }
+        }
+        return false;
+    }
+
+    private boolean isRejected(Operation operation, SeatOccupancy occupancy, Room room) {
+        List<ReservationDto.SeatToReserveDto> seats = operation.getSeats().stream()
+                .map(seat -> ReservationDto.SeatToReserveDto.builder()
+                        .row(seat.getRow())
+                        .column(seat.getColumn())
+                        .build())
+                .collect(Collectors.toList());
+
+        try {
+            specification.validate(seats, occupancy.getReservedSeats(), room);
+            return false;
+        } catch (RuntimeException e) {
+            return true;
+        }
+    }
+
+    private static List<String> findGaps(int screeningId, SeatOccupancy occupancy) {
+        List<String> gaps = new ArrayList<>();
+        for (int row = 1; row <= occupancy.getRowCount(); row++) {
+            for (int column = 3; column <= occupancy.getColumnCount(); column++) {
+                if (occupancy.isReserved(row, column - 2)
+                        && !occupancy.isReserved(row, column - 1)
+                        && occupancy.isReserved(row, column)) {
+                    gaps.add("Screening " + screeningId + ": single seat gap at row " + row + " and column " + (column - 1));
+                }
+            }
+        }
+        return gaps;
+    }
+
+    private static void reserve(SeatOccupancy occupancy, Operation operation) {
+        operation.getSeats().forEach(seat -> occupancy.reserve(seat.getRow(), seat.getColumn()));
+    }
+
+    static Map<Integer, Room> rooms(List<Screening> screenings) {
+        Map<Integer, Room> rooms = new HashMap<>();
+        screenings.forEach(screening -> rooms.put(screening.getId(), screening.getRoom()));
+        return rooms;
+    }
+}
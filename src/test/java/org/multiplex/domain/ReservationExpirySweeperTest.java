@@ -0,0 +1,96 @@
+package org.multiplex.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.Set;
+
+import static org.assertj.core.api.BDDAssertions.then;
+import static org.assertj.core.groups.Tuple.tuple;
+
+class ReservationExpirySweeperTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2019-12-09T10:00:00.00Z"));
+    private final InMemoryReservationRepository reservationRepo = new InMemoryReservationRepository();
+    private final SeatOccupancyIndex seatOccupancyIndex = new SeatOccupancyIndex(reservationRepo, clock);
+    private final ScreeningLocks screeningLocks = new ScreeningLocks(4);
+    private final ScreeningAvailability screeningAvailability = new ScreeningAvailability(new InMemoryScreeningRepository(), reservationRepo, screeningLocks, clock);
+    private final ReservationExpirySweeper sweeper = new ReservationExpirySweeper(reservationRepo, seatOccupancyIndex, screeningAvailability, screeningLocks, clock, 1_000);
+
+    private final Screening screening = new Screening(1, new Movie(1, "Titanic", Duration.ofMinutes(194)),
+            new Room(1, "Sala czerwona", 10, 10), OffsetDateTime.now(clock).plusDays(2));
+
+    @Test
+    void sweep_ReleasesSeatsOfUnpaidReservations_WhenTheyExpire() {
+
+        //given
+        Reservation reservation = reserve(Duration.ofMinutes(10), false, 2, 3);
+        SeatOccupancy occupancy = seatOccupancyIndex.get(screening);
+
+        //when
+        clock.advance(Duration.ofMinutes(9));
+        int expiredEarly = sweeper.sweep();
+        clock.advance(Duration.ofMinutes(1));
+        int expired = sweeper.sweep();
+
+        then(expiredEarly).isZero();
+        then(expired).isEqualTo(1);
+        then(occupancy.isReserved(2, 3)).isFalse();
+        then(reservationRepo.findActiveReservedSeats(screening.getId())).isEmpty();
+        then(reservationRepo.findByScreeningId(screening.getId()))
+                .extracting(Reservation::getId, Reservation::isExpired)
+                .containsExactly(tuple(reservation.getId(), true));
+    }
+
+    @Test
+    void sweep_KeepsReservations_PaidAfterTheyWereScheduled() {
+
+        //given
+        Reservation reservation = reserve(Duration.ofMinutes(10), true, 5, 5);
+        sweeper.schedule(new ReservationExpiry(reservation.getId(), screening.getId(), reservation.getExpirationTime()));
+        SeatOccupancy occupancy = seatOccupancyIndex.get(screening);
+
+        //when
+        clock.advance(Duration.ofHours(1));
+        int expired = sweeper.sweep();
+
+        then(expired).isZero();
+        then(occupancy.isReserved(5, 5)).isTrue();
+    }
+
+    @Test
+    void recover_SchedulesPendingReservations_FromRepository() {
+
+        //given
+        reservationRepo.save(reservation(Duration.ofMinutes(-5), false, 1, 1));
+        reservationRepo.save(reservation(Duration.ofMinutes(30), false, 1, 2));
+        SeatOccupancy occupancy = seatOccupancyIndex.get(screening);
+
+        //when
+        sweeper.recover();
+        int expired = sweeper.sweep();
+
+        then(expired).isEqualTo(1);
+        then(occupancy.isReserved(1, 1)).isFalse();
+        then(occupancy.isReserved(1, 2)).isTrue();
+        then(sweeper.getPendingCount()).isEqualTo(1);
+    }
+
+    private Reservation reserve(Duration validFor, boolean paid, int row, int column) {
+        Reservation reservation = reservationRepo.save(reservation(validFor, paid, row, column));
+        seatOccupancyIndex.reserve(screening, reservation);
+        sweeper.schedule(reservation);
+        return reservation;
+    }
+
+    private Reservation reservation(Duration validFor, boolean paid, int row, int column) {
+        return Reservation.builder()
+                .screening(screening)
+                .expirationTime(OffsetDateTime.now(clock).plus(validFor))
+                .reservedSeats(Set.of(new ReservedSeat(0, row, column, ReservationType.ADULT)))
+                .paid(paid)
+                .build();
+    }
+}
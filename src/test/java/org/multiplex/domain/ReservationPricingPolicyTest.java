@@ -0,0 +1,105 @@
+package org.multiplex.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.BDDAssertions.then;
+import static org.assertj.core.api.BDDAssertions.thenThrownBy;
+
+class ReservationPricingPolicyTest {
+
+    private static final Movie TITANIC = new Movie(1, "Titanic", Duration.ofMinutes(194));
+    private static final Room RED_ROOM = new Room(1, "Sala czerwona", 20, 20);
+    private static final Room BLUE_ROOM = new Room(2, "Sala niebieska", 18, 30);
+
+    private static final OffsetDateTime WEDNESDAY_MORNING = OffsetDateTime.parse("2019-12-11T10:00:00Z");
+    private static final OffsetDateTime SATURDAY_EVENING = OffsetDateTime.parse("2019-12-14T19:00:00Z");
+
+    @Test
+    void getPriceTable_WithoutRules_ReturnsBasePrices() {
+
+        //given
+        ReservationPricingPolicy policy = new ReservationPricingPolicy();
+
+        //when
+        ReservationPricingPolicy.PriceTable priceTable = policy.getPriceTable(new Screening(1, TITANIC, RED_ROOM, SATURDAY_EVENING));
+
+        //then
+        for (int row = 1; row <= RED_ROOM.getRowCount(); row++) {
+            then(priceTable.getPrice(row, ReservationType.ADULT)).isEqualTo(2500);
+            then(priceTable.getPrice(row, ReservationType.STUDENT)).isEqualTo(1800);
+            then(priceTable.getPrice(row, ReservationType.CHILD)).isEqualTo(1250);
+            then(priceTable.getScale(row, ReservationType.ADULT)).isEqualTo(0);
+            then(priceTable.getScale(row, ReservationType.CHILD)).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void getPriceTable_AppliesMatchingRulesInOrder() {
+
+        //given
+        ReservationPricingPolicy policy = new ReservationPricingPolicy(PricingRule.parseAll(
+                "day=SATURDAY|SUNDAY -> +3.00;" +
+                        " time=18:00-23:00 -> +2.00;" +
+                        " room=Sala czerwona, rows=1-3 -> -4.50;" +
+                        " movie=Titanic, type=CHILD -> =10.00"), 100);
+
+        //when
+        ReservationPricingPolicy.PriceTable weekend = policy.getPriceTable(new Screening(1, TITANIC, RED_ROOM, SATURDAY_EVENING));
+        ReservationPricingPolicy.PriceTable weekday = policy.getPriceTable(new Screening(2, TITANIC, BLUE_ROOM, WEDNESDAY_MORNING));
+
+        //then
+        then(weekend.getPrice(1, ReservationType.ADULT)).isEqualTo(2550);
+        then(weekend.getPrice(4, ReservationType.ADULT)).isEqualTo(3000);
+        then(weekend.getPrice(4, ReservationType.STUDENT)).isEqualTo(2300);
+        then(weekend.getPrice(1, ReservationType.CHILD)).isEqualTo(1000);
+
+        then(weekday.getPrice(1, ReservationType.ADULT)).isEqualTo(2500);
+        then(weekday.getPrice(1, ReservationType.CHILD)).isEqualTo(1000);
+
+        then(weekend.getScale(4, ReservationType.ADULT)).isEqualTo(2);
+        then(weekday.getScale(1, ReservationType.ADULT)).isEqualTo(0);
+    }
+
+    @Test
+    void getPriceTable_NeverReturnsNegativePrices() {
+
+        //given
+        ReservationPricingPolicy policy = new ReservationPricingPolicy(PricingRule.parseAll("type=CHILD -> -20.00"), 100);
+
+        //when
+        ReservationPricingPolicy.PriceTable priceTable = policy.getPriceTable(new Screening(1, TITANIC, RED_ROOM, SATURDAY_EVENING));
+
+        //then
+        then(priceTable.getPrice(1, ReservationType.CHILD)).isZero();
+    }
+
+    @Test
+    void getPriceTable_CompilesAgain_WhenScreeningChanged() {
+
+        //given
+        ReservationPricingPolicy policy = new ReservationPricingPolicy(PricingRule.parseAll("day=SATURDAY -> +3.00"), 100);
+        ReservationPricingPolicy.PriceTable saturday = policy.getPriceTable(new Screening(1, TITANIC, RED_ROOM, SATURDAY_EVENING));
+
+        //when
+        ReservationPricingPolicy.PriceTable sameScreening = policy.getPriceTable(new Screening(1, TITANIC, RED_ROOM, SATURDAY_EVENING));
+        ReservationPricingPolicy.PriceTable moved = policy.getPriceTable(new Screening(1, TITANIC, RED_ROOM, WEDNESDAY_MORNING));
+
+        //then
+        then(sameScreening).isSameAs(saturday);
+        then(moved.getPrice(1, ReservationType.ADULT)).isEqualTo(2500);
+    }
+
+    @Test
+    void parseAll_RejectsInvalidRules() {
+
+        thenThrownBy(() -> PricingRule.parseAll("day=SATURDAY +3.00")).isInstanceOf(IllegalArgumentException.class);
+        thenThrownBy(() -> PricingRule.parseAll("seat=1 -> +3.00")).isInstanceOf(IllegalArgumentException.class);
+        thenThrownBy(() -> PricingRule.parseAll("day=FRYDAY -> +3.00")).isInstanceOf(IllegalArgumentException.class);
+        thenThrownBy(() -> PricingRule.parseAll("* -> +3.001")).isInstanceOf(IllegalArgumentException.class);
+        then(PricingRule.parseAll(" ; ")).isEqualTo(List.of());
+    }
+}
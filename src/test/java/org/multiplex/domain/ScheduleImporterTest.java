@@ -0,0 +1,111 @@
+package org.multiplex.domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.multiplex.App;
+import org.multiplex.domain.dto.AvailableScreeningDto;
+import org.multiplex.domain.dto.ScheduleImportDto;
+import org.multiplex.domain.dto.TimeRangeDto;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.BDDAssertions.then;
+import static org.assertj.core.api.BDDAssertions.thenThrownBy;
+
+class ScheduleImporterTest {
+
+    private static final OffsetDateTime FIRST_START = OffsetDateTime.parse("2030-01-01T09:00:00Z");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void importsMoviesRoomsAndScreenings_InBatches() throws Exception {
+
+        //given
+        List<String> lines = new ArrayList<>(List.of(
+                "# sample",
+                "movie,Titanic,194",
+                "movie,\"Good, Bad and \"\"Ugly\"\"\",178",
+                "room,Sala czerwona,20,20",
+                ""));
+        for (int i = 0; i < 2500; i++) {
+            lines.add("screening," + (i % 2 == 0 ? "Titanic" : "\"Good, Bad and \"\"Ugly\"\"\"") + ",Sala czerwona," + FIRST_START.plusHours(i));
+        }
+
+        //when
+        try (ConfigurableApplicationContext context = start(schedule(lines))) {
+            ScheduleImportDto progress = awaitImport(context);
+
+            //then
+            then(progress.getState()).isEqualTo(ScheduleImportDto.State.DONE);
+            then(progress.getMovies()).isEqualTo(2);
+            then(progress.getRooms()).isEqualTo(1);
+            then(progress.getScreenings()).isEqualTo(2500);
+            then(progress.getLinesRead()).isEqualTo(2505);
+
+            List<AvailableScreeningDto> screenings = context.getBean(CinemaService.class)
+                    .getAvailableScreenings(TimeRangeDto.builder().from(FIRST_START).to(FIRST_START.plusHours(1)).build());
+            then(screenings).extracting(AvailableScreeningDto::getMovieTitle).containsExactly("Good, Bad and \"Ugly\"", "Titanic");
+            then(screenings).extracting(AvailableScreeningDto::getSeatsLeft).containsOnly(400);
+
+            Screening screening = context.getBean(ScreeningRepository.class).findById(screenings.get(1).getScreeningId());
+            then(screening.getMovie().getDuration()).isEqualTo(Duration.ofMinutes(194));
+            then(screening.getRoom().getName()).isEqualTo("Sala czerwona");
+            then(screening.getStartScreeningTime().isEqual(FIRST_START)).isTrue();
+        }
+    }
+
+    @Test
+    void stopsAtFirstInvalidLine_KeepingCommittedBatches() throws Exception {
+
+        //given
+        List<String> lines = new ArrayList<>(List.of("movie,Titanic,194", "room,Sala czerwona,20,20"));
+        for (int i = 0; i < 1000; i++) {
+            lines.add("screening,Titanic,Sala czerwona," + FIRST_START.plusHours(i));
+        }
+        lines.add("screening,Gladiator,Sala czerwona," + FIRST_START);
+
+        //when
+        try (ConfigurableApplicationContext context = start(schedule(lines))) {
+            ScheduleImportDto progress = awaitImport(context);
+
+            //then
+            then(progress.getState()).isEqualTo(ScheduleImportDto.State.FAILED);
+            then(progress.getError()).isEqualTo("Invalid schedule line 1003: Unknown movie Gladiator");
+            then(progress.getScreenings()).isEqualTo(1000);
+        }
+    }
+
+    @Test
+    void fields_SplitsQuotedFields() {
+        then(ScheduleImporter.fields("room, \"Sala 1, \"\"duża\"\"\" ,5,10")).containsExactly("room", "Sala 1, \"duża\"", "5", "10");
+        thenThrownBy(() -> ScheduleImporter.fields("room,\"Sala 1,5,10")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Path schedule(List<String> lines) throws IOException {
+        return Files.write(directory.resolve("schedule.csv"), lines);
+    }
+
+    private static ConfigurableApplicationContext start(Path schedule) {
+        return new SpringApplicationBuilder(App.class)
+                .web(WebApplicationType.NONE)
+                .run("--cinema.schedule.file=" + schedule.toUri(), "--cinema.schedule.batch-size=1000");
+    }
+
+    private static ScheduleImportDto awaitImport(ConfigurableApplicationContext context) throws InterruptedException {
+        ScheduleImporter scheduleImporter = context.getBean(ScheduleImporter.class);
+        then(scheduleImporter.awaitCompletion(1, TimeUnit.MINUTES)).isTrue();
+        return scheduleImporter.getProgress();
+    }
+}
@@ -0,0 +1,178 @@
+package org.multiplex.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.BDDAssertions.then;
+import static org.assertj.core.api.BDDAssertions.thenThrownBy;
+
+class ScreeningAvailabilityTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2019-12-09T10:00:00.00Z"));
+    private final InMemoryScreeningRepository screeningRepo = new InMemoryScreeningRepository();
+    private final InMemoryReservationRepository reservationRepo = new InMemoryReservationRepository();
+    private final ScreeningLocks screeningLocks = new ScreeningLocks(4);
+    private final ScreeningAvailability screeningAvailability = new ScreeningAvailability(screeningRepo, reservationRepo, screeningLocks, clock);
+
+    private final Screening screening = new Screening(1, new Movie(1, "Titanic", Duration.ofMinutes(194)),
+            new Room(1, "Sala czerwona", 10, 10), OffsetDateTime.now(clock).plusDays(2));
+
+    @Test
+    void loadAll_CountsActiveReservedSeatsOfEveryScreening() {
+
+        //given
+        screeningRepo.add(screening);
+        reserve(false, new ReservedSeat(0, 1, 1, ReservationType.ADULT), new ReservedSeat(0, 1, 2, ReservationType.CHILD));
+        reserve(true, new ReservedSeat(0, 2, 1, ReservationType.ADULT));
+
+        //when
+        screeningAvailability.loadAll();
+
+        //then
+        ScreeningAvailability.Availability availability = screeningAvailability.get(screening.getId());
+        then(availability.getSeatCount()).isEqualTo(100);
+        then(availability.getSeatsLeft()).isEqualTo(98);
+        then(availability.isSoldOut()).isFalse();
+    }
+
+    @Test
+    void loadAll_KeepsLoadedScreenings_AndLeavesOnesChangedMeanwhileToBeLoadedLater() {
+
+        //given
+        Screening changedMeanwhile = new Screening(2, screening.getMovie(), screening.getRoom(), screening.getStartScreeningTime());
+        Screening changed = new Screening(changedMeanwhile.getId(), changedMeanwhile.getMovie(), new Room(2, "Sala mała", 2, 5),
+                changedMeanwhile.getStartScreeningTime());
+        AtomicReference<ScreeningAvailability> loading = new AtomicReference<>();
+        InMemoryScreeningRepository changingScreeningRepo = new InMemoryScreeningRepository() {
+            @Override
+            public List<ScreeningSeatCount> findSeatCounts() {
+                List<ScreeningSeatCount> seatCounts = super.findSeatCounts();
+                // the screening's room is changed after its seats were counted
+                add(changed);
+                loading.get().onScreeningChanged(new ScreeningChangedEvent(changed.getId(), changed.getStartScreeningTime()));
+                return seatCounts;
+            }
+        };
+        changingScreeningRepo.add(screening);
+        changingScreeningRepo.add(changedMeanwhile);
+        loading.set(new ScreeningAvailability(changingScreeningRepo, reservationRepo, screeningLocks, clock));
+        ScreeningAvailability.Availability loaded = loading.get().get(screening.getId());
+
+        //when
+        loading.get().loadAll();
+
+        //then
+        then(loading.get().get(screening.getId())).isSameAs(loaded);
+        then(loading.get().get(changedMeanwhile.getId()).getSeatCount()).isEqualTo(10);
+    }
+
+    @Test
+    void get_WaitsForCommittedReservation_ToCountItsSeatsOnce() throws Exception {
+
+        //given
+        screeningRepo.add(screening);
+
+        //when
+        ScreeningAvailability.Availability availability = loadWhileReservationIsCommitted(() -> screeningAvailability.get(screening.getId()));
+
+        //then
+        then(availability.getSeatsLeft()).isEqualTo(98);
+        then(screeningAvailability.get(screening.getId()).getSeatsLeft()).isEqualTo(98);
+    }
+
+    @Test
+    void loadAll_WaitsForCommittedReservation_ToCountItsSeatsOnce() throws Exception {
+
+        //given
+        screeningRepo.add(screening);
+
+        //when
+        loadWhileReservationIsCommitted(() -> {
+            screeningAvailability.loadAll();
+            return null;
+        });
+
+        //then
+        then(screeningAvailability.get(screening.getId()).getSeatsLeft()).isEqualTo(98);
+    }
+
+    /**
+     * Loads while a booking holding the screening's lock has committed its reservation but not yet added its seats.
+     */
+    private <T> T loadWhileReservationIsCommitted(Callable<T> load) throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            ScreeningLocks.Stripe stripe = screeningLocks.lock(screening.getId());
+            Future<T> loaded;
+            try {
+                reserve(false, new ReservedSeat(0, 1, 1, ReservationType.ADULT), new ReservedSeat(0, 1, 2, ReservationType.ADULT));
+                loaded = executor.submit(load);
+                thenThrownBy(() -> loaded.get(200, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+                screeningAvailability.reserved(screening.getId(), 2);
+            } finally {
+                stripe.unlock();
+            }
+            return loaded.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void reservedAndReleased_ChangeSeatsLeft_AndVersion() {
+
+        //given
+        screeningRepo.add(screening);
+        ScreeningAvailability.Availability loaded = screeningAvailability.get(screening.getId());
+
+        //when
+        screeningAvailability.reserved(screening.getId(), 100);
+        ScreeningAvailability.Availability soldOut = screeningAvailability.get(screening.getId());
+        screeningAvailability.released(screening.getId(), 1);
+
+        //then
+        then(soldOut.isSoldOut()).isTrue();
+        then(soldOut.getVersion()).isGreaterThan(loaded.getVersion());
+        then(screeningAvailability.get(screening.getId()).getSeatsLeft()).isEqualTo(1);
+        then(screeningAvailability.get(screening.getId()).getVersion()).isGreaterThan(soldOut.getVersion());
+    }
+
+    @Test
+    void get_LoadsScreeningAgain_AfterItChanged() {
+
+        //given
+        screeningRepo.add(screening);
+        screeningAvailability.get(screening.getId());
+        screeningRepo.add(new Screening(screening.getId(), screening.getMovie(), new Room(2, "Sala mała", 2, 5), screening.getStartScreeningTime()));
+
+        //when
+        screeningAvailability.onScreeningChanged(new ScreeningChangedEvent(screening.getId(), screening.getStartScreeningTime()));
+
+        //then
+        then(screeningAvailability.get(screening.getId()).getSeatsLeft()).isEqualTo(10);
+        then(screeningAvailability.get(404)).isNull();
+    }
+
+    private void reserve(boolean expired, ReservedSeat... seats) {
+        reservationRepo.save(Reservation.builder()
+                .screening(screening)
+                .bookingUserName("John")
+                .bookingUserSurname("Smith")
+                .expirationTime(screening.getStartScreeningTime())
+                .reservedSeats(Set.of(seats))
+                .expired(expired)
+                .build());
+    }
+}
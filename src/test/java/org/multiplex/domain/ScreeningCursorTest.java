@@ -0,0 +1,42 @@
+package org.multiplex.domain;
+
+import org.junit.jupiter.api.Test;
+import org.multiplex.domain.dto.AvailableScreeningDto;
+import org.multiplex.domain.exception.InvalidCursorException;
+
+import java.time.OffsetDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.BDDAssertions.then;
+import static org.assertj.core.api.BDDAssertions.thenThrownBy;
+
+class ScreeningCursorTest {
+
+    @Test
+    void decode_ReturnsEncodedPosition() {
+
+        //given
+        AvailableScreeningDto screening = new AvailableScreeningDto(17, "Sala żółta: Forrest Gump",
+                OffsetDateTime.parse("2019-12-15T12:30:15.123456+01:00"));
+
+        //when
+        ScreeningCursor cursor = ScreeningCursor.decode(ScreeningCursor.after(screening).encode());
+
+        then(cursor.getMovieTitle()).isEqualTo(screening.getMovieTitle());
+        then(cursor.getStartScreeningTime().toInstant()).isEqualTo(screening.getStartScreeningTime().toInstant());
+        then(cursor.getScreeningId()).isEqualTo(17);
+    }
+
+    @Test
+    void decode_Throws_IfCursorIsNotEncodedPosition() {
+
+        String truncated = ScreeningCursor.after(new AvailableScreeningDto(1, "Titanic", OffsetDateTime.now()))
+                .encode()
+                .substring(0, 10);
+        String tooLong = Base64.getUrlEncoder().encodeToString(new byte[64]);
+
+        thenThrownBy(() -> ScreeningCursor.decode("%%%")).isInstanceOf(InvalidCursorException.class);
+        thenThrownBy(() -> ScreeningCursor.decode(truncated)).isInstanceOf(InvalidCursorException.class);
+        thenThrownBy(() -> ScreeningCursor.decode(tooLong)).isInstanceOf(InvalidCursorException.class);
+    }
+}
@@ -0,0 +1,118 @@
+package org.multiplex.domain;
+
+import org.junit.jupiter.api.Test;
+import org.multiplex.domain.dto.AvailableScreeningDto;
+import org.multiplex.domain.dto.ScreeningCacheStatsDto;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.BDDAssertions.then;
+import static org.assertj.core.groups.Tuple.tuple;
+
+class ScreeningListingCacheTest {
+
+    private static final Movie TITANIC = new Movie(1, "Titanic", Duration.ofMinutes(194));
+    private static final Movie GLADIATOR = new Movie(2, "Gladiator", Duration.ofMinutes(171));
+    private static final Movie[] MOVIES = {TITANIC, GLADIATOR, new Movie(3, "Forrest Gump", Duration.ofMinutes(141))};
+    private static final Room ROOM = new Room(1, "Sala czerwona", 20, 20);
+    private static final OffsetDateTime MONDAY = OffsetDateTime.of(2019, 12, 9, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    private final InMemoryScreeningRepository screeningRepo = new InMemoryScreeningRepository();
+    private final ScreeningListingCache cache = new ScreeningListingCache(screeningRepo, 3);
+
+    @Test
+    void getAvailableScreenings_ReturnsTheSameListingsAsRepository_ForRandomRanges() {
+
+        //given
+        Random random = new Random(20191220);
+        for (int i = 1; i <= 300; i++) {
+            screeningRepo.add(new Screening(i, MOVIES[random.nextInt(MOVIES.length)], ROOM,
+                    MONDAY.plusMinutes(random.nextInt(7 * 24 * 4) * 15)));
+        }
+
+        for (int i = 0; i < 500; i++) {
+            // ranges in other offsets cross UTC midnight
+            OffsetDateTime from = MONDAY.plusMinutes(random.nextInt(7 * 24 * 60))
+                    .withOffsetSameInstant(ZoneOffset.ofHours(random.nextInt(25) - 12));
+            OffsetDateTime to = from.plusMinutes(random.nextInt(3 * 24 * 60));
+
+            //when
+            List<AvailableScreeningDto> screenings = cache.getAvailableScreenings(from, to);
+
+            then(screenings)
+                    .as("from %s to %s", from, to)
+                    .containsExactlyElementsOf(screeningRepo.findAvailableScreenings(from, to));
+        }
+    }
+
+    @Test
+    void getAvailableScreenings_CountsHitsAndMisses_OfDaySlices() {
+
+        //given
+        screeningRepo.add(new Screening(1, TITANIC, ROOM, MONDAY.plusHours(18)));
+
+        //when
+        cache.getAvailableScreenings(MONDAY.plusHours(8), MONDAY.plusHours(30));
+        cache.getAvailableScreenings(MONDAY.plusHours(10), MONDAY.plusHours(20));
+
+        ScreeningCacheStatsDto stats = cache.getStats();
+        then(stats.getMisses()).isEqualTo(2);
+        then(stats.getHits()).isEqualTo(1);
+        then(stats.getCachedDays()).isEqualTo(2);
+    }
+
+    @Test
+    void getAvailableScreenings_EvictsLeastRecentlyUsedDays() {
+
+        //when
+        for (int day = 0; day < 5; day++) {
+            cache.getAvailableScreenings(MONDAY.plusDays(day), MONDAY.plusDays(day).plusHours(12));
+        }
+        cache.getAvailableScreenings(MONDAY.plusDays(2), MONDAY.plusDays(2).plusHours(1));
+
+        ScreeningCacheStatsDto stats = cache.getStats();
+        then(stats.getEvictions()).isEqualTo(2);
+        then(stats.getCachedDays()).isEqualTo(3);
+        then(stats.getHits()).isEqualTo(1);
+    }
+
+    @Test
+    void getAvailableScreenings_QueriesRepository_ForRangesLongerThanTheCache() {
+
+        //given
+        screeningRepo.add(new Screening(1, TITANIC, ROOM, MONDAY.plusDays(5)));
+
+        //when
+        List<AvailableScreeningDto> screenings = cache.getAvailableScreenings(MONDAY, MONDAY.plusDays(6));
+
+        then(screenings).extracting(AvailableScreeningDto::getScreeningId).containsExactly(1);
+        then(cache.getStats().getCachedDays()).isZero();
+    }
+
+    @Test
+    void onScreeningChanged_InvalidatesDayOfTheScreening_AndDayItWasMovedFrom() {
+
+        //given
+        Screening screening = new Screening(1, TITANIC, ROOM, MONDAY.plusHours(18));
+        screeningRepo.add(screening);
+        screeningRepo.add(new Screening(2, GLADIATOR, ROOM, MONDAY.plusDays(2).plusHours(18)));
+        cache.getAvailableScreenings(MONDAY, MONDAY.plusDays(2).plusHours(23));
+
+        //when
+        Screening moved = new Screening(1, TITANIC, ROOM, MONDAY.plusDays(1).plusHours(20));
+        screeningRepo.add(moved);
+        cache.onScreeningChanged(moved.changedEvents().iterator().next());
+
+        then(cache.getAvailableScreenings(MONDAY, MONDAY.plusDays(2).plusHours(23)))
+                .extracting(AvailableScreeningDto::getScreeningId, AvailableScreeningDto::getStartScreeningTime)
+                .containsExactly(
+                        tuple(2, MONDAY.plusDays(2).plusHours(18)),
+                        tuple(1, MONDAY.plusDays(1).plusHours(20)));
+        then(cache.getStats().getInvalidations()).isEqualTo(1);
+        then(cache.getStats().getHits()).isEqualTo(1);
+    }
+}
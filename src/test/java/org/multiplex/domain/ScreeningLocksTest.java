@@ -0,0 +1,58 @@
+package org.multiplex.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+class ScreeningLocksTest {
+
+    @Test
+    void stripeFor_ReturnsTheSameStripe_ForTheSameScreening() {
+
+        ScreeningLocks screeningLocks = new ScreeningLocks(8);
+
+        then(screeningLocks.stripeFor(42)).isSameAs(screeningLocks.stripeFor(42));
+    }
+
+    @Test
+    void stripeFor_SpreadsConsecutiveScreeningsOverAllStripes() {
+
+        ScreeningLocks screeningLocks = new ScreeningLocks(8);
+
+        then(io.vavr.collection.List.rangeClosed(1, 64).map(screeningLocks::stripeFor).distinct())
+                .hasSize(8);
+    }
+
+    @Test
+    void getStats_CountsContendedAcquisitions() throws Exception {
+
+        //given
+        ScreeningLocks screeningLocks = new ScreeningLocks(4);
+        ScreeningLocks.Stripe stripe = screeningLocks.lock(7);
+        int stripeIndex = io.vavr.collection.List.ofAll(screeningLocks.getStats())
+                .filter(stats -> stats.getAcquisitions() == 1)
+                .head()
+                .getStripe();
+
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiting = new Thread(() -> {
+            screeningLocks.lock(7).unlock();
+            acquired.countDown();
+        });
+
+        //when
+        waiting.start();
+        while (screeningLocks.getStats().get(stripeIndex).getQueueLength() == 0) {
+            Thread.onSpinWait();
+        }
+        stripe.unlock();
+
+        then(acquired.await(5, TimeUnit.SECONDS)).isTrue();
+        then(screeningLocks.getStats().get(stripeIndex).getAcquisitions()).isEqualTo(2);
+        then(screeningLocks.getStats().get(stripeIndex).getContendedAcquisitions()).isEqualTo(1);
+        then(screeningLocks.getStats().get(stripeIndex).getQueueLength()).isZero();
+    }
+}
@@ -0,0 +1,259 @@
+package org.multiplex.domain;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.multiplex.domain.dto.CompactScreeningSeatsInfoDto;
+import org.multiplex.domain.dto.ReservationDto;
+import org.multiplex.domain.dto.ReservationDto.SeatToReserveDto;
+import org.multiplex.domain.dto.ReservationSummaryDto;
+import org.multiplex.domain.dto.ScreeningIdDto;
+import org.multiplex.domain.dto.ScreeningReservationsDto;
+import org.multiplex.domain.dto.ScreeningSeatsInfoDto;
+import org.multiplex.domain.dto.ScreeningSeatsInfoDto.AvailableSeatDto;
+import org.multiplex.domain.exception.SeatReservedException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.BDDAssertions.then;
+import static org.assertj.core.api.BDDAssertions.thenThrownBy;
+
+class ScreeningRouterTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2019-12-09T10:00:00Z"), ZoneOffset.UTC);
+    private static final Movie MOVIE = new Movie(1, "Gladiator", Duration.ofMinutes(171));
+    private static final Room ROOM = new Room(1, "Sala czerwona", 10, 20);
+    private static final List<Integer> SCREENING_IDS = IntStream.rangeClosed(1, 40).boxed().collect(Collectors.toList());
+
+    private final InMemoryScreeningRepository screeningRepository = new InMemoryScreeningRepository();
+    private final LocalBookingTransport transport = new LocalBookingTransport();
+    private final Map<String, InMemoryReservationRepository> reservationRepositories = new HashMap<>();
+
+    ScreeningRouterTest() {
+        SCREENING_IDS.forEach(id -> screeningRepository.add(new Screening(id, MOVIE, ROOM, OffsetDateTime.now(CLOCK).plusDays(2))));
+    }
+
+    @Test
+    void reserveSeats_IsSentToScreeningOwner() {
+
+        //given
+        ScreeningRouter router = router("a", "b", "c");
+
+        //when
+        for (int screeningId : SCREENING_IDS) {
+            router.reserveSeats(reservation(screeningId, 1, 1));
+        }
+
+        //then
+        for (int screeningId : SCREENING_IDS) {
+            String owner = router.ownerOf(screeningId);
+            reservationRepositories.forEach((node, repository) ->
+                    then(repository.findActiveReservedSeats(screeningId)).hasSize(node.equals(owner) ? 1 : 0));
+        }
+        then(reservationRepositories.values()).allSatisfy(repository -> then(repository.findPendingExpiries()).isNotEmpty());
+    }
+
+    @Test
+    void join_MovesReservationsOfScreeningsToNewOwner() {
+
+        //given
+        ScreeningRouter router = router("a", "b");
+        for (int screeningId : SCREENING_IDS) {
+            router.reserveSeats(reservation(screeningId, 1, 1));
+            router.reserveSeats(reservation(screeningId, 2, 5));
+        }
+
+        //when
+        startNode("c");
+        int moved = router.join("c");
+
+        //then
+        then(moved).isPositive();
+        then(reservationRepositories.get("c").findPendingExpiries()).hasSize(moved * 2);
+        thenEveryScreeningHasOnlyItsReservationsTaken(router);
+    }
+
+    @Test
+    void leave_MovesReservationsOfScreeningsToRemainingNodes() {
+
+        //given
+        ScreeningRouter router = router("a", "b", "c");
+        for (int screeningId : SCREENING_IDS) {
+            router.reserveSeats(reservation(screeningId, 1, 1));
+            router.reserveSeats(reservation(screeningId, 2, 5));
+        }
+        int ownedByC = (int) SCREENING_IDS.stream().filter(id -> router.ownerOf(id).equals("c")).count();
+
+        //when
+        int moved = router.leave("c");
+        transport.unregister("c");
+
+        //then
+        then(moved).isEqualTo(ownedByC);
+        then(reservationRepositories.get("c").findPendingExpiries()).isEmpty();
+        thenEveryScreeningHasOnlyItsReservationsTaken(router);
+    }
+
+    @Test
+    void join_MovesPaidReservations_SoTheirSeatsCannotBeSoldAgain() {
+
+        //given
+        ScreeningRouter router = router("a", "b");
+        for (int screeningId : SCREENING_IDS) {
+            router.reserveSeats(reservation(screeningId, 1, 1));
+            payReservationsOf(screeningId, router.ownerOf(screeningId));
+        }
+
+        //when
+        startNode("c");
+        int moved = router.join("c");
+
+        //then
+        then(moved).isPositive();
+        List<Reservation> takenOver = SCREENING_IDS.stream()
+                .flatMap(id -> reservationRepositories.get("c").findByScreeningId(id).stream())
+                .collect(Collectors.toList());
+        then(takenOver).hasSize(moved).allSatisfy(reservation -> then(reservation.isPaid()).isTrue());
+        for (int screeningId : SCREENING_IDS) {
+            thenThrownBy(() -> router.reserveSeats(reservation(screeningId, 1, 1))).isInstanceOf(SeatReservedException.class);
+        }
+        thenEveryScreeningHasOnlyItsReservationsTaken(router, 1);
+    }
+
+    @Test
+    void join_GivesReservationsBack_WhenNewOwnerCannotTakeScreeningOver() {
+
+        //given
+        ScreeningRouter router = router("a", "b");
+        for (int screeningId : SCREENING_IDS) {
+            router.reserveSeats(reservation(screeningId, 1, 1));
+            router.reserveSeats(reservation(screeningId, 2, 5));
+        }
+        startNode("c");
+        BookingNode c = transport.connect("c");
+        AtomicInteger takeOvers = new AtomicInteger();
+        transport.register("c", failingTakeOver(c, () -> takeOvers.incrementAndGet() % 2 == 0));
+
+        //when
+        int moved = router.join("c");
+
+        //then
+        then(moved).isPositive().isLessThan(takeOvers.get());
+        then(reservationRepositories.get("c").findPendingExpiries()).hasSize(moved * 2);
+        then(SCREENING_IDS.stream().filter(id -> router.ownerOf(id).equals("c")).count()).isEqualTo(moved);
+        for (int screeningId : SCREENING_IDS) {
+            thenThrownBy(() -> router.reserveSeats(reservation(screeningId, 1, 1))).isInstanceOf(SeatReservedException.class);
+        }
+        thenEveryScreeningHasOnlyItsReservationsTaken(router);
+    }
+
+    private static BookingNode failingTakeOver(BookingNode node, BooleanSupplier fails) {
+        return new BookingNode() {
+            @Override
+            public ReservationSummaryDto reserveSeats(ReservationDto reservationDto) {
+                return node.reserveSeats(reservationDto);
+            }
+
+            @Override
+            public ScreeningSeatsInfoDto getScreeningSeatsInfo(ScreeningIdDto screeningId) {
+                return node.getScreeningSeatsInfo(screeningId);
+            }
+
+            @Override
+            public CompactScreeningSeatsInfoDto getCompactScreeningSeatsInfo(ScreeningIdDto screeningId) {
+                return node.getCompactScreeningSeatsInfo(screeningId);
+            }
+
+            @Override
+            public ScreeningReservationsDto handOffScreening(ScreeningIdDto screeningId) {
+                return node.handOffScreening(screeningId);
+            }
+
+            @Override
+            public void takeOverScreening(ScreeningReservationsDto screeningReservations) {
+                if (fails.getAsBoolean()) {
+                    throw new IllegalStateException("Node is not available");
+                }
+                node.takeOverScreening(screeningReservations);
+            }
+        };
+    }
+
+    private void payReservationsOf(int screeningId, String node) {
+        InMemoryReservationRepository repository = reservationRepositories.get(node);
+        for (Reservation reservation : repository.findByScreeningId(screeningId)) {
+            repository.save(Reservation.builder()
+                    .id(reservation.getId())
+                    .screening(reservation.getScreening())
+                    .bookingUserName(reservation.getBookingUserName())
+                    .bookingUserSurname(reservation.getBookingUserSurname())
+                    .expirationTime(reservation.getExpirationTime())
+                    .reservedSeats(reservation.getReservedSeats())
+                    .totalCost(reservation.getTotalCost())
+                    .paid(true)
+                    .build());
+        }
+    }
+
+    private void thenEveryScreeningHasOnlyItsReservationsTaken(ScreeningRouter router) {
+        thenEveryScreeningHasOnlyItsReservationsTaken(router, 2);
+    }
+
+    private void thenEveryScreeningHasOnlyItsReservationsTaken(ScreeningRouter router, int takenSeats) {
+        for (int screeningId : SCREENING_IDS) {
+            List<AvailableSeatDto> availableSeats = router.getScreeningSeatsInfo(ScreeningIdDto.fromInt(screeningId)).getAvailableSeats();
+            then(availableSeats).hasSize(ROOM.getRowCount() * ROOM.getColumnCount() - takenSeats);
+        }
+    }
+
+    private ScreeningRouter router(String... nodes) {
+        for (String node : nodes) {
+            startNode(node);
+        }
+        return new ScreeningRouter(new ConsistentHashRing(List.of(nodes), 64), transport, () -> SCREENING_IDS);
+    }
+
+    private void startNode(String node) {
+        InMemoryReservationRepository reservationRepository = new InMemoryReservationRepository();
+        SeatOccupancyIndex seatOccupancyIndex = new SeatOccupancyIndex(reservationRepository, CLOCK);
+        ScreeningLocks screeningLocks = new ScreeningLocks(64);
+        ScreeningAvailability screeningAvailability = new ScreeningAvailability(screeningRepository, reservationRepository, screeningLocks, CLOCK);
+        CinemaService cinemaService = new CinemaService(screeningRepository, new ScreeningListingCache(screeningRepository, 31), reservationRepository,
+                new ReservationPricingPolicy(), new UserValidator(), new BitmaskSeatsValidator(), new BestSeatFinder(), seatOccupancyIndex, screeningAvailability,
+                screeningLocks, new ReservationExpirySweeper(reservationRepository, seatOccupancyIndex, screeningAvailability, screeningLocks, CLOCK, 100),
+                new SeatHolds(seatOccupancyIndex, screeningLocks, CLOCK, 300_000, 1_000),
+                new BookingMetrics(new SimpleMeterRegistry(), seatOccupancyIndex), CLOCK);
+
+        reservationRepositories.put(node, reservationRepository);
+        transport.register(node, cinemaService);
+    }
+
+    private static ReservationDto reservation(int screeningId, int row, int column) {
+        List<SeatToReserveDto> seats = new ArrayList<>();
+        seats.add(SeatToReserveDto.builder()
+                .row(row)
+                .column(column)
+                .reservationType(ReservationDto.ReservationType.ADULT)
+                .build());
+
+        return ReservationDto.builder()
+                .screeningId(screeningId)
+                .seatsToReserve(seats)
+                .bookingUser(ReservationDto.BookingUserDto.builder()
+                        .name("Jan")
+                        .surname("Kowalski")
+                        .build())
+                .build();
+    }
+}
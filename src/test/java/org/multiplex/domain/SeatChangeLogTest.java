@@ -0,0 +1,56 @@
+package org.multiplex.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+class SeatChangeLogTest {
+
+    private final SeatChangeLog changeLog = new SeatChangeLog(3, 10);
+
+    @Test
+    void since_ReturnsChangesMadeAfterGivenVersion_InOrder() {
+
+        //given
+        changeLog.append(11, true, List.of(new Seat(1, 1)));
+        changeLog.append(12, true, List.of(new Seat(1, 2)));
+        changeLog.append(13, false, List.of(new Seat(1, 1)));
+
+        //when
+        List<SeatChangeLog.SeatChange> changes = changeLog.since(11);
+
+        then(changes).extracting(SeatChangeLog.SeatChange::getVersion).containsExactly(12L, 13L);
+        then(changeLog.since(10)).hasSize(3);
+        then(changeLog.since(13)).isEmpty();
+        then(changeLog.getVersion()).isEqualTo(13);
+    }
+
+    @Test
+    void since_ReturnsNull_IfChangesWereDropped() {
+
+        //given
+        for (int version = 11; version <= 15; version++) {
+            changeLog.append(version, true, List.of(new Seat(1, version)));
+        }
+
+        //when
+        List<SeatChangeLog.SeatChange> changes = changeLog.since(11);
+
+        then(changes).isNull();
+        then(changeLog.since(12)).extracting(SeatChangeLog.SeatChange::getVersion).containsExactly(13L, 14L, 15L);
+    }
+
+    @Test
+    void since_ReturnsNull_ForVersionFromTheFuture() {
+
+        //given
+        changeLog.append(11, true, List.of(new Seat(1, 1)));
+
+        //when
+        List<SeatChangeLog.SeatChange> changes = changeLog.since(12);
+
+        then(changes).isNull();
+    }
+}
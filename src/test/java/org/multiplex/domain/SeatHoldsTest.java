@@ -0,0 +1,80 @@
+package org.multiplex.domain;
+
+import org.junit.jupiter.api.Test;
+import org.multiplex.domain.dto.ReservationDto;
+import org.multiplex.domain.dto.ReservationDto.SeatToReserveDto;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+class SeatHoldsTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2019-12-09T10:00:00.00Z"));
+    private final InMemoryReservationRepository reservationRepo = new InMemoryReservationRepository();
+    private final SeatOccupancyIndex seatOccupancyIndex = new SeatOccupancyIndex(reservationRepo, clock);
+    private final SeatHolds seatHolds = new SeatHolds(seatOccupancyIndex, new ScreeningLocks(4), clock, 60_000, 1_000);
+
+    private final Screening screening = new Screening(1, new Movie(1, "Titanic", Duration.ofMinutes(194)),
+            new Room(1, "Sala czerwona", 10, 10), OffsetDateTime.now(clock).plusDays(2));
+
+    @Test
+    void add_KeepsSeatsTaken_WhenSeatMapIsLoadedAgain() {
+
+        //given
+        seatOccupancyIndex.get(screening);
+        seatHolds.add(screening, List.of(seat(2, 3)));
+
+        //when
+        seatOccupancyIndex.invalidate(screening.getId());
+        SeatOccupancy occupancy = seatOccupancyIndex.get(screening);
+
+        then(occupancy.isReserved(2, 3)).isTrue();
+        then(occupancy.getFreeCount()).isEqualTo(99);
+    }
+
+    @Test
+    void sweep_ReleasesHolds_WhenTheyRunOut() {
+
+        //given
+        SeatOccupancy occupancy = seatOccupancyIndex.get(screening);
+        SeatHold hold = seatHolds.add(screening, List.of(seat(2, 3), seat(2, 4)));
+
+        //when
+        clock.advance(Duration.ofSeconds(59));
+        int expiredEarly = seatHolds.sweep();
+        clock.advance(Duration.ofSeconds(1));
+        int expired = seatHolds.sweep();
+
+        then(expiredEarly).isZero();
+        then(expired).isEqualTo(1);
+        then(occupancy.getFreeCount()).isEqualTo(100);
+        then(seatHolds.get(hold.getId())).isNull();
+        then(seatHolds.getCount()).isZero();
+    }
+
+    @Test
+    void sweep_SkipsHolds_ReleasedBefore() {
+
+        //given
+        SeatOccupancy occupancy = seatOccupancyIndex.get(screening);
+        SeatHold hold = seatHolds.add(screening, List.of(seat(2, 3)));
+        seatHolds.release(hold);
+        clock.advance(Duration.ofSeconds(30));
+        seatHolds.add(screening, List.of(seat(2, 3)));
+
+        //when
+        clock.advance(Duration.ofSeconds(30));
+        int expired = seatHolds.sweep();
+
+        then(expired).isZero();
+        then(occupancy.isReserved(2, 3)).isTrue();
+    }
+
+    private static SeatToReserveDto seat(int row, int column) {
+        return SeatToReserveDto.builder().row(row).column(column).reservationType(ReservationDto.ReservationType.ADULT).build();
+    }
+}
@@ -0,0 +1,180 @@
+package org.multiplex.domain;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.multiplex.domain.dto.ReservationDto;
+import org.multiplex.domain.dto.ReservationDto.SeatToReserveDto;
+import org.multiplex.domain.dto.ScreeningIdDto;
+import org.multiplex.domain.dto.ScreeningSeatsChangesDto;
+import org.multiplex.domain.dto.ScreeningSeatsInfoDto;
+import org.multiplex.domain.exception.ScreeningNotFoundException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.BDDAssertions.then;
+import static org.assertj.core.api.BDDAssertions.thenThrownBy;
+import static org.assertj.core.groups.Tuple.tuple;
+
+class SeatMapBroadcasterTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2019-12-09T10:00:00.00Z"));
+    private final InMemoryScreeningRepository screeningRepo = new InMemoryScreeningRepository();
+    private final InMemoryReservationRepository reservationRepo = new InMemoryReservationRepository();
+    private final SeatOccupancyIndex seatOccupancyIndex = new SeatOccupancyIndex(reservationRepo, clock);
+    private final ScreeningLocks screeningLocks = new ScreeningLocks(4);
+    private final ScreeningAvailability screeningAvailability = new ScreeningAvailability(screeningRepo, reservationRepo, screeningLocks, clock);
+    private final ReservationExpirySweeper reservationExpirySweeper = new ReservationExpirySweeper(reservationRepo, seatOccupancyIndex, screeningAvailability, screeningLocks, clock, 100);
+    private final SeatHolds seatHolds = new SeatHolds(seatOccupancyIndex, screeningLocks, clock, 300_000, 1_000);
+    private final CinemaService cinemaService = new CinemaService(screeningRepo, new ScreeningListingCache(screeningRepo, 31), reservationRepo,
+            new ReservationPricingPolicy(), new UserValidator(), new BitmaskSeatsValidator(), new BestSeatFinder(), seatOccupancyIndex, screeningAvailability, screeningLocks, reservationExpirySweeper, seatHolds,
+            new BookingMetrics(new SimpleMeterRegistry(), seatOccupancyIndex), clock);
+    private final SeatMapBroadcaster broadcaster = new SeatMapBroadcaster(cinemaService, seatOccupancyIndex, 100, 1, 3);
+
+    private final Screening screening = new Screening(1, new Movie(1, "Titanic", Duration.ofMinutes(194)),
+            new Room(1, "Sala czerwona", 10, 10), OffsetDateTime.now(clock).plusDays(2));
+    private final ScreeningIdDto screeningId = ScreeningIdDto.fromInt(screening.getId());
+
+    SeatMapBroadcasterTest() {
+        screeningRepo.add(screening);
+    }
+
+    @Test
+    void subscribe_SendsSeatMap_AndThenBurstOfChangesAsOneEvent() {
+
+        //given
+        broadcaster.start(Runnable::run);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        broadcaster.subscribe(screeningId, subscriber);
+        broadcaster.dispatch();
+
+        //when
+        cinemaService.reserveSeats(reservation(1, 1, 2));
+        cinemaService.reserveSeats(reservation(2, 5));
+        broadcaster.dispatch();
+
+        then(subscriber.events).extracting(event -> event.name)
+                .containsExactly(SeatMapBroadcaster.SEAT_MAP_EVENT, SeatMapBroadcaster.SEAT_CHANGES_EVENT);
+        then(((ScreeningSeatsInfoDto) subscriber.events.get(0).data).getAvailableSeats()).hasSize(100);
+
+        ScreeningSeatsChangesDto changes = (ScreeningSeatsChangesDto) subscriber.events.get(1).data;
+        then(changes.getTakenSeats())
+                .extracting(ScreeningSeatsChangesDto.SeatDto::getRow, ScreeningSeatsChangesDto.SeatDto::getColumn)
+                .containsExactlyInAnyOrder(tuple(1, 1), tuple(1, 2), tuple(2, 5));
+        then(subscriber.events.get(1).version).isEqualTo(cinemaService.getSeatMapVersion(screeningId));
+    }
+
+    @Test
+    void dispatch_SendsNothing_IfSeatsDidNotChange() {
+
+        //given
+        broadcaster.start(Runnable::run);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        broadcaster.subscribe(screeningId, subscriber);
+
+        //when
+        broadcaster.dispatch();
+        broadcaster.dispatch();
+
+        then(subscriber.events).hasSize(1);
+    }
+
+    @Test
+    void dispatch_DropsSubscriber_WhichCannotKeepUp() {
+
+        //given
+        List<Runnable> pendingSends = new ArrayList<>();
+        broadcaster.start(pendingSends::add);
+        RecordingSubscriber slow = new RecordingSubscriber();
+        broadcaster.subscribe(screeningId, slow);
+
+        //when
+        for (int column = 1; column <= 3; column++) {
+            cinemaService.reserveSeats(reservation(1, column));
+            broadcaster.dispatch();
+        }
+
+        then(slow.closed).isTrue();
+        then(broadcaster.getSubscriberCount()).isZero();
+    }
+
+    @Test
+    void dispatch_Unsubscribes_IfSendingFails() {
+
+        //given
+        broadcaster.start(Runnable::run);
+        RecordingSubscriber disconnected = new RecordingSubscriber();
+        broadcaster.subscribe(screeningId, disconnected);
+        disconnected.failing = true;
+
+        //when
+        cinemaService.reserveSeats(reservation(1, 1));
+        broadcaster.dispatch();
+
+        then(broadcaster.getSubscriberCount()).isZero();
+        then(disconnected.events).hasSize(1);
+    }
+
+    @Test
+    void subscribe_Throws_IfThereIsNotScreeningWithGivenId() {
+
+        //given
+        broadcaster.start(Runnable::run);
+
+        thenThrownBy(() -> broadcaster.subscribe(ScreeningIdDto.fromInt(17), new RecordingSubscriber()))
+                .isInstanceOf(ScreeningNotFoundException.class);
+        then(broadcaster.getSubscriberCount()).isZero();
+    }
+
+    private ReservationDto reservation(int row, int... columns) {
+        List<SeatToReserveDto> seats = new ArrayList<>();
+        for (int column : columns) {
+            seats.add(SeatToReserveDto.builder().row(row).column(column).reservationType(ReservationDto.ReservationType.ADULT).build());
+        }
+        return ReservationDto.builder()
+                .screeningId(screening.getId())
+                .seatsToReserve(seats)
+                .bookingUser(ReservationDto.BookingUserDto.builder()
+                        .name("John")
+                        .surname("Smith")
+                        .build())
+                .build();
+    }
+
+    private static class RecordingSubscriber implements SeatMapSubscriber {
+
+        private final List<RecordedEvent> events = new ArrayList<>();
+        private boolean failing;
+        private boolean closed;
+
+        @Override
+        public void send(String eventName, long version, Object data) throws IOException {
+            if (failing) {
+                throw new IOException("Broken pipe");
+            }
+            events.add(new RecordedEvent(eventName, version, data));
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static class RecordedEvent {
+
+        private final String name;
+        private final long version;
+        private final Object data;
+
+        RecordedEvent(String name, long version, Object data) {
+            this.name = name;
+            this.version = version;
+            this.data = data;
+        }
+    }
+}
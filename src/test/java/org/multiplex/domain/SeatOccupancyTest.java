@@ -0,0 +1,97 @@
+package org.multiplex.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+class SeatOccupancyTest {
+
+    @Test
+    void reserveAndRelease_UpdatesReservedSeats() {
+
+        //given
+        SeatOccupancy occupancy = new SeatOccupancy(5, 10);
+
+        //when
+        occupancy.reserve(1, 1);
+        occupancy.reserve(3, 7);
+        occupancy.reserve(5, 10);
+        occupancy.release(3, 7);
+
+        then(occupancy.isReserved(1, 1)).isTrue();
+        then(occupancy.isReserved(3, 7)).isFalse();
+        then(occupancy.isReserved(5, 10)).isTrue();
+        then(occupancy.getReservedCount()).isEqualTo(2);
+        then(occupancy.getFreeCount()).isEqualTo(48);
+        then(occupancy.getReservedSeats()).containsExactly(new Seat(1, 1), new Seat(5, 10));
+    }
+
+    @Test
+    void forEachAvailable_VisitsFreeSeatsRowByRow() {
+
+        //given
+        SeatOccupancy occupancy = new SeatOccupancy(2, 3);
+        occupancy.reserve(1, 2);
+        occupancy.reserve(2, 1);
+
+        //when
+        List<Seat> available = new ArrayList<>();
+        occupancy.forEachAvailable((row, column) -> available.add(new Seat(row, column)));
+
+        then(available).containsExactly(
+                new Seat(1, 1), new Seat(1, 3),
+                new Seat(2, 2), new Seat(2, 3));
+    }
+
+    @Test
+    void rowWord_ReturnsSeatsOfRowSpanningTwoWords() {
+
+        //given
+        SeatOccupancy occupancy = new SeatOccupancy(25, 25);
+        occupancy.reserve(3, 1);
+        occupancy.reserve(3, 14);
+        occupancy.reserve(3, 25);
+        occupancy.reserve(4, 1);
+
+        //when
+        long row = occupancy.rowWord(3, 0);
+
+        then(row).isEqualTo(1L | 1L << 13 | 1L << 24);
+    }
+
+    @Test
+    void rowWord_ReturnsFollowingColumns_ForWideRooms() {
+
+        //given
+        SeatOccupancy occupancy = new SeatOccupancy(3, 100);
+        occupancy.reserve(2, 64);
+        occupancy.reserve(2, 65);
+        occupancy.reserve(2, 100);
+        occupancy.reserve(3, 1);
+
+        then(occupancy.rowWord(2, 0)).isEqualTo(1L << 63);
+        then(occupancy.rowWord(2, 1)).isEqualTo(1L | 1L << 35);
+        then(occupancy.rowWord(2, 2)).isZero();
+    }
+
+    @Test
+    void nextColumn_FindsNextReservedAndFreeSeat_AcrossWords() {
+
+        //given
+        SeatOccupancy occupancy = new SeatOccupancy(3, 150);
+        for (int column = 60; column <= 140; column++) {
+            occupancy.reserve(2, column);
+        }
+        occupancy.reserve(3, 1);
+
+        then(occupancy.nextColumn(2, 1, true)).isEqualTo(60);
+        then(occupancy.nextColumn(2, 60, false)).isEqualTo(141);
+        then(occupancy.nextColumn(2, 141, true)).isEqualTo(151);
+        then(occupancy.nextColumn(2, 141, false)).isEqualTo(141);
+        then(occupancy.nextColumn(1, 1, true)).isEqualTo(151);
+        then(occupancy.nextColumn(3, 1, false)).isEqualTo(2);
+    }
+}
@@ -19,10 +19,10 @@ import static org.assertj.core.api.BDDAssertions.thenThrownBy;
 
 class SeatsValidatorTest {
 
-    private static final Room TEST_ROOM = new Room(1, "Test", 10, 10);
+    static final Room TEST_ROOM = new Room(1, "Test", 10, 10);
     private final SeatsValidator seatsValidator = new SeatsValidator();
 
-    private static Stream<Arguments> reservationToValidation() {
+    static Stream<Arguments> reservationToValidation() {
 
         return Stream.of(
                 Arguments.of(
@@ -0,0 +1,106 @@
+package org.multiplex.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+class TimingWheelTest {
+
+    @Test
+    void advance_ExpiresItems_OnlyAfterTheirDeadline() {
+
+        //given
+        TimingWheel<String> timingWheel = new TimingWheel<>(100, 1_000);
+        timingWheel.add(1_250, "first");
+        timingWheel.add(1_300, "second");
+        List<String> expired = new ArrayList<>();
+
+        //when
+        timingWheel.advance(1_299, expired::add);
+
+        then(expired).isEmpty();
+
+        timingWheel.advance(1_300, expired::add);
+
+        then(expired).containsExactly("first", "second");
+        then(timingWheel.size()).isZero();
+    }
+
+    @Test
+    void advance_ExpiresOverdueItems_WithoutMovingTheWheel() {
+
+        //given
+        TimingWheel<String> timingWheel = new TimingWheel<>(100, 5_000);
+        timingWheel.add(1_000, "overdue");
+        List<String> expired = new ArrayList<>();
+
+        //when
+        timingWheel.advance(5_000, expired::add);
+
+        then(expired).containsExactly("overdue");
+    }
+
+    @Test
+    void advance_ExpiresEveryItemInTheRightTick_OnAllLevels() {
+
+        //given
+        Random random = new Random(20191218);
+        long tickMillis = 1_000;
+        long start = 1_000_000;
+        TimingWheel<Long> timingWheel = new TimingWheel<>(tickMillis, start);
+
+        List<Long> deadlines = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            // from a few ticks up to beyond the range of the whole wheel
+            long deadline = start + (long) Math.pow(10, 3 + random.nextDouble() * 7.5);
+            deadlines.add(deadline);
+            timingWheel.add(deadline, deadline);
+        }
+
+        //when
+        List<Long> expired = new ArrayList<>();
+        long now = start;
+        while (expired.size() < deadlines.size()) {
+            long previous = now;
+            now += 1 + random.nextInt(50_000_000);
+            long until = now;
+            timingWheel.advance(now, deadline -> {
+                then(deadline).isLessThanOrEqualTo(until);
+                // not held back by an earlier advance past its tick
+                then(deadline).isGreaterThan(previous - tickMillis);
+                expired.add(deadline);
+            });
+        }
+
+        then(expired).containsExactlyInAnyOrderElementsOf(deadlines);
+        then(timingWheel.size()).isZero();
+    }
+
+    @Test
+    void advance_ExpiresItemsInDeadlineOrder_WhenAdvancedTickByTick() {
+
+        //given
+        Random random = new Random(20191219);
+        TimingWheel<Long> timingWheel = new TimingWheel<>(1, 0);
+        for (int i = 0; i < 2_000; i++) {
+            long deadline = 1 + random.nextInt(300_000);
+            timingWheel.add(deadline, deadline);
+        }
+
+        //when
+        List<Long> expired = new ArrayList<>();
+        for (long now = 1; now <= 300_000; now++) {
+            long tick = now;
+            timingWheel.advance(now, deadline -> {
+                then(deadline).isEqualTo(tick);
+                expired.add(deadline);
+            });
+        }
+
+        then(expired).hasSize(2_000).isSorted();
+    }
+}